@@ -0,0 +1,343 @@
+package de.shop.benchmarks;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.LockModeType;
+import javax.persistence.SharedCacheMode;
+import javax.persistence.ValidationMode;
+import javax.persistence.spi.ClassTransformer;
+import javax.persistence.spi.PersistenceUnitInfo;
+import javax.persistence.spi.PersistenceUnitTransactionType;
+import javax.sql.DataSource;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.jpa.HibernatePersistenceProvider;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Resources;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.domain.Lieferung;
+import de.shop.bestellverwaltung.domain.TransportTypeConverter;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.domain.Adresse;
+import de.shop.kundenverwaltung.domain.FamilienstandTypeConverter;
+import de.shop.kundenverwaltung.domain.Firmenkunde;
+import de.shop.kundenverwaltung.domain.GeschlechtTypeConverter;
+import de.shop.kundenverwaltung.domain.HobbyTypeConverter;
+import de.shop.kundenverwaltung.domain.Privatkunde;
+import de.shop.kundenverwaltung.domain.Wartungsvertrag;
+import de.shop.util.mail.domain.MailAuftrag;
+import de.shop.util.mail.domain.MailStatusConverter;
+
+/**
+ * Durchsatz beim Anlegen von Bestellungen mit vielen Bestellpositionen bei allocation-size 1 bzw. 50 der
+ * Sequenzen. Wie in BestellungServiceImpl.createBestellung() wird der Kunde gesperrt, die naechste Position
+ * per Query ermittelt und die Bestellung mit ihren Positionen per Kaskade abgespeichert.
+ * <p>
+ * Die Persistence Unit wird ohne Applikationsserver mit H2 im Hauptspeicher erzeugt. Als Mapping dient
+ * META-INF/orm.xml des Projekts "shop", in dem nur allocation-size ersetzt wird; das Schema einschliesslich
+ * INCREMENT BY der Sequenzen erzeugt Hibernate aus dem Mapping. Der Hilfszaehler "sequenzaufrufe" zaehlt
+ * die Roundtrips zu den Sequenzen; geteilt durch den Durchsatz ergibt sich die Anzahl je Bestellung.
+ * Mit H2 im Hauptspeicher kostet ein Roundtrip nur Mikrosekunden, bei einer DB im Netz kommt jeweils die
+ * Latenz des Netzes hinzu.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BestellungSequenzBenchmark {
+	private static final String ORM_XML = "META-INF/orm.xml";
+	private static final String ORM_XML_BENCHMARK = "META-INF/orm-benchmark.xml";
+	private static final String ALLOCATION_SIZE = "allocation-size=\"%d\"";
+	private static final int ALLOCATION_SIZE_SHOP = 50;
+	private static final int ANZAHL_ARTIKEL = 100;
+	
+	private static final List<Class<?>> KLASSEN = Arrays.<Class<?>>asList(AbstractKunde.class, Privatkunde.class,
+			                                                                Firmenkunde.class, Adresse.class,
+			                                                                Wartungsvertrag.class, Artikel.class,
+			                                                                Bestellung.class, Bestellposition.class,
+			                                                                Lieferung.class, MailAuftrag.class,
+			                                                                FamilienstandTypeConverter.class,
+			                                                                GeschlechtTypeConverter.class,
+			                                                                HobbyTypeConverter.class,
+			                                                                TransportTypeConverter.class,
+			                                                                MailStatusConverter.class);
+	
+	@Param({ "1", "50" })
+	private int allocationSize;
+	
+	@Param({ "10", "100" })
+	private int anzahlPositionen;
+	
+	private Path verzeichnis;
+	private EntityManagerFactory emf;
+	private EntityManager em;
+	private Long kundeId;
+	private final List<Long> artikelIds = new ArrayList<>(ANZAHL_ARTIKEL);
+	
+	/**
+	 * Roundtrips zu den Sequenzen, z.B. "call next value for bestellposition_seq" bei H2.
+	 */
+	public static class Sequenzzaehler extends EmptyInterceptor {
+		private static final long serialVersionUID = 5208735163211235718L;
+		private static final AtomicLong ANZAHL = new AtomicLong();
+		
+		@Override
+		public String onPrepareStatement(String sql) {
+			if (sql.contains("next value for")) {
+				ANZAHL.incrementAndGet();
+			}
+			return sql;
+		}
+	}
+	
+	/**
+	 * Hilfszaehler, den JMH wie den Durchsatz je Sekunde ausgibt.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Zaehler {
+		public long sequenzaufrufe;
+		
+		@Setup(Level.Iteration)
+		public void zuruecksetzen() {
+			sequenzaufrufe = 0;
+		}
+	}
+	
+	@Setup
+	public void setup() throws IOException {
+		verzeichnis = Files.createTempDirectory("shop-benchmark");
+		final Path ormXml = verzeichnis.resolve(ORM_XML_BENCHMARK);
+		Files.createDirectories(ormXml.getParent());
+		Files.write(ormXml, getOrmXml().getBytes(StandardCharsets.UTF_8));
+		final URL url = verzeichnis.toUri().toURL();
+		final ClassLoader classLoader = new URLClassLoader(new URL[] {url }, getClass().getClassLoader());
+		
+		final Map<String, Object> properties = new HashMap<>();
+		properties.put("javax.persistence.jdbc.driver", "org.h2.Driver");
+		properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:bestellung" + allocationSize + "_"
+		                                             + anzahlPositionen + ";DB_CLOSE_DELAY=-1");
+		properties.put("javax.persistence.jdbc.user", "sa");
+		properties.put("javax.persistence.jdbc.password", "");
+		properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+		properties.put("hibernate.hbm2ddl.auto", "create");
+		// Wie in META-INF/persistence.xml des Projekts "shop", aber ohne L2C
+		properties.put("hibernate.id.new_generator_mappings", "true");
+		properties.put("hibernate.id.optimizer.pooled.prefer_lo", "true");
+		properties.put("hibernate.jdbc.batch_size", "50");
+		properties.put("hibernate.order_inserts", "true");
+		properties.put("hibernate.jdbc.batch_versioned_data", "true");
+		properties.put("hibernate.ejb.interceptor", Sequenzzaehler.class.getName());
+		emf = new HibernatePersistenceProvider().createContainerEntityManagerFactory(
+				new PersistenceUnit(url, classLoader), properties);
+		em = emf.createEntityManager();
+		
+		// Testdaten: ein Kunde und die Artikel fuer die Bestellpositionen
+		final EntityTransaction tx = em.getTransaction();
+		tx.begin();
+		final Privatkunde kunde = Testobjekte.privatkunde(0);
+		kunde.setId(null);
+		em.persist(kunde);
+		for (int i = 0; i < ANZAHL_ARTIKEL; i++) {
+			final Artikel artikel = Testobjekte.artikel(i);
+			artikel.setId(null);
+			em.persist(artikel);
+			artikelIds.add(artikel.getId());
+		}
+		tx.commit();
+		kundeId = kunde.getId();
+		em.clear();
+	}
+	
+	/**
+	 * META-INF/orm.xml des Projekts "shop" mit der zu messenden allocation-size.
+	 */
+	private String getOrmXml() throws IOException {
+		final String ormXml = Resources.toString(Resources.getResource(ORM_XML), StandardCharsets.UTF_8);
+		final String shop = String.format(ALLOCATION_SIZE, ALLOCATION_SIZE_SHOP);
+		if (!ormXml.contains(shop)) {
+			throw new IllegalStateException(ORM_XML + " enthaelt nicht " + shop);
+		}
+		return ormXml.replace(shop, String.format(ALLOCATION_SIZE, allocationSize));
+	}
+	
+	@TearDown
+	public void tearDown() throws IOException {
+		em.close();
+		emf.close();
+		Files.delete(verzeichnis.resolve(ORM_XML_BENCHMARK));
+		Files.delete(verzeichnis.resolve(ORM_XML_BENCHMARK).getParent());
+		Files.delete(verzeichnis);
+	}
+	
+	@Benchmark
+	public Bestellung createBestellung(Zaehler zaehler) {
+		final long vorher = Sequenzzaehler.ANZAHL.get();
+		final EntityTransaction tx = em.getTransaction();
+		tx.begin();
+		try {
+			final AbstractKunde kunde = em.find(AbstractKunde.class, kundeId, LockModeType.PESSIMISTIC_WRITE);
+			final Integer maxIdx = em.createNamedQuery(Bestellung.FIND_MAX_IDX_BY_KUNDE_ID, Integer.class)
+			                         .setParameter(Bestellung.PARAM_KUNDE_ID, kundeId)
+			                         .getSingleResult();
+			
+			final List<Bestellposition> positionen = new ArrayList<>(anzahlPositionen);
+			for (int i = 0; i < anzahlPositionen; i++) {
+				final Artikel artikel = em.getReference(Artikel.class, artikelIds.get(i % ANZAHL_ARTIKEL));
+				positionen.add(new Bestellposition(artikel, (short) 1));
+			}
+			final Bestellung bestellung = new Bestellung(positionen);
+			bestellung.setIdx(maxIdx == null ? 0 : maxIdx + 1);
+			bestellung.setKunde(kunde);
+			em.persist(bestellung);
+			tx.commit();
+			return bestellung;
+		}
+		finally {
+			if (tx.isActive()) {
+				tx.rollback();
+			}
+			em.clear();
+			zaehler.sequenzaufrufe += Sequenzzaehler.ANZAHL.get() - vorher;
+		}
+	}
+	
+	/**
+	 * Persistence Unit mit den Entity-Klassen des Projekts "shop" und dem geaenderten orm.xml, ohne
+	 * META-INF/persistence.xml.
+	 */
+	private static final class PersistenceUnit implements PersistenceUnitInfo {
+		private final URL url;
+		private final ClassLoader classLoader;
+		
+		private PersistenceUnit(URL url, ClassLoader classLoader) {
+			this.url = url;
+			this.classLoader = classLoader;
+		}
+		
+		@Override
+		public String getPersistenceUnitName() {
+			return "benchmarkPU";
+		}
+		
+		@Override
+		public String getPersistenceProviderClassName() {
+			return HibernatePersistenceProvider.class.getName();
+		}
+		
+		@Override
+		public PersistenceUnitTransactionType getTransactionType() {
+			return PersistenceUnitTransactionType.RESOURCE_LOCAL;
+		}
+		
+		@Override
+		public DataSource getJtaDataSource() {
+			return null;
+		}
+		
+		@Override
+		public DataSource getNonJtaDataSource() {
+			return null;
+		}
+		
+		@Override
+		public List<String> getMappingFileNames() {
+			return Collections.singletonList(ORM_XML_BENCHMARK);
+		}
+		
+		@Override
+		public List<URL> getJarFileUrls() {
+			return Collections.emptyList();
+		}
+		
+		@Override
+		public URL getPersistenceUnitRootUrl() {
+			return url;
+		}
+		
+		@Override
+		public List<String> getManagedClassNames() {
+			final List<String> namen = new ArrayList<>(KLASSEN.size());
+			for (Class<?> klasse : KLASSEN) {
+				namen.add(klasse.getName());
+			}
+			return namen;
+		}
+		
+		@Override
+		public boolean excludeUnlistedClasses() {
+			return true;
+		}
+		
+		@Override
+		public SharedCacheMode getSharedCacheMode() {
+			return SharedCacheMode.NONE;
+		}
+		
+		@Override
+		public ValidationMode getValidationMode() {
+			return ValidationMode.NONE;
+		}
+		
+		@Override
+		public Properties getProperties() {
+			return new Properties();
+		}
+		
+		@Override
+		public String getPersistenceXMLSchemaVersion() {
+			return "2.1";
+		}
+		
+		@Override
+		public ClassLoader getClassLoader() {
+			return classLoader;
+		}
+		
+		@Override
+		public void addTransformer(ClassTransformer transformer) {
+		}
+		
+		@Override
+		public ClassLoader getNewTempClassLoader() {
+			return classLoader;
+		}
+	}
+}
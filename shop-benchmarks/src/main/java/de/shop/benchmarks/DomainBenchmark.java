@@ -0,0 +1,96 @@
+package de.shop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+/**
+ * hashCode(), equals() und toString() der Domain-Klassen, die z.B. in HashSets, als Schluessel
+ * und beim Protokollieren verwendet werden. Bei equals() wird jeweils mit einem gleichen,
+ * aber nicht identischen Objekt verglichen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DomainBenchmark {
+	private static final int ANZAHL_POSITIONEN = 5;
+	
+	private AbstractKunde kunde;
+	private AbstractKunde kundeGleich;
+	private Bestellung bestellung;
+	private Bestellung bestellungGleich;
+	private Bestellposition bestellposition;
+	private Bestellposition bestellpositionGleich;
+	
+	@Setup
+	public void setup() {
+		kunde = Testobjekte.privatkunde(1);
+		kundeGleich = Testobjekte.privatkunde(1);
+		bestellung = Testobjekte.bestellung(1, ANZAHL_POSITIONEN);
+		bestellungGleich = Testobjekte.bestellung(1, ANZAHL_POSITIONEN);
+		bestellposition = bestellung.getBestellpositionen().get(0);
+		bestellpositionGleich = bestellungGleich.getBestellpositionen().get(0);
+	}
+	
+	@Benchmark
+	public int kundeHashCode() {
+		return kunde.hashCode();
+	}
+	
+	@Benchmark
+	public boolean kundeEquals() {
+		return kunde.equals(kundeGleich);
+	}
+	
+	@Benchmark
+	public String kundeToString() {
+		return kunde.toString();
+	}
+	
+	@Benchmark
+	public int bestellungHashCode() {
+		return bestellung.hashCode();
+	}
+	
+	@Benchmark
+	public boolean bestellungEquals() {
+		return bestellung.equals(bestellungGleich);
+	}
+	
+	@Benchmark
+	public String bestellungToString() {
+		return bestellung.toString();
+	}
+	
+	@Benchmark
+	public int bestellpositionHashCode() {
+		return bestellposition.hashCode();
+	}
+	
+	@Benchmark
+	public boolean bestellpositionEquals() {
+		return bestellposition.equals(bestellpositionGleich);
+	}
+	
+	@Benchmark
+	public String bestellpositionToString() {
+		return bestellposition.toString();
+	}
+}
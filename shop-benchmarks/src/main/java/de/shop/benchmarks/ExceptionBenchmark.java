@@ -0,0 +1,115 @@
+package de.shop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.kundenverwaltung.service.EmailExistsException;
+import de.shop.util.rest.NotFoundException;
+
+/**
+ * Erzeugen und Werfen der fachlichen Exceptions ohne Stacktrace im Vergleich zu einer Exception, die wie
+ * frueher den Stacktrace ermittelt. Die Exceptions werden in der angegebenen Aufruftiefe erzeugt, weil der
+ * Aufwand fuer den Stacktrace mit der Tiefe waechst; in einem Application Server sind 100 und mehr
+ * Aufrufe bis zu einer Service-Methode ueblich. Beim Werfen kommt in beiden Faellen der Aufwand fuer das
+ * Abbauen der Aufrufe bis zum catch hinzu.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ExceptionBenchmark {
+	private static final String NOT_FOUND_ID = "kunde.notFound.id";
+	private static final String EMAIL = "theo@test.de";
+	
+	private static final int NOT_FOUND = 0;
+	private static final int EMAIL_EXISTS = 1;
+	private static final int MIT_STACKTRACE = 2;
+	
+	@Param({ "1", "100" })
+	private int tiefe;
+	
+	private final Long id = Long.valueOf(4711);
+	
+	/**
+	 * Exception wie NotFoundException vor der Umstellung, d.h. mit Stacktrace.
+	 */
+	private static final class NotFoundMitStacktraceException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		
+		NotFoundMitStacktraceException(String msg) {
+			super(msg);
+		}
+	}
+	
+	@Benchmark
+	public RuntimeException notFoundErzeugen() {
+		return new NotFoundException(NOT_FOUND_ID, id);
+	}
+	
+	@Benchmark
+	public RuntimeException mitStacktraceErzeugen() {
+		return new NotFoundMitStacktraceException(NOT_FOUND_ID);
+	}
+	
+	@Benchmark
+	public RuntimeException notFoundWerfen() {
+		return fangen(NOT_FOUND);
+	}
+	
+	@Benchmark
+	public RuntimeException emailExistsWerfen() {
+		return fangen(EMAIL_EXISTS);
+	}
+	
+	@Benchmark
+	public RuntimeException mitStacktraceWerfen() {
+		return fangen(MIT_STACKTRACE);
+	}
+	
+	/**
+	 * Zusaetzlich den Stacktrace auslesen, z.B. beim Protokollieren der Exception.
+	 */
+	@Benchmark
+	public StackTraceElement[] mitStacktraceWerfenUndLesen() {
+		return fangen(MIT_STACKTRACE).getStackTrace();
+	}
+	
+	private RuntimeException fangen(int art) {
+		try {
+			werfen(tiefe, art);
+		}
+		catch (RuntimeException e) {
+			return e;
+		}
+		throw new IllegalStateException();
+	}
+	
+	private void werfen(int verbleibend, int art) {
+		if (verbleibend > 1) {
+			werfen(verbleibend - 1, art);
+			return;
+		}
+		
+		switch (art) {
+			case NOT_FOUND:
+				throw new NotFoundException(NOT_FOUND_ID, id);
+			case EMAIL_EXISTS:
+				throw new EmailExistsException(EMAIL);
+			default:
+				throw new NotFoundMitStacktraceException(NOT_FOUND_ID);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package de.shop.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.map.AnnotationIntrospector;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.map.introspect.JacksonAnnotationIntrospector;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+/**
+ * JSON-Serialisierung mit Jackson 1.x wie beim REST-Provider von RESTEasy: Jackson-Annotationen wie
+ * &#064;JsonTypeInfo haben Vorrang, &#064;XmlTransient wird ebenfalls beruecksichtigt.
+ * Ein Kunde wird polymorph als AbstractKunde mit der Property "type" serialisiert und gelesen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+	private static final int ANZAHL_POSITIONEN = 5;
+	
+	private ObjectWriter bestellungWriter;
+	private ObjectWriter kundeWriter;
+	private ObjectReader kundeReader;
+	
+	private Bestellung bestellung;
+	private AbstractKunde privatkunde;
+	private AbstractKunde firmenkunde;
+	private String privatkundeJson;
+	
+	@Setup
+	public void setup() throws IOException {
+		final ObjectMapper mapper = new ObjectMapper();
+		final AnnotationIntrospector introspector =
+				new AnnotationIntrospector.Pair(new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector());
+		mapper.setSerializationConfig(mapper.getSerializationConfig().withAnnotationIntrospector(introspector));
+		mapper.setDeserializationConfig(mapper.getDeserializationConfig().withAnnotationIntrospector(introspector));
+		
+		bestellungWriter = mapper.writerWithType(Bestellung.class);
+		kundeWriter = mapper.writerWithType(AbstractKunde.class);
+		kundeReader = mapper.reader(AbstractKunde.class);
+		
+		bestellung = Testobjekte.bestellung(1, ANZAHL_POSITIONEN);
+		privatkunde = Testobjekte.privatkunde(1);
+		firmenkunde = Testobjekte.firmenkunde(2);
+		privatkundeJson = kundeWriter.writeValueAsString(privatkunde);
+	}
+	
+	@Benchmark
+	public String bestellungSchreiben() throws IOException {
+		return bestellungWriter.writeValueAsString(bestellung);
+	}
+	
+	@Benchmark
+	public String privatkundeSchreiben() throws IOException {
+		return kundeWriter.writeValueAsString(privatkunde);
+	}
+	
+	@Benchmark
+	public String firmenkundeSchreiben() throws IOException {
+		return kundeWriter.writeValueAsString(firmenkunde);
+	}
+	
+	@Benchmark
+	public AbstractKunde privatkundeLesen() throws IOException {
+		return kundeReader.readValue(privatkundeJson);
+	}
+}
@@ -0,0 +1,105 @@
+package de.shop.benchmarks;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.UriInfo;
+
+import org.jboss.resteasy.spi.ResteasyUriInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.rest.KundeResource;
+import de.shop.util.rest.UriHelper;
+
+/**
+ * Links bei einer Liste von Kunden wie bei GET /kunden: je Kunde die URI fuer die Bestellungen und
+ * fuer einen einzelnen Kunden die Header-Links. Zum Vergleich werden dieselben URIs mit einem
+ * UriBuilder je URI aufgebaut, wie es UriHelper frueher gemacht hat.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LinksBenchmark {
+	@Param({ "1000" })
+	private int anzahl;
+	
+	private UriInfo uriInfo;
+	private KundeResource kundeResource;
+	private List<AbstractKunde> kunden;
+	
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		uriInfo = new ResteasyUriInfo(URI.create(Testobjekte.BASIS_URI + "/"), URI.create("kunden"));
+		
+		kundeResource = new KundeResource();
+		final Field uriHelper = KundeResource.class.getDeclaredField("uriHelper");
+		uriHelper.setAccessible(true);
+		uriHelper.set(kundeResource, new UriHelper());
+		
+		kunden = new ArrayList<>(anzahl);
+		for (int i = 1; i <= anzahl; i++) {
+			kunden.add(Testobjekte.privatkunde(i));
+		}
+	}
+	
+	@Benchmark
+	public void kundenListe(Blackhole blackhole) {
+		for (AbstractKunde k : kunden) {
+			kundeResource.setStructuralLinks(k, uriInfo);
+			blackhole.consume(k.getBestellungenUri());
+		}
+	}
+	
+	@Benchmark
+	public void kundenListeUriBuilder(Blackhole blackhole) {
+		for (AbstractKunde k : kunden) {
+			k.setBestellungenUri(getUri("findBestellungenByKundeId", k.getId()));
+			blackhole.consume(k.getBestellungenUri());
+		}
+	}
+	
+	@Benchmark
+	public Link[] kundeLinks() {
+		return kundeResource.getTransitionalLinks(kunden.get(0), uriInfo);
+	}
+	
+	@Benchmark
+	public Link[] kundeLinksUriBuilder() {
+		final AbstractKunde kunde = kunden.get(0);
+		final URI kundenUri = uriInfo.getBaseUriBuilder().path(KundeResource.class).build();
+		return new Link[] {
+			Link.fromUri(getUri("findKundeById", kunde.getId())).rel("self").build(),
+			Link.fromUri(kundenUri).rel("list").build(),
+			Link.fromUri(uriInfo.getBaseUriBuilder().path(KundeResource.class).build()).rel("add").build(),
+			Link.fromUri(uriInfo.getBaseUriBuilder().path(KundeResource.class).build()).rel("update").build(),
+			Link.fromUri(getUri("deleteKunde", kunde.getId())).rel("remove").build()
+		};
+	}
+	
+	private URI getUri(String methodName, Long id) {
+		return uriInfo.getBaseUriBuilder()
+		              .path(KundeResource.class)
+		              .path(KundeResource.class, methodName)
+		              .build(id);
+	}
+}
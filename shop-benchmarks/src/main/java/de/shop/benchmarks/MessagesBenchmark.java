@@ -0,0 +1,177 @@
+package de.shop.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Cookie;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Splitter;
+
+import de.shop.util.rest.Messages;
+
+/**
+ * Meldungen fuer REST-Responses, z.B. bei NotFoundException, zu verschiedenen Werten des Headers
+ * Accept-Language. Messages wird wie im Applikationsserver mit den Locales aus web.xml initialisiert.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MessagesBenchmark {
+	private static final String LOCALES = "de,en";
+	private static final String KEY = "bestellung.notFound.id";
+	private static final Long ID = Long.valueOf(4711);
+	
+	// Keine Kommas in den Werten, weil JMH sie in der JSON-Ergebnisdatei nicht korrekt ausgibt;
+	// "fr" wird nicht unterstuetzt, so dass das Default-Bundle verwendet wird
+	@Param({ "de", "en-US", "fr", "" })
+	private String acceptLanguage;
+	
+	private Messages messages;
+	private HttpHeaders headers;
+	
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		messages = new Messages();
+		final Field locales = Messages.class.getDeclaredField("locales");
+		locales.setAccessible(true);
+		locales.set(messages, LOCALES);
+		final Method postConstruct = Messages.class.getDeclaredMethod("postConstruct");
+		postConstruct.setAccessible(true);
+		postConstruct.invoke(messages);
+		
+		headers = new Header(acceptLanguage);
+	}
+	
+	@Benchmark
+	public String getMessage() {
+		return messages.getMessage(headers, KEY, ID);
+	}
+	
+	/**
+	 * Wie bei Crawlern hat fast jeder Request einen anderen Wert im Header Accept-Language.
+	 */
+	@Benchmark
+	public String getMessageVerschiedeneHeader(Crawler crawler) {
+		return messages.getMessage(crawler.naechster(), KEY, ID);
+	}
+	
+	/**
+	 * Viele verschiedene Werte im Header Accept-Language, die reihum verwendet werden.
+	 */
+	@State(Scope.Thread)
+	public static class Crawler {
+		private static final int ANZAHL = 4096;
+		
+		private final HttpHeaders[] headers = new HttpHeaders[ANZAHL];
+		private int index;
+		
+		@Setup
+		public void setup() {
+			for (int i = 0; i < ANZAHL; i++) {
+				headers[i] = new Header("de-DE,de;q=0." + (i + 1));
+			}
+		}
+		
+		private HttpHeaders naechster() {
+			index = (index + 1) % ANZAHL;
+			return headers[index];
+		}
+	}
+	
+	/**
+	 * Request-Header, die nur Accept-Language enthalten.
+	 */
+	private static final class Header implements HttpHeaders {
+		private final MultivaluedMap<String, String> werte = new MultivaluedHashMap<>();
+		private final List<Locale> sprachen = new ArrayList<>();
+		
+		private Header(String acceptLanguage) {
+			if (acceptLanguage.isEmpty()) {
+				return;
+			}
+			werte.putSingle(ACCEPT_LANGUAGE, acceptLanguage);
+			// Gewichtung mit q ist bereits absteigend
+			for (String sprache : Splitter.on(',').trimResults().split(acceptLanguage)) {
+				final int ende = sprache.indexOf(';');
+				sprachen.add(Locale.forLanguageTag(ende < 0 ? sprache : sprache.substring(0, ende)));
+			}
+		}
+		
+		@Override
+		public List<String> getRequestHeader(String name) {
+			return werte.get(name);
+		}
+		
+		@Override
+		public String getHeaderString(String name) {
+			return werte.getFirst(name);
+		}
+		
+		@Override
+		public MultivaluedMap<String, String> getRequestHeaders() {
+			return werte;
+		}
+		
+		@Override
+		public List<MediaType> getAcceptableMediaTypes() {
+			return Collections.singletonList(MediaType.WILDCARD_TYPE);
+		}
+		
+		@Override
+		public List<Locale> getAcceptableLanguages() {
+			return sprachen;
+		}
+		
+		@Override
+		public MediaType getMediaType() {
+			return null;
+		}
+		
+		@Override
+		public Locale getLanguage() {
+			return null;
+		}
+		
+		@Override
+		public Map<String, Cookie> getCookies() {
+			return Collections.emptyMap();
+		}
+		
+		@Override
+		public Date getDate() {
+			return null;
+		}
+		
+		@Override
+		public int getLength() {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package de.shop.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+import org.hibernate.validator.constraints.ScriptAssert;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.domain.PasswordGroup;
+
+/**
+ * Validierung des Passworts mit &#064;PasswordsMatch im Vergleich zu dem frueher verwendeten
+ * &#064;ScriptAssert mit JavaScript. Validiert wird jeweils nur die Gruppe PasswordGroup, damit nur die
+ * beiden Constraints verglichen werden. Ab Java 15 wird die Script Engine Nashorn durch das Profil
+ * "nashorn" in pom.xml bereitgestellt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PasswortBenchmark {
+	private static final String PASSWORT = "geheim";
+	
+	private ValidatorFactory validatorFactory;
+	private Validator validator;
+	
+	private AbstractKunde kunde;
+	private AbstractKunde kundeUngueltig;
+	private KundeMitScriptAssert kundeMitScriptAssert;
+	private KundeMitScriptAssert kundeMitScriptAssertUngueltig;
+	
+	/**
+	 * Testklasse mit dem Constraint, das frueher in AbstractKunde verwendet wurde.
+	 */
+	@ScriptAssert(lang = "javascript",
+	              script = "_this.password != null && !_this.password.equals(\"\")"
+	                       + " && _this.password.equals(_this.passwordWdh)",
+	              message = "{kunde.password.notEqual}",
+	              groups = PasswordGroup.class)
+	public static class KundeMitScriptAssert {
+		private final String password;
+		private final String passwordWdh;
+		
+		KundeMitScriptAssert(String password, String passwordWdh) {
+			this.password = password;
+			this.passwordWdh = passwordWdh;
+		}
+		
+		public String getPassword() {
+			return password;
+		}
+		
+		public String getPasswordWdh() {
+			return passwordWdh;
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		validatorFactory = Validation.buildDefaultValidatorFactory();
+		validator = validatorFactory.getValidator();
+		
+		kunde = Testobjekte.privatkunde(1);
+		kunde.setPassword(PASSWORT);
+		kunde.setPasswordWdh(PASSWORT);
+		kundeUngueltig = Testobjekte.privatkunde(2);
+		kundeUngueltig.setPassword(PASSWORT);
+		kundeUngueltig.setPasswordWdh("anders");
+		
+		kundeMitScriptAssert = new KundeMitScriptAssert(PASSWORT, PASSWORT);
+		kundeMitScriptAssertUngueltig = new KundeMitScriptAssert(PASSWORT, "anders");
+		
+		// Die Script Engine muss vorhanden sein, sonst wuerde nur die Exception gemessen
+		if (!validator.validate(kundeMitScriptAssert, PasswordGroup.class).isEmpty()
+		    || validator.validate(kundeMitScriptAssertUngueltig, PasswordGroup.class).size() != 1) {
+			throw new IllegalStateException("@ScriptAssert wird nicht richtig ausgewertet");
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		validatorFactory.close();
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<AbstractKunde>> passwordsMatch() {
+		return validator.validate(kunde, PasswordGroup.class);
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<AbstractKunde>> passwordsMatchUngueltig() {
+		return validator.validate(kundeUngueltig, PasswordGroup.class);
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<KundeMitScriptAssert>> scriptAssert() {
+		return validator.validate(kundeMitScriptAssert, PasswordGroup.class);
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<KundeMitScriptAssert>> scriptAssertUngueltig() {
+		return validator.validate(kundeMitScriptAssertUngueltig, PasswordGroup.class);
+	}
+}
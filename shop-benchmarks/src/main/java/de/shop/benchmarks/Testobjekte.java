@@ -0,0 +1,89 @@
+package de.shop.benchmarks;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.List;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.domain.Adresse;
+import de.shop.kundenverwaltung.domain.FamilienstandType;
+import de.shop.kundenverwaltung.domain.Firmenkunde;
+import de.shop.kundenverwaltung.domain.GeschlechtType;
+import de.shop.kundenverwaltung.domain.HobbyType;
+import de.shop.kundenverwaltung.domain.Privatkunde;
+
+/**
+ * Gueltige Domain-Objekte fuer die Benchmarks, wie sie z.B. ueber REST empfangen werden.
+ * Bei gleicher ID werden gleiche, aber nicht identische Objekte erzeugt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public final class Testobjekte {
+	public static final String BASIS_URI = "http://localhost:8080/shop/rest";
+	
+	private Testobjekte() {
+	}
+	
+	public static Privatkunde privatkunde(long id) {
+		final Privatkunde kunde = new Privatkunde();
+		kunde.setFamilienstand(FamilienstandType.VERHEIRATET);
+		kunde.setGeschlecht(GeschlechtType.WEIBLICH);
+		kunde.setHobbies(EnumSet.of(HobbyType.LESEN, HobbyType.REISEN));
+		setWerte(kunde, id);
+		return kunde;
+	}
+	
+	public static Firmenkunde firmenkunde(long id) {
+		final Firmenkunde kunde = new Firmenkunde();
+		setWerte(kunde, id);
+		return kunde;
+	}
+	
+	private static void setWerte(AbstractKunde kunde, long id) {
+		kunde.setId(id);
+		kunde.setNachname("Mueller-Schmidt");
+		kunde.setVorname("Anna");
+		kunde.setEmail("kunde" + id + "@hs-karlsruhe.de");
+		kunde.setPassword("geheim");
+		kunde.setPasswordWdh("geheim");
+		kunde.setNewsletter(true);
+		
+		final Calendar seit = Calendar.getInstance();
+		seit.clear();
+		seit.set(2010, Calendar.JANUARY, 1);
+		kunde.setSeit(seit.getTime());
+		kunde.setBestellungenUri(URI.create(BASIS_URI + "/kunden/" + id + "/bestellungen"));
+		
+		kunde.setAdresse(new Adresse("76133", "Karlsruhe", "Moltkestrasse", "30", kunde));
+	}
+	
+	public static Artikel artikel(long id) {
+		final Artikel artikel = new Artikel("Blauer Stuhl " + id, BigDecimal.valueOf(4999, 2));
+		artikel.setId(id);
+		return artikel;
+	}
+	
+	/**
+	 * Eine Bestellung wie beim Anlegen ueber REST: mit URIs fuer Kunde und Artikel.
+	 */
+	public static Bestellung bestellung(long id, int anzahlPositionen) {
+		final List<Bestellposition> positionen = new ArrayList<>(anzahlPositionen);
+		for (int i = 0; i < anzahlPositionen; i++) {
+			final long artikelId = id * 100 + i;
+			final Bestellposition bp = new Bestellposition(artikel(artikelId), (short) (1 + i % 3));
+			bp.setId(id * 100 + i);
+			bp.setArtikelUri(URI.create(BASIS_URI + "/artikel/" + artikelId));
+			positionen.add(bp);
+		}
+		
+		final Bestellung bestellung = new Bestellung(positionen);
+		bestellung.setId(id);
+		bestellung.setKundeUri(URI.create(BASIS_URI + "/kunden/" + id));
+		return bestellung;
+	}
+}
@@ -0,0 +1,82 @@
+package de.shop.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+/**
+ * Bean Validation der Payloads, die bei POST und PUT mit &#064;Valid validiert werden: ein Kunde
+ * einschliesslich Adresse und &#064;PasswordsMatch sowie eine Bestellung mit ihren Positionen.
+ * Bei einem ungueltigen Kunden werden zusaetzlich die Fehlermeldungen interpoliert.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+	private static final int ANZAHL_POSITIONEN = 5;
+	
+	private ValidatorFactory validatorFactory;
+	private Validator validator;
+	
+	private AbstractKunde kunde;
+	private AbstractKunde kundeUngueltig;
+	private Bestellung bestellung;
+	
+	@Setup
+	public void setup() {
+		validatorFactory = Validation.buildDefaultValidatorFactory();
+		validator = validatorFactory.getValidator();
+		
+		kunde = Testobjekte.privatkunde(1);
+		bestellung = Testobjekte.bestellung(1, ANZAHL_POSITIONEN);
+		
+		kundeUngueltig = Testobjekte.privatkunde(2);
+		kundeUngueltig.setNachname("x");
+		kundeUngueltig.setEmail("keine Email");
+		kundeUngueltig.setPasswordWdh("anders");
+		kundeUngueltig.getAdresse().setPlz("123");
+	}
+	
+	@TearDown
+	public void tearDown() {
+		validatorFactory.close();
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<AbstractKunde>> kundeGueltig() {
+		return validator.validate(kunde);
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<AbstractKunde>> kundeUngueltig() {
+		return validator.validate(kundeUngueltig);
+	}
+	
+	@Benchmark
+	public Set<ConstraintViolation<Bestellung>> bestellungGueltig() {
+		return validator.validate(bestellung);
+	}
+}
@@ -0,0 +1,54 @@
+package de.shop.bestellverwaltung.rest;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.benchmarks.Testobjekte;
+
+/**
+ * Ermitteln der IDs aus den URIs fuer Kunde und Artikel beim Anlegen einer Bestellung ueber REST.
+ * Zum Vergleich wird eine ungueltige ID auch wie frueher mit Long.valueOf() und NumberFormatException
+ * erkannt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class UriBenchmark {
+	private final URI artikelUri = URI.create(Testobjekte.BASIS_URI + "/artikel/4711");
+	private final URI artikelUriUngueltig = URI.create(Testobjekte.BASIS_URI + "/artikel/abc");
+	
+	@Benchmark
+	public Long idGueltig() {
+		return BestellungResource.parseId(BestellungResource.getLetztesSegment(artikelUri));
+	}
+	
+	@Benchmark
+	public Long idUngueltig() {
+		return BestellungResource.parseId(BestellungResource.getLetztesSegment(artikelUriUngueltig));
+	}
+	
+	@Benchmark
+	public Long idUngueltigMitException() {
+		final String idStr = BestellungResource.getLetztesSegment(artikelUriUngueltig);
+		try {
+			return Long.valueOf(idStr);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
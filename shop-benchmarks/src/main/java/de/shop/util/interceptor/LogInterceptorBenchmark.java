@@ -0,0 +1,157 @@
+package de.shop.util.interceptor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.interceptor.InvocationContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.benchmarks.Testobjekte;
+import de.shop.bestellverwaltung.domain.Bestellung;
+
+/**
+ * Aufwand des LogInterceptor: Konvertierung von Parametern und Rueckgabewerten in Strings bei
+ * grossen und kleinen Collections sowie Arrays, und ein Aufruf mit ausgeschaltetem Level DEBUG,
+ * wie er im Normalbetrieb bei jeder public-Methode eines Service und einer REST-Resource anfaellt.
+ * Fuer logOhneDebug muss der Profiler "gc" (-prof gc) bei gc.alloc.rate.norm ungefaehr 0 B/op ausgeben.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LogInterceptorBenchmark {
+	private static final int ANZAHL_GROSS = 10_000;
+	private static final int ANZAHL_KLEIN = 4;
+	private static final int ANZAHL_POSITIONEN = 3;
+	
+	private List<Bestellung> bestellungenGross;
+	private List<Bestellung> bestellungenKlein;
+	private Long[] idsGross;
+	private long[] idsKlein;
+	
+	private LogInterceptor logInterceptor;
+	private InvocationContext ctx;
+	
+	@Setup
+	public void setup() throws NoSuchMethodException {
+		bestellungenGross = new ArrayList<>(ANZAHL_GROSS);
+		idsGross = new Long[ANZAHL_GROSS];
+		for (int i = 0; i < ANZAHL_GROSS; i++) {
+			bestellungenGross.add(Testobjekte.bestellung(i, ANZAHL_POSITIONEN));
+			idsGross[i] = Long.valueOf(i);
+		}
+		bestellungenKlein = new ArrayList<>(bestellungenGross.subList(0, ANZAHL_KLEIN));
+		idsKlein = new long[ANZAHL_KLEIN];
+		for (int i = 0; i < ANZAHL_KLEIN; i++) {
+			idsKlein[i] = i;
+		}
+		
+		logInterceptor = new LogInterceptor();
+		ctx = new Aufruf(this, LogInterceptorBenchmark.class.getMethod("getBestellungenKlein"),
+		                 new Object[] { bestellungenGross }, bestellungenKlein);
+	}
+	
+	public List<Bestellung> getBestellungenKlein() {
+		return bestellungenKlein;
+	}
+	
+	@Benchmark
+	public String collectionGross() {
+		return LogInterceptor.toString(bestellungenGross);
+	}
+	
+	@Benchmark
+	public String collectionKlein() {
+		return LogInterceptor.toString(bestellungenKlein);
+	}
+	
+	@Benchmark
+	public String arrayGross() {
+		return LogInterceptor.toString(idsGross);
+	}
+	
+	@Benchmark
+	public String arrayPrimitivKlein() {
+		return LogInterceptor.toString(idsKlein);
+	}
+	
+	@Benchmark
+	public Object logOhneDebug() throws Exception {
+		return logInterceptor.log(ctx);
+	}
+	
+	/**
+	 * Aufruf einer Methode, die direkt den vorgegebenen Rueckgabewert liefert.
+	 */
+	private static final class Aufruf implements InvocationContext {
+		private final Object target;
+		private final Method method;
+		private Object[] parameters;
+		private final Object result;
+		
+		private Aufruf(Object target, Method method, Object[] parameters, Object result) {
+			this.target = target;
+			this.method = method;
+			this.parameters = parameters;
+			this.result = result;
+		}
+		
+		@Override
+		public Object getTarget() {
+			return target;
+		}
+		
+		@Override
+		public Object getTimer() {
+			return null;
+		}
+		
+		@Override
+		public Method getMethod() {
+			return method;
+		}
+		
+		@Override
+		public Constructor<?> getConstructor() {
+			return null;
+		}
+		
+		@Override
+		public Object[] getParameters() {
+			return parameters;
+		}
+		
+		@Override
+		public void setParameters(Object[] params) {
+			parameters = params;
+		}
+		
+		@Override
+		public Map<String, Object> getContextData() {
+			return Collections.emptyMap();
+		}
+		
+		@Override
+		public Object proceed() {
+			return result;
+		}
+	}
+}
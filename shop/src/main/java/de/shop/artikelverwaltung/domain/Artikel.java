@@ -35,6 +35,10 @@ import org.jboss.logging.Logger;
 @Entity
 @Table(indexes = @Index(columnList = "bezeichnung"))
 @NamedQueries({
+	@NamedQuery(name  = Artikel.FIND_ARTIKEL,
+            	query = "SELECT      a"
+            	        + " FROM     Artikel a"
+                        + " ORDER BY a.id ASC"),
 	@NamedQuery(name  = Artikel.FIND_VERFUEGBARE_ARTIKEL,
             	query = "SELECT      a"
             	        + " FROM     Artikel a"
@@ -46,11 +50,14 @@ import org.jboss.logging.Logger;
 						+ " WHERE    a.bezeichnung LIKE :" + Artikel.PARAM_BEZEICHNUNG
 						+ "          AND a.ausgesondert = FALSE"
 			 	        + " ORDER BY a.id ASC"),
-   	@NamedQuery(name  = Artikel.FIND_ARTIKEL_MAX_PREIS,
+   	@NamedQuery(name  = Artikel.FIND_ARTIKEL_BY_IDS,
             	query = "SELECT      a"
                         + " FROM     Artikel a"
-						+ " WHERE    a.preis < :" + Artikel.PARAM_PREIS
-			 	        + " ORDER BY a.id ASC")
+						+ " WHERE    a.id IN :" + Artikel.PARAM_IDS),
+	@NamedQuery(name  = Artikel.FIND_AKTUALISIERT_BY_ID,
+            	query = "SELECT a.aktualisiert"
+                        + " FROM   Artikel a"
+						+ " WHERE  a.id = :" + Artikel.PARAM_ID)
 })
 @XmlRootElement
 public class Artikel implements Serializable {
@@ -60,12 +67,15 @@ public class Artikel implements Serializable {
 	private static final int BEZEICHNUNG_LENGTH_MAX = 32;
 	
 	private static final String PREFIX = "Artikel.";
+	public static final String FIND_ARTIKEL = PREFIX + "findArtikel";
 	public static final String FIND_VERFUEGBARE_ARTIKEL = PREFIX + "findVerfuegbareArtikel";
 	public static final String FIND_ARTIKEL_BY_BEZ = PREFIX + "findArtikelByBez";
-	public static final String FIND_ARTIKEL_MAX_PREIS = PREFIX + "findArtikelByMaxPreis";
+	public static final String FIND_ARTIKEL_BY_IDS = PREFIX + "findArtikelByIds";
+	public static final String FIND_AKTUALISIERT_BY_ID = PREFIX + "findAktualisiertById";
 
 	public static final String PARAM_BEZEICHNUNG = "bezeichnung";
-	public static final String PARAM_PREIS = "preis";
+	public static final String PARAM_IDS = "ids";
+	public static final String PARAM_ID = "id";
 	
 
 	@Id
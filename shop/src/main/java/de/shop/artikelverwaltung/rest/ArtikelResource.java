@@ -7,13 +7,17 @@ import static javax.ws.rs.core.MediaType.APPLICATION_XML;
 import static javax.ws.rs.core.MediaType.TEXT_XML;
 
 import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.util.Date;
+import java.util.List;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMin;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -21,18 +25,27 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.jboss.logging.Logger;
 
+import com.google.common.base.Strings;
+
 import de.shop.artikelverwaltung.domain.Artikel;
 import de.shop.artikelverwaltung.service.ArtikelService;
 import de.shop.util.interceptor.Log;
+import de.shop.util.persistence.ReadOnly;
 import de.shop.util.rest.NotFoundException;
 import de.shop.util.rest.UriHelper;
+import de.shop.util.rest.Vorbedingungen;
 
 
 /**
@@ -46,11 +59,28 @@ import de.shop.util.rest.UriHelper;
 public class ArtikelResource {
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	private static final String NOT_FOUND_ID = "artikel.notFound.id";
+	private static final String NOT_FOUND_BEZEICHNUNG = "artikel.notFound.bezeichnung";
+	private static final String NOT_FOUND_PREIS = "artikel.notFound.preis";
+	private static final String NOT_FOUND_BEZEICHNUNG_PREIS = "artikel.notFound.bezeichnungPreis";
+	private static final int ANZAHL_DEFAULT = 10;
+	private static final int ANZAHL_MAX = 100;
 	public static final String ARTIKEL_ID_PATH_PARAM = "artikelId";
+	public static final String ARTIKEL_BEZEICHNUNG_QUERY_PARAM = "bezeichnung";
+	public static final String ARTIKEL_UNSCHARF_QUERY_PARAM = "unscharf";
+	public static final String ARTIKEL_MIN_PREIS_QUERY_PARAM = "minPreis";
+	public static final String ARTIKEL_MAX_PREIS_QUERY_PARAM = "maxPreis";
+	public static final String ARTIKEL_ERSTER_QUERY_PARAM = "offset";
+	public static final String ARTIKEL_ANZAHL_QUERY_PARAM = "limit";
 			
 	@Context
 	private UriInfo uriInfo;
 	
+	@Context
+	private Request request;
+	
+	@Context
+	private HttpHeaders headers;
+	
 	@Inject
 	private ArtikelService as;
 	
@@ -87,7 +117,7 @@ public class ArtikelResource {
 	@Produces({ APPLICATION_JSON, APPLICATION_XML, TEXT_XML })
 	public Response updateArtikel(@Valid Artikel artikel) {
 		// Vorhandenen Artikel ermitteln
-		final Artikel origArtikel = as.findArtikelById(artikel.getId());
+		final Artikel origArtikel = as.findArtikelByIdZurAenderung(artikel.getId());
 		if (origArtikel == null) {
 			throw new NotFoundException(NOT_FOUND_ID, artikel.getId());
 		}
@@ -105,30 +135,86 @@ public class ArtikelResource {
 	
 	@GET
 	@Path("{" + ARTIKEL_ID_PATH_PARAM + ":[1-9][0-9]*}")
+	@ReadOnly
 	public Response findArtikelById(@PathParam(ARTIKEL_ID_PATH_PARAM) Long id) {
-		final Artikel artikel = as.findArtikelById(id);
+		final Artikel artikel;
+		if (Vorbedingungen.isBedingt(headers)) {
+			// Bei If-None-Match bzw. If-Modified-Since den Zeitstempel aus der DB ermitteln,
+			// weil der Artikelkatalog veraltet sein kann
+			final Date aktualisiert = as.findAktualisiertById(id);
+			if (aktualisiert == null) {
+				throw new NotFoundException(NOT_FOUND_ID, id);
+			}
+			final ResponseBuilder notModified = Vorbedingungen.pruefen(request, id, aktualisiert);
+			if (notModified != null) {
+				return notModified.build();
+			}
+			artikel = as.findArtikelById(id, aktualisiert);
+		}
+		else {
+			// Ohne Bedingung kommt der Artikel aus dem Katalog im Hauptspeicher
+			artikel = as.findArtikelById(id);
+		}
 		if (artikel == null) {
 			throw new NotFoundException(NOT_FOUND_ID, id);
 		}
 
-		return Response.ok(artikel)
-                       .links(getTransitionalLinks(artikel, uriInfo))
-                       .build();
+		return Vorbedingungen.setzen(Response.ok(artikel), request, id, artikel.getAktualisiert())
+                             .links(getTransitionalLinks(artikel, uriInfo))
+                             .build();
 	}
-	/*
-	 *  TODO Nach Bezeichnung suchen - fertig machen
-	 *  
-	public Response findArtikel(@QueryParam(ARTIKEL_BEZEICHNUNG_QUERY_PARAM)
-
-
-	if (!Strings.isNullOrEmpty(artikel)) {
-		artikel = as.findArtikelByBezeichnung(bezeichnung, FetchType.NUR_KUNDE);
+	
+	/**
+	 * Verfuegbare Artikel suchen, deren Bezeichnung einen Teilstring enthaelt. Bei einer unscharfen Suche
+	 * werden auch Artikel mit einer aehnlichen Bezeichnung gefunden, die aehnlichsten zuerst.
+	 * Mit einem Preisbereich werden verfuegbare Artikel seitenweise nach dem Preis sortiert gefunden, ggf. nur
+	 * diejenigen mit passender Bezeichnung. Ohne Kriterien werden alle verfuegbaren Artikel gefunden.
+	 * @param bezeichnung Gesuchter Teil der Bezeichnung
+	 * @param unscharf true, falls auch aehnliche Bezeichnungen gefunden werden sollen
+	 * @param minPreis Minimaler Preis einschliesslich
+	 * @param maxPreis Maximaler Preis ausschliesslich
+	 * @param erster Position des ersten Artikels im Preisbereich
+	 * @param anzahl Maximale Anzahl der Artikel bei einer unscharfen Suche bzw. im Preisbereich
+	 * @return Liste der gefundenen Artikel
+	 */
+	@GET
+	@ReadOnly
+	public Response findArtikel(@QueryParam(ARTIKEL_BEZEICHNUNG_QUERY_PARAM) String bezeichnung,
+	                            @QueryParam(ARTIKEL_UNSCHARF_QUERY_PARAM) boolean unscharf,
+	                            @QueryParam(ARTIKEL_MIN_PREIS_QUERY_PARAM)
+	                            @DecimalMin(value = "0", message = "{artikel.preis.min}")
+	                            BigDecimal minPreis,
+	                            @QueryParam(ARTIKEL_MAX_PREIS_QUERY_PARAM)
+	                            @DecimalMin(value = "0", message = "{artikel.preis.min}")
+	                            BigDecimal maxPreis,
+	                            @QueryParam(ARTIKEL_ERSTER_QUERY_PARAM) int erster,
+	                            @QueryParam(ARTIKEL_ANZAHL_QUERY_PARAM) Integer anzahl) {
+		final int maxAnzahl = anzahl == null || anzahl <= 0 ? ANZAHL_DEFAULT : Math.min(anzahl, ANZAHL_MAX);
+		List<Artikel> artikel;
+		if (minPreis != null || maxPreis != null) {
+			artikel = as.findArtikelByBezeichnungUndPreis(bezeichnung, unscharf, minPreis, maxPreis,
+			                                              Math.max(erster, 0), maxAnzahl);
+			if (artikel.isEmpty()) {
+				if (Strings.isNullOrEmpty(bezeichnung)) {
+					throw new NotFoundException(NOT_FOUND_PREIS, minPreis, maxPreis);
+				}
+				throw new NotFoundException(NOT_FOUND_BEZEICHNUNG_PREIS, bezeichnung, minPreis, maxPreis);
+			}
+		}
+		else if (unscharf) {
+			artikel = as.findArtikelByBezeichnungUnscharf(bezeichnung, maxAnzahl);
+		}
+		else {
+			artikel = as.findArtikelByBezeichnung(bezeichnung);
+		}
 		if (artikel.isEmpty()) {
 			throw new NotFoundException(NOT_FOUND_BEZEICHNUNG, bezeichnung);
 		}
+		
+		return Response.ok(new GenericEntity<List<Artikel>>(artikel) { })
+		               .build();
 	}
 	
-	*/
 	private Link[] getTransitionalLinks(Artikel artikel, UriInfo uriInfo) {
 		final Link self = Link.fromUri(getUriArtikel(artikel, uriInfo))
                               .rel(SELF_LINK)
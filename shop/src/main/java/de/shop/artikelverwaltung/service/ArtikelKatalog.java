@@ -0,0 +1,371 @@
+package de.shop.artikelverwaltung.service;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.util.cdi.Eager;
+import de.shop.util.jmx.JmxHelper;
+import de.shop.util.persistence.TransactionHelper;
+
+/**
+ * Unveraenderlicher Snapshot des Artikelkatalogs im Hauptspeicher fuer lesende Zugriffe, die sehr viel
+ * haeufiger sind als Aenderungen. Lesende Zugriffe erfolgen ohne Sperren und ohne Objekte zu erzeugen.
+ * Nach dem Commit von Aenderungen bzw. nach Ablauf des halben maximalen Alters wird im Hintergrund ein
+ * neuer Snapshot aus der DB geladen und atomar ausgetauscht. Ist der Snapshot aelter als das maximale
+ * Alter, z.B. weil die Aktualisierung im Hintergrund fehlgeschlagen ist, wartet der Aufrufer auf das
+ * Laden eines neuen Snapshots, d.h. es werden nie Daten geliefert, die aelter als das maximale Alter sind.
+ * <p>
+ * Die Artikel des Snapshots sind detached und werden von allen Threads gemeinsam genutzt, d.h. sie
+ * duerfen nicht veraendert werden. Fuer Aenderungen muss ein Artikel aus der DB gelesen werden.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class ArtikelKatalog implements ArtikelKatalogMXBean {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String JMX_TYPE = "ArtikelKatalog";
+	private static final int MAX_ALTER_SEKUNDEN_DEFAULT = 300;
+	
+	private static final Comparator<Artikel> NACH_ID = new Comparator<Artikel>() {
+		@Override
+		public int compare(Artikel a1, Artikel a2) {
+			return a1.getId().compareTo(a2.getId());
+		}
+	};
+	
+	private static final Comparator<Artikel> NACH_PREIS = new Comparator<Artikel>() {
+		@Override
+		public int compare(Artikel a1, Artikel a2) {
+			final int result = a1.getPreis().compareTo(a2.getPreis());
+			return result == 0 ? NACH_ID.compare(a1, a2) : result;
+		}
+	};
+	
+	// In src\main\webapp\WEB-INF\web.xml kann der Wert gesetzt bzw. ueberschrieben werden
+	@Resource(name = "artikelKatalogMaxAlter")
+	private Integer maxAlterSekunden;
+	
+	@Resource
+	private ManagedExecutorService executor;
+	
+	@Inject
+	private EntityManager em;
+	
+	@Inject
+	private TransactionHelper transactionHelper;
+	
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+	private long maxAlterNanos;
+	private long aktualisierenAbNanos;
+	
+	// Hoechstens ein Thread laedt synchron, die anderen verwenden anschliessend dessen Snapshot
+	private final Object ladeSperre = new Object();
+	
+	// Eine Aenderung wurde abgespeichert, die evtl. noch nicht im Snapshot enthalten ist
+	private volatile boolean aenderungAusstehend;
+	
+	// Hoechstens eine Aktualisierung gleichzeitig
+	private final AtomicBoolean aktualisierungLaeuft = new AtomicBoolean();
+	
+	private final AtomicLong anzahlAktualisierungen = new AtomicLong();
+	private final AtomicLong letzteAktualisierungNanos = new AtomicLong();
+	private final AtomicLong anzahlFehler = new AtomicLong();
+	
+	/**
+	 * Unveraenderlicher Zustand des Katalogs zu einem Zeitpunkt.
+	 */
+	private static final class Snapshot {
+		private final Map<Long, Artikel> artikelById;
+		private final List<Artikel> alleArtikel;
+		private final List<Artikel> verfuegbareArtikel;
+		private final List<Artikel> verfuegbareArtikelNachPreis;
+		private final PreisIndex preisIndexAlle;
+		private final PreisIndex preisIndexVerfuegbar;
+		// Beginn des Ladens gemaess System.nanoTime(): der Snapshot enthaelt mindestens den Stand der DB
+		// zu diesem Zeitpunkt
+		private final long zeitpunkt;
+		
+		private Snapshot(List<Artikel> artikelList, long zeitpunkt) {
+			final Map<Long, Artikel> byId = new HashMap<>(artikelList.size() * 2);
+			final List<Artikel> alle = new ArrayList<>(artikelList);
+			final List<Artikel> verfuegbare = new ArrayList<>(artikelList.size());
+			Collections.sort(alle, NACH_ID);
+			for (Artikel a : alle) {
+				byId.put(a.getId(), a);
+				if (!a.isAusgesondert()) {
+					verfuegbare.add(a);
+				}
+			}
+			final List<Artikel> nachPreis = new ArrayList<>(verfuegbare);
+			Collections.sort(nachPreis, NACH_PREIS);
+			final List<Artikel> alleNachPreis = new ArrayList<>(alle);
+			Collections.sort(alleNachPreis, NACH_PREIS);
+			
+			this.artikelById = Collections.unmodifiableMap(byId);
+			this.alleArtikel = Collections.unmodifiableList(alle);
+			this.verfuegbareArtikel = Collections.unmodifiableList(verfuegbare);
+			this.verfuegbareArtikelNachPreis = Collections.unmodifiableList(nachPreis);
+			this.preisIndexAlle = new PreisIndex(alleNachPreis, artikelById);
+			this.preisIndexVerfuegbar = new PreisIndex(nachPreis, artikelById);
+			this.zeitpunkt = zeitpunkt;
+		}
+	}
+	
+	@PostConstruct
+	private void postConstruct() {
+		if (maxAlterSekunden == null || maxAlterSekunden <= 0) {
+			maxAlterSekunden = MAX_ALTER_SEKUNDEN_DEFAULT;
+		}
+		maxAlterNanos = SECONDS.toNanos(maxAlterSekunden);
+		aktualisierenAbNanos = maxAlterNanos / 2;
+		
+		laden();
+		
+		JmxHelper.register(JMX_TYPE, this);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		JmxHelper.unregister(JMX_TYPE);
+	}
+	
+	/**
+	 * Suche den Artikel zu gegebener ID im aktuellen Snapshot. Ein gerade angelegter Artikel ist evtl.
+	 * noch nicht im Snapshot enthalten, d.h. bei null muss der Aufrufer in der DB suchen.
+	 * @param id ID des gesuchten Artikels
+	 * @return Der gefundene Artikel, der nicht veraendert werden darf, oder null
+	 */
+	public Artikel findArtikelById(Long id) {
+		return getSnapshot().artikelById.get(id);
+	}
+	
+	/**
+	 * @return Alle Artikel sortiert nach der ID, die nicht veraendert werden duerfen
+	 */
+	public List<Artikel> getAlleArtikel() {
+		return getSnapshot().alleArtikel;
+	}
+	
+	/**
+	 * @return Die nicht ausgesonderten Artikel sortiert nach der ID, die nicht veraendert werden duerfen
+	 */
+	public List<Artikel> getVerfuegbareArtikel() {
+		return getSnapshot().verfuegbareArtikel;
+	}
+	
+	/**
+	 * @return Die nicht ausgesonderten Artikel sortiert nach Preis und ID, die nicht veraendert werden duerfen
+	 */
+	public List<Artikel> getVerfuegbareArtikelNachPreis() {
+		return getSnapshot().verfuegbareArtikelNachPreis;
+	}
+	
+	/**
+	 * Suche die Artikel in einem Preisbereich im aktuellen Snapshot.
+	 * @param min Minimaler Preis einschliesslich oder null
+	 * @param max Maximaler Preis ausschliesslich oder null
+	 * @param mitAusgesonderten true, falls auch ausgesonderte Artikel gefunden werden sollen
+	 * @param erster Position des ersten Artikels im Preisbereich, beginnend bei 0
+	 * @param anzahl Maximale Anzahl der Artikel
+	 * @return Die gefundenen Artikel sortiert nach Preis und ID, die nicht veraendert werden duerfen
+	 */
+	public List<Artikel> findArtikelByPreis(BigDecimal min, BigDecimal max, boolean mitAusgesonderten,
+	                                        int erster, int anzahl) {
+		final Snapshot aktuell = getSnapshot();
+		final PreisIndex preisIndex = mitAusgesonderten ? aktuell.preisIndexAlle : aktuell.preisIndexVerfuegbar;
+		return preisIndex.find(min, max, erster, anzahl);
+	}
+	
+	/**
+	 * Nach dem Commit der aktuellen Transaktion einen neuen Snapshot laden, z.B. nach dem Anlegen
+	 * oder Aendern eines Artikels.
+	 */
+	public void aktualisierenNachCommit() {
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				// Falls gerade eine Aktualisierung laeuft, wird beim naechsten Zugriff erneut aktualisiert
+				aenderungAusstehend = true;
+				aktualisierenImHintergrund();
+			}
+		});
+	}
+	
+	private Snapshot getSnapshot() {
+		final Snapshot aktuell = snapshot.get();
+		final long alter = System.nanoTime() - aktuell.zeitpunkt;
+		if (alter > maxAlterNanos) {
+			return neuLaden(aktuell);
+		}
+		if (aenderungAusstehend || alter > aktualisierenAbNanos) {
+			aktualisierenImHintergrund();
+		}
+		return aktuell;
+	}
+	
+	/**
+	 * Einen zu alten Snapshot synchron ersetzen, falls das nicht bereits ein anderer Thread getan hat.
+	 * @param alt Der zu alte Snapshot
+	 * @return Der neue Snapshot
+	 */
+	private Snapshot neuLaden(Snapshot alt) {
+		synchronized (ladeSperre) {
+			final Snapshot aktuell = snapshot.get();
+			if (aktuell != alt && System.nanoTime() - aktuell.zeitpunkt <= maxAlterNanos) {
+				return aktuell;
+			}
+			LOGGER.warnf("Der Artikelkatalog ist aelter als %d s und wird synchron geladen", maxAlterSekunden);
+			try {
+				laden();
+			}
+			catch (RuntimeException e) {
+				anzahlFehler.incrementAndGet();
+				throw e;
+			}
+			return snapshot.get();
+		}
+	}
+	
+	/**
+	 * Einen Snapshot laden und darauf warten. Das Laden erfolgt ausserhalb einer evtl. laufenden
+	 * Transaktion des Aufrufers, damit die Artikel nicht im Persistenzkontext des Aufrufers verwaltet werden.
+	 */
+	private void laden() {
+		try {
+			executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					aktualisieren();
+					return null;
+				}
+			}).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	private void aktualisierenImHintergrund() {
+		if (!aktualisierungLaeuft.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						aktualisieren();
+					}
+					catch (RuntimeException e) {
+						anzahlFehler.incrementAndGet();
+						LOGGER.errorf(e, "Der Artikelkatalog konnte nicht aktualisiert werden");
+					}
+					finally {
+						aktualisierungLaeuft.set(false);
+					}
+				}
+			});
+		}
+		catch (RuntimeException e) {
+			// z.B. RejectedExecutionException
+			aktualisierungLaeuft.set(false);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Alle Artikel aus der DB lesen und den Snapshot austauschen. Ohne Transaktion sind die gelesenen
+	 * Artikel anschliessend detached. Eine Aktualisierung im Hintergrund und ein synchrones Laden koennen
+	 * gleichzeitig laufen; der neue Snapshot erhaelt deshalb den Beginn des Ladens als Zeitpunkt.
+	 */
+	private void aktualisieren() {
+		final long start = System.nanoTime();
+		aenderungAusstehend = false;
+		final List<Artikel> artikel = em.createNamedQuery(Artikel.FIND_ARTIKEL, Artikel.class)
+				                        .getResultList();
+		if (!austauschen(new Snapshot(artikel, start))) {
+			LOGGER.debugf("Ein spaeter begonnenes Laden hat den Artikelkatalog bereits aktualisiert");
+		}
+		
+		final long dauer = System.nanoTime() - start;
+		letzteAktualisierungNanos.set(dauer);
+		anzahlAktualisierungen.incrementAndGet();
+		LOGGER.debugf("Artikelkatalog mit %d Artikeln in %d ms geladen", artikel.size(),
+				      NANOSECONDS.toMillis(dauer));
+	}
+	
+	/**
+	 * Den Snapshot nur dann austauschen, wenn das Laden des neuen Snapshots spaeter begonnen hat als das des
+	 * aktuellen. Sonst wuerde ein langsames Laden mit aelteren Daten einen neueren Snapshot ueberschreiben.
+	 * @param neu Der neu geladene Snapshot
+	 * @return true, falls der Snapshot ausgetauscht wurde
+	 */
+	private boolean austauschen(Snapshot neu) {
+		for (;;) {
+			final Snapshot aktuell = snapshot.get();
+			if (aktuell != null && neu.zeitpunkt - aktuell.zeitpunkt <= 0) {
+				return false;
+			}
+			if (snapshot.compareAndSet(aktuell, neu)) {
+				return true;
+			}
+		}
+	}
+	
+	@Override
+	public int getAnzahlArtikel() {
+		final Snapshot aktuell = snapshot.get();
+		return aktuell == null ? 0 : aktuell.alleArtikel.size();
+	}
+	
+	@Override
+	public long getAlterMillis() {
+		final Snapshot aktuell = snapshot.get();
+		return aktuell == null ? 0 : NANOSECONDS.toMillis(System.nanoTime() - aktuell.zeitpunkt);
+	}
+	
+	@Override
+	public long getAnzahlAktualisierungen() {
+		return anzahlAktualisierungen.get();
+	}
+	
+	@Override
+	public long getLetzteAktualisierungMillis() {
+		return NANOSECONDS.toMillis(letzteAktualisierungNanos.get());
+	}
+	
+	@Override
+	public long getAnzahlFehler() {
+		return anzahlFehler.get();
+	}
+}
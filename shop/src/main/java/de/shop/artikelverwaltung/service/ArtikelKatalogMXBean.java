@@ -0,0 +1,32 @@
+package de.shop.artikelverwaltung.service;
+
+/**
+ * Kennzahlen des Artikelkatalogs, die per JMX unter de.shop:type=ArtikelKatalog abgefragt werden koennen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public interface ArtikelKatalogMXBean {
+	/**
+	 * @return Anzahl der Artikel im aktuellen Snapshot
+	 */
+	int getAnzahlArtikel();
+	
+	/**
+	 * @return Alter des aktuellen Snapshots in Millisekunden
+	 */
+	long getAlterMillis();
+	
+	/**
+	 * @return Anzahl der bisherigen Aktualisierungen
+	 */
+	long getAnzahlAktualisierungen();
+	
+	/**
+	 * @return Dauer der letzten Aktualisierung in Millisekunden
+	 */
+	long getLetzteAktualisierungMillis();
+	
+	/**
+	 * @return Anzahl der fehlgeschlagenen Aktualisierungen
+	 */
+	long getAnzahlFehler();
+}
@@ -1,21 +1,26 @@
 package de.shop.artikelverwaltung.service;
 
+import static de.shop.util.persistence.QueryHelper.getErstesElement;
+
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Path;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
 
 import org.jboss.logging.Logger;
 
@@ -34,9 +39,19 @@ public class ArtikelService implements Serializable {
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles
 			.lookup().lookupClass());
 
+	// Zweierpotenz unterhalb der Obergrenze von Oracle (1000 Ausdruecke in
+	// einer IN-Liste)
+	private static final int MAX_IN_PARAMETER = 512;
+
 	@Inject
 	private transient EntityManager em;
 
+	@Inject
+	private ArtikelKatalog katalog;
+
+	@Inject
+	private BezeichnungIndex bezeichnungIndex;
+
 	@PostConstruct
 	private void postConstruct() {
 		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
@@ -48,23 +63,81 @@ public class ArtikelService implements Serializable {
 	}
 
 	/**
-	 * Suche nach verfuegbaren Artikeln.
+	 * Suche nach verfuegbaren Artikeln im Artikelkatalog.
 	 * 
-	 * @return Liste der verfuegbaren Artikel.
+	 * @return Unveraenderliche Liste der verfuegbaren Artikel, sortiert nach
+	 *         der ID.
 	 */
 	public List<Artikel> findVerfuegbareArtikel() {
-		return em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL,
-				Artikel.class).getResultList();
+		return katalog.getVerfuegbareArtikel();
 	}
 
 	/**
-	 * Suche den Artikel zu gegebener ID.
+	 * Suche den Artikel zu gegebener ID im Artikelkatalog und, falls er
+	 * dort noch nicht enthalten ist, in der DB. Der gefundene Artikel darf
+	 * nicht veraendert werden.
 	 * 
 	 * @param id
 	 *            ID des gesuchten Artikels.
 	 * @return Der gefundene Artikel, null sonst.
 	 */
 	public Artikel findArtikelById(Long id) {
+		final Artikel artikel = katalog.findArtikelById(id);
+		if (artikel != null) {
+			return artikel;
+		}
+
+		// Neue Artikel sind evtl. noch nicht im Artikelkatalog
+		return em.find(Artikel.class, id);
+	}
+
+	/**
+	 * Suche den Artikel zu gegebener ID in der Version mit dem gegebenen
+	 * Zeitstempel: aus dem Artikelkatalog, falls er dort in dieser Version
+	 * enthalten ist, und sonst aus der DB. Der gefundene Artikel darf nicht
+	 * veraendert werden.
+	 * 
+	 * @param id
+	 *            ID des gesuchten Artikels.
+	 * @param aktualisiert
+	 *            Zeitstempel der letzten Aenderung laut DB.
+	 * @return Der gefundene Artikel, null sonst.
+	 */
+	public Artikel findArtikelById(Long id, Date aktualisiert) {
+		final Artikel artikel = katalog.findArtikelById(id);
+		if (artikel != null && artikel.getAktualisiert() != null
+				&& artikel.getAktualisiert().getTime() == aktualisiert.getTime()) {
+			return artikel;
+		}
+
+		// Neuer Artikel oder veralteter Eintrag im Artikelkatalog
+		return em.find(Artikel.class, id);
+	}
+
+	/**
+	 * Nur den Zeitstempel der letzten Aenderung eines Artikels in der DB
+	 * ermitteln, ohne den Artikel zu laden.
+	 * 
+	 * @param id
+	 *            ID des Artikels.
+	 * @return Der Zeitstempel oder null, falls es keinen Artikel mit der ID
+	 *         gibt.
+	 */
+	public Date findAktualisiertById(Long id) {
+		return getErstesElement(em
+				.createNamedQuery(Artikel.FIND_AKTUALISIERT_BY_ID, Date.class)
+				.setParameter(Artikel.PARAM_ID, id).getResultList());
+	}
+
+	/**
+	 * Suche den Artikel zu gegebener ID in der DB, um ihn anschliessend zu
+	 * aendern.
+	 * 
+	 * @param id
+	 *            ID des gesuchten Artikels.
+	 * @return Der gefundene Artikel, null sonst.
+	 */
+	public Artikel findArtikelByIdZurAenderung(Long id) {
 		return em.find(Artikel.class, id);
 	}
 
@@ -80,55 +153,121 @@ public class ArtikelService implements Serializable {
 			return Collections.emptyList();
 		}
 
-		/*
-		 * SELECT a FROM Artikel a WHERE a.id = ? OR a.id = ? OR ...
-		 */
-		final CriteriaBuilder builder = em.getCriteriaBuilder();
-		final CriteriaQuery<Artikel> criteriaQuery = builder
-				.createQuery(Artikel.class);
-		final Root<Artikel> a = criteriaQuery.from(Artikel.class);
-
-		final Path<Long> idPath = a.get("id");
-		// final Path<String> idPath = a.get(Artikel_.id); // Metamodel-Klassen
-		// funktionieren nicht mit Eclipse
-
-		Predicate pred = null;
-		if (ids.size() == 1) {
-			// Genau 1 id: kein OR notwendig
-			pred = builder.equal(idPath, ids.get(0));
-		}
-		else {
-			// Mind. 2x id, durch OR verknuepft
-			final Predicate[] equals = new Predicate[ids.size()];
-			int i = 0;
-			for (Long id : ids) {
-				equals[i++] = builder.equal(idPath, id);
-			}
+		return new ArrayList<>(findArtikelMapByIds(ids).values());
+	}
 
-			pred = builder.or(equals);
+	/**
+	 * Suche die Artikel zu gegebenen IDs mit einer Query "WHERE a.id IN (...)".
+	 * Die Anzahl der Parameter wird auf eine Zweierpotenz aufgefuellt, damit
+	 * nur wenige verschiedene SQL-Anweisungen entstehen, die im Cache fuer
+	 * Prepared Statements wiederverwendet werden koennen. Sehr viele IDs
+	 * werden in mehrere Queries aufgeteilt.
+	 * 
+	 * @param ids
+	 *            IDs der gesuchten Artikel, auch mehrfach
+	 * @return Map mit den gefundenen Artikeln zu ihrer ID
+	 */
+	public Map<Long, Artikel> findArtikelMapByIds(Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return Collections.emptyMap();
 		}
 
-		criteriaQuery.where(pred);
+		// Doppelte IDs und null entfernen
+		final List<Long> eindeutigeIds = new ArrayList<>(new LinkedHashSet<>(
+				ids));
+		eindeutigeIds.remove(null);
+
+		final Map<Long, Artikel> result = new HashMap<>(
+				eindeutigeIds.size() * 2);
+		for (int von = 0; von < eindeutigeIds.size(); von += MAX_IN_PARAMETER) {
+			final int bis = Math.min(von + MAX_IN_PARAMETER,
+					eindeutigeIds.size());
+			final List<Long> teil = eindeutigeIds.subList(von, bis);
+
+			// Auffuellen bis zur naechsten Zweierpotenz durch Wiederholen der
+			// letzten ID, z.B. 5 IDs -> 8 Parameter
+			final int anzahl = Integer.highestOneBit(teil.size()) == teil
+					.size() ? teil.size()
+					: Integer.highestOneBit(teil.size()) << 1;
+			final List<Long> parameter = new ArrayList<>(anzahl);
+			parameter.addAll(teil);
+			final Long letzteId = teil.get(teil.size() - 1);
+			while (parameter.size() < anzahl) {
+				parameter.add(letzteId);
+			}
+
+			final List<Artikel> artikel = em
+					.createNamedQuery(Artikel.FIND_ARTIKEL_BY_IDS,
+							Artikel.class)
+					.setParameter(Artikel.PARAM_IDS, parameter)
+					.getResultList();
+			for (Artikel a : artikel) {
+				result.put(a.getId(), a);
+			}
+		}
 
-		return em.createQuery(criteriaQuery).getResultList();
+		return result;
 	}
 
 	/**
-	 * Suche die Artikel mit gleicher Bezeichnung
+	 * Suche die verfuegbaren Artikel, deren Bezeichnung den gegebenen
+	 * Teilstring enthaelt, im Trigramm-Index.
 	 * 
 	 * @param bezeichnung
-	 *            Gemeinsame Bezeichnung der gesuchten Artikel
-	 * @return Liste der gefundenen Artikel
+	 *            Gemeinsamer Teil der Bezeichnung der gesuchten Artikel
+	 * @return Liste der gefundenen Artikel, sortiert nach der ID
 	 */
 	public List<Artikel> findArtikelByBezeichnung(String bezeichnung) {
 		if (Strings.isNullOrEmpty(bezeichnung)) {
 			return findVerfuegbareArtikel();
 		}
 
-		return em
-				.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZ, Artikel.class)
-				.setParameter(Artikel.PARAM_BEZEICHNUNG,
-						"%" + bezeichnung + "%").getResultList();
+		return findVerfuegbareArtikelByIds(bezeichnungIndex
+				.findIdsByTeilstring(bezeichnung));
+	}
+
+	/**
+	 * Suche die verfuegbaren Artikel mit einer aehnlichen Bezeichnung im
+	 * Trigramm-Index, z.B. bei Tippfehlern im Suchbegriff.
+	 * 
+	 * @param bezeichnung
+	 *            Suchbegriff
+	 * @param anzahl
+	 *            Maximale Anzahl der Artikel
+	 * @return Liste der gefundenen Artikel, die aehnlichsten zuerst
+	 */
+	public List<Artikel> findArtikelByBezeichnungUnscharf(String bezeichnung,
+			int anzahl) {
+		if (Strings.isNullOrEmpty(bezeichnung)) {
+			return findVerfuegbareArtikel();
+		}
+
+		return findVerfuegbareArtikelByIds(bezeichnungIndex.findIdsUnscharf(
+				bezeichnung, anzahl));
+	}
+
+	private List<Artikel> findVerfuegbareArtikelByIds(List<Long> ids) {
+		// Neue Artikel sind evtl. noch nicht im Artikelkatalog
+		final Map<Long, Artikel> artikelMap = new HashMap<>(ids.size() * 2);
+		final List<Long> fehlendeIds = new ArrayList<>();
+		for (Long id : ids) {
+			final Artikel artikel = katalog.findArtikelById(id);
+			if (artikel == null) {
+				fehlendeIds.add(id);
+			} else {
+				artikelMap.put(id, artikel);
+			}
+		}
+		artikelMap.putAll(findArtikelMapByIds(fehlendeIds));
+
+		final List<Artikel> result = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			final Artikel artikel = artikelMap.get(id);
+			if (artikel != null && !artikel.isAusgesondert()) {
+				result.add(artikel);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -140,9 +279,95 @@ public class ArtikelService implements Serializable {
 	 *         Obergrenze
 	 */
 	public List<Artikel> findArtikelByMaxPreis(BigDecimal preis) {
-		return em
-				.createNamedQuery(Artikel.FIND_ARTIKEL_MAX_PREIS, Artikel.class)
-				.setParameter(Artikel.PARAM_PREIS, preis).getResultList();
+		final List<Artikel> result = new ArrayList<>(katalog.findArtikelByPreis(
+				null, preis, true, 0, Integer.MAX_VALUE));
+		Collections.sort(result, new Comparator<Artikel>() {
+			@Override
+			public int compare(Artikel a1, Artikel a2) {
+				return a1.getId().compareTo(a2.getId());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Suche Artikel in einem Preisbereich im Artikelkatalog, seitenweise
+	 * sortiert nach Preis und ID.
+	 * 
+	 * @param min
+	 *            Minimaler Preis einschliesslich oder null
+	 * @param max
+	 *            Maximaler Preis ausschliesslich oder null
+	 * @param mitAusgesonderten
+	 *            true, falls auch ausgesonderte Artikel gefunden werden
+	 *            sollen
+	 * @param erster
+	 *            Position des ersten Artikels im Preisbereich, beginnend bei
+	 *            0
+	 * @param anzahl
+	 *            Maximale Anzahl der Artikel
+	 * @return Liste der gefundenen Artikel
+	 */
+	public List<Artikel> findArtikelByPreis(BigDecimal min, BigDecimal max,
+			boolean mitAusgesonderten, int erster, int anzahl) {
+		return katalog.findArtikelByPreis(min, max, mitAusgesonderten, erster,
+				anzahl);
+	}
+
+	/**
+	 * Suche die verfuegbaren Artikel in einem Preisbereich, deren
+	 * Bezeichnung den gegebenen Teilstring enthaelt bzw. bei einer unscharfen
+	 * Suche aehnlich ist. Die Treffer im Trigramm-Index werden mit dem
+	 * Preisbereich im Artikelkatalog geschnitten; beides liegt im
+	 * Hauptspeicher.
+	 * 
+	 * @param bezeichnung
+	 *            Suchbegriff
+	 * @param unscharf
+	 *            true, falls auch aehnliche Bezeichnungen gefunden werden
+	 *            sollen
+	 * @param min
+	 *            Minimaler Preis einschliesslich oder null
+	 * @param max
+	 *            Maximaler Preis ausschliesslich oder null
+	 * @param erster
+	 *            Position des ersten Artikels in der Schnittmenge, beginnend
+	 *            bei 0
+	 * @param anzahl
+	 *            Maximale Anzahl der Artikel
+	 * @return Liste der gefundenen Artikel, sortiert nach Preis und ID
+	 */
+	public List<Artikel> findArtikelByBezeichnungUndPreis(String bezeichnung,
+			boolean unscharf, BigDecimal min, BigDecimal max, int erster,
+			int anzahl) {
+		if (Strings.isNullOrEmpty(bezeichnung)) {
+			return findArtikelByPreis(min, max, false, erster, anzahl);
+		}
+
+		final Set<Long> ids = new HashSet<>(unscharf ? bezeichnungIndex
+				.findIdsUnscharf(bezeichnung, Integer.MAX_VALUE)
+				: bezeichnungIndex.findIdsByTeilstring(bezeichnung));
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final List<Artikel> result = new ArrayList<>(Math.min(anzahl,
+				ids.size()));
+		int position = 0;
+		for (Artikel artikel : katalog.findArtikelByPreis(min, max, false, 0,
+				Integer.MAX_VALUE)) {
+			if (!ids.contains(artikel.getId())) {
+				continue;
+			}
+			if (position++ < erster) {
+				continue;
+			}
+			result.add(artikel);
+			if (result.size() >= anzahl) {
+				break;
+			}
+		}
+		return result;
 	}
 
 	// TODO Create Artikel
@@ -152,17 +377,19 @@ public class ArtikelService implements Serializable {
 			return artikel;
 		}
 
-		try {
-			em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZ, Artikel.class)
-					.setParameter(Artikel.PARAM_BEZEICHNUNG,
-							artikel.getBezeichnung()).getSingleResult();
+		final List<Artikel> vorhanden = em
+				.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZ, Artikel.class)
+				.setParameter(Artikel.PARAM_BEZEICHNUNG,
+						artikel.getBezeichnung()).setMaxResults(1)
+				.getResultList();
+		if (!vorhanden.isEmpty()) {
 			throw new BezeichnungExistsException(artikel.getBezeichnung());
-		} catch (NoResultException e) {
-			// Kein Artikel mit der Bezeichnung
-			LOGGER.trace("Kein Artikel mit der Bezeichnung vorhanden");
 		}
+		LOGGER.trace("Kein Artikel mit der Bezeichnung vorhanden");
 
 		em.persist(artikel);
+		katalog.aktualisierenNachCommit();
+		bezeichnungIndex.aktualisierenNachCommit(artikel);
 		return artikel;
 	}
 
@@ -170,9 +397,10 @@ public class ArtikelService implements Serializable {
 
 	public Artikel findArtikel(String bezeichnung) {
 
-		return em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZ, Artikel.class)
+		return getErstesElement(em
+				.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZ, Artikel.class)
 				.setParameter(Artikel.PARAM_BEZEICHNUNG, bezeichnung)
-				.getSingleResult();
+				.getResultList());
 
 	}
 
@@ -183,8 +411,12 @@ public class ArtikelService implements Serializable {
 
 		em.detach(artikel);
 
-		final List<Artikel> tmp = findArtikelByBezeichnung(artikel
-				.getBezeichnung());
+		// Pruefung in der DB und nicht im Index, der erst nach dem Commit
+		// aktualisiert wird
+		final List<Artikel> tmp = em
+				.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZ, Artikel.class)
+				.setParameter(Artikel.PARAM_BEZEICHNUNG,
+						"%" + artikel.getBezeichnung() + "%").getResultList();
 
 		for (Artikel a : tmp) {
 			em.detach(a);
@@ -195,6 +427,8 @@ public class ArtikelService implements Serializable {
 		}
 
 		artikel = em.merge(artikel);
+		katalog.aktualisierenNachCommit();
+		bezeichnungIndex.aktualisierenNachCommit(artikel);
 		return artikel;
 	}
 
@@ -0,0 +1,345 @@
+package de.shop.artikelverwaltung.service;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.util.cdi.Eager;
+import de.shop.util.persistence.TransactionHelper;
+
+/**
+ * Invertierter Index der Trigramme in den Artikelbezeichnungen fuer die Suche nach Teilstrings und
+ * fuer eine unscharfe Suche mit Ranking. Gross- und Kleinschreibung wird nicht unterschieden.
+ * <p>
+ * Je Trigramm werden die IDs der Artikel aufsteigend sortiert als Differenzen mit variabler Laenge
+ * (7 Bit je Byte) abgespeichert. Eine Posting-Liste wird bei einer Aenderung neu kodiert und atomar
+ * ausgetauscht, so dass lesende Zugriffe ohne Sperren erfolgen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class BezeichnungIndex {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final int N = 3;
+	// Mindestanteil gemeinsamer Trigramme (Jaccard-Koeffizient) bei der unscharfen Suche
+	private static final double MIN_AEHNLICHKEIT = 0.3;
+	private static final long[] KEINE_IDS = new long[0];
+
+	@Inject
+	private ArtikelKatalog katalog;
+
+	@Inject
+	private TransactionHelper transactionHelper;
+
+	// Trigramm -> kodierte Posting-Liste
+	private final ConcurrentHashMap<String, byte[]> postings = new ConcurrentHashMap<>();
+	// Artikel-ID -> indizierte Bezeichnung in Kleinbuchstaben
+	private final ConcurrentHashMap<Long, String> bezeichnungen = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	private void postConstruct() {
+		final Map<String, List<Long>> trigrammIds = new HashMap<>();
+		for (Artikel artikel : katalog.getAlleArtikel()) {
+			final String bezeichnung = normalisieren(artikel.getBezeichnung());
+			bezeichnungen.put(artikel.getId(), bezeichnung);
+			for (String trigramm : trigramme(bezeichnung)) {
+				List<Long> ids = trigrammIds.get(trigramm);
+				if (ids == null) {
+					ids = new ArrayList<>();
+					trigrammIds.put(trigramm, ids);
+				}
+				// Die Artikel sind nach der ID sortiert
+				ids.add(artikel.getId());
+			}
+		}
+
+		for (Entry<String, List<Long>> entry : trigrammIds.entrySet()) {
+			final List<Long> ids = entry.getValue();
+			final long[] idArray = new long[ids.size()];
+			for (int i = 0; i < idArray.length; i++) {
+				idArray[i] = ids.get(i);
+			}
+			postings.put(entry.getKey(), encode(idArray));
+		}
+
+		LOGGER.infof("Trigramm-Index fuer %d Artikelbezeichnungen mit %d Trigrammen aufgebaut",
+				     bezeichnungen.size(), postings.size());
+	}
+
+	/**
+	 * Die IDs der Artikel suchen, deren Bezeichnung den gegebenen Teilstring enthaelt.
+	 * @param teilstring Der gesuchte Teilstring
+	 * @return Die IDs der passenden Artikel, aufsteigend sortiert
+	 */
+	public List<Long> findIdsByTeilstring(String teilstring) {
+		final String suchstring = normalisieren(teilstring);
+		final Set<String> trigramme = trigramme(suchstring);
+
+		final List<Long> result = new ArrayList<>();
+		if (trigramme.isEmpty()) {
+			// Kuerzer als ein Trigramm: alle Bezeichnungen im Hauptspeicher durchsuchen
+			for (Entry<Long, String> entry : bezeichnungen.entrySet()) {
+				if (entry.getValue().contains(suchstring)) {
+					result.add(entry.getKey());
+				}
+			}
+			Collections.sort(result);
+			return result;
+		}
+
+		// Schnittmenge der Posting-Listen, beginnend mit der kuerzesten
+		final List<long[]> listen = new ArrayList<>(trigramme.size());
+		for (String trigramm : trigramme) {
+			final byte[] posting = postings.get(trigramm);
+			if (posting == null) {
+				return result;
+			}
+			listen.add(decode(posting));
+		}
+		Collections.sort(listen, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] l1, long[] l2) {
+				return Integer.compare(l1.length, l2.length);
+			}
+		});
+		long[] kandidaten = listen.get(0);
+		for (int i = 1; i < listen.size() && kandidaten.length > 0; i++) {
+			kandidaten = schnittmenge(kandidaten, listen.get(i));
+		}
+
+		// Gemeinsame Trigramme garantieren keinen zusammenhaengenden Teilstring
+		for (long id : kandidaten) {
+			final String bezeichnung = bezeichnungen.get(id);
+			if (bezeichnung != null && bezeichnung.contains(suchstring)) {
+				result.add(id);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Die IDs der Artikel mit einer aehnlichen Bezeichnung suchen, z.B. bei Tippfehlern. Die Aehnlichkeit
+	 * ist der Anteil gemeinsamer Trigramme an allen Trigrammen beider Bezeichnungen.
+	 * @param suchbegriff Der Suchbegriff
+	 * @param anzahl Maximale Anzahl der IDs
+	 * @return Die IDs der passenden Artikel, absteigend nach Aehnlichkeit sortiert
+	 */
+	public List<Long> findIdsUnscharf(String suchbegriff, int anzahl) {
+		final Set<String> trigramme = trigramme(normalisieren(suchbegriff));
+		if (trigramme.isEmpty()) {
+			return findIdsByTeilstring(suchbegriff);
+		}
+
+		// Anzahl gemeinsamer Trigramme je Artikel
+		final Map<Long, int[]> treffer = new HashMap<>();
+		for (String trigramm : trigramme) {
+			final byte[] posting = postings.get(trigramm);
+			if (posting == null) {
+				continue;
+			}
+			for (long id : decode(posting)) {
+				final int[] zaehler = treffer.get(id);
+				if (zaehler == null) {
+					treffer.put(id, new int[] {1 });
+				}
+				else {
+					zaehler[0]++;
+				}
+			}
+		}
+
+		final Map<Long, Double> aehnlichkeiten = new HashMap<>(treffer.size() * 2);
+		for (Entry<Long, int[]> entry : treffer.entrySet()) {
+			final String bezeichnung = bezeichnungen.get(entry.getKey());
+			if (bezeichnung == null) {
+				continue;
+			}
+			final int gemeinsam = entry.getValue()[0];
+			final int gesamt = trigramme.size() + trigramme(bezeichnung).size() - gemeinsam;
+			final double aehnlichkeit = (double) gemeinsam / gesamt;
+			if (aehnlichkeit >= MIN_AEHNLICHKEIT) {
+				aehnlichkeiten.put(entry.getKey(), aehnlichkeit);
+			}
+		}
+
+		final List<Long> result = new ArrayList<>(aehnlichkeiten.keySet());
+		Collections.sort(result, new Comparator<Long>() {
+			@Override
+			public int compare(Long id1, Long id2) {
+				final int cmp = Double.compare(aehnlichkeiten.get(id2), aehnlichkeiten.get(id1));
+				return cmp == 0 ? id1.compareTo(id2) : cmp;
+			}
+		});
+		return result.size() > anzahl ? result.subList(0, anzahl) : result;
+	}
+
+	/**
+	 * Die Bezeichnung eines neuen oder geaenderten Artikels nach dem Commit der aktuellen Transaktion
+	 * indizieren.
+	 * @param artikel Der neue oder geaenderte Artikel
+	 */
+	public void aktualisierenNachCommit(Artikel artikel) {
+		final Long id = artikel.getId();
+		final String bezeichnung = normalisieren(artikel.getBezeichnung());
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				aktualisieren(id, bezeichnung);
+			}
+		});
+	}
+
+	private synchronized void aktualisieren(Long id, String bezeichnung) {
+		final String alt = bezeichnungen.put(id, bezeichnung);
+		final Set<String> alteTrigramme = alt == null ? Collections.<String>emptySet() : trigramme(alt);
+		final Set<String> neueTrigramme = trigramme(bezeichnung);
+
+		for (String trigramm : alteTrigramme) {
+			if (!neueTrigramme.contains(trigramm)) {
+				final byte[] posting = postings.get(trigramm);
+				if (posting != null) {
+					final long[] ids = entfernen(decode(posting), id);
+					if (ids.length == 0) {
+						postings.remove(trigramm);
+					}
+					else {
+						postings.put(trigramm, encode(ids));
+					}
+				}
+			}
+		}
+		for (String trigramm : neueTrigramme) {
+			if (!alteTrigramme.contains(trigramm)) {
+				final byte[] posting = postings.get(trigramm);
+				final long[] ids = posting == null ? KEINE_IDS : decode(posting);
+				postings.put(trigramm, encode(einfuegen(ids, id)));
+			}
+		}
+	}
+
+	private static String normalisieren(String bezeichnung) {
+		return bezeichnung == null ? "" : bezeichnung.toLowerCase(Locale.GERMAN);
+	}
+
+	private static Set<String> trigramme(String str) {
+		if (str.length() < N) {
+			return Collections.emptySet();
+		}
+		final Set<String> result = new LinkedHashSet<>();
+		for (int i = 0; i + N <= str.length(); i++) {
+			result.add(str.substring(i, i + N));
+		}
+		return result;
+	}
+
+	private static long[] schnittmenge(long[] a, long[] b) {
+		final long[] result = new long[Math.min(a.length, b.length)];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			}
+			else if (a[i] > b[j]) {
+				j++;
+			}
+			else {
+				result[k++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, k);
+	}
+
+	private static long[] einfuegen(long[] ids, long id) {
+		final int pos = Arrays.binarySearch(ids, id);
+		if (pos >= 0) {
+			return ids;
+		}
+		final int einfuegePos = -pos - 1;
+		final long[] result = new long[ids.length + 1];
+		System.arraycopy(ids, 0, result, 0, einfuegePos);
+		result[einfuegePos] = id;
+		System.arraycopy(ids, einfuegePos, result, einfuegePos + 1, ids.length - einfuegePos);
+		return result;
+	}
+
+	private static long[] entfernen(long[] ids, long id) {
+		final int pos = Arrays.binarySearch(ids, id);
+		if (pos < 0) {
+			return ids;
+		}
+		final long[] result = new long[ids.length - 1];
+		System.arraycopy(ids, 0, result, 0, pos);
+		System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+		return result;
+	}
+
+	/**
+	 * Aufsteigend sortierte IDs als Differenzen zur Vorgaenger-ID mit variabler Laenge kodieren:
+	 * je Byte 7 Bit der Zahl, das hoechste Bit kennzeichnet ein Folgebyte. Am Anfang steht die Anzahl.
+	 */
+	private static byte[] encode(long[] ids) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(ids.length * 2 + 1);
+		writeVarLong(out, ids.length);
+		long vorgaenger = 0;
+		for (long id : ids) {
+			writeVarLong(out, id - vorgaenger);
+			vorgaenger = id;
+		}
+		return out.toByteArray();
+	}
+
+	private static long[] decode(byte[] posting) {
+		final int[] pos = {0 };
+		final long[] ids = new long[(int) readVarLong(posting, pos)];
+		long vorgaenger = 0;
+		for (int i = 0; i < ids.length; i++) {
+			vorgaenger += readVarLong(posting, pos);
+			ids[i] = vorgaenger;
+		}
+		return ids;
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long wert) {
+		long rest = wert;
+		while ((rest & ~0x7FL) != 0) {
+			out.write((int) ((rest & 0x7F) | 0x80));
+			rest >>>= 7;
+		}
+		out.write((int) rest);
+	}
+
+	private static long readVarLong(byte[] posting, int[] pos) {
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = posting[pos[0]++];
+			result |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return result;
+	}
+}
@@ -0,0 +1,90 @@
+package de.shop.artikelverwaltung.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+
+/**
+ * Unveraenderlicher Index der Artikel nach dem Preis fuer Suchen in einem Preisbereich. Die Preise werden
+ * als Cent-Betraege in einem long-Array sortiert abgespeichert, so dass ein Bereich mit binaerer Suche
+ * in O(log n) gefunden wird und eine Seite mit k Artikeln in O(k) gelesen wird.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+final class PreisIndex {
+	private static final int NACHKOMMASTELLEN = 2;
+
+	// Gleiche Position: Preis in Cent und ID, sortiert nach Preis und ID
+	private final long[] cents;
+	private final long[] ids;
+	private final Map<Long, Artikel> artikelById;
+
+	/**
+	 * @param artikelNachPreis Artikel sortiert nach Preis und ID
+	 * @param artikelById Alle Artikel zu ihrer ID
+	 */
+	PreisIndex(List<Artikel> artikelNachPreis, Map<Long, Artikel> artikelById) {
+		final int anzahl = artikelNachPreis.size();
+		cents = new long[anzahl];
+		ids = new long[anzahl];
+		for (int i = 0; i < anzahl; i++) {
+			final Artikel artikel = artikelNachPreis.get(i);
+			cents[i] = toCents(artikel.getPreis(), RoundingMode.HALF_UP);
+			ids[i] = artikel.getId();
+		}
+		this.artikelById = artikelById;
+	}
+
+	/**
+	 * Die Artikel in einem Preisbereich suchen.
+	 * @param min Minimaler Preis einschliesslich oder null
+	 * @param max Maximaler Preis ausschliesslich oder null
+	 * @param erster Position des ersten Artikels im Preisbereich, beginnend bei 0
+	 * @param anzahl Maximale Anzahl der Artikel
+	 * @return Die gefundenen Artikel sortiert nach Preis und ID
+	 */
+	List<Artikel> find(BigDecimal min, BigDecimal max, int erster, int anzahl) {
+		// Aus preis >= min bzw. preis < max wird cents >= aufgerundet(min) bzw. cents < aufgerundet(max)
+		final int von = min == null ? 0 : untereGrenze(toCents(min, RoundingMode.CEILING));
+		final int bis = max == null ? cents.length : untereGrenze(toCents(max, RoundingMode.CEILING));
+		
+		final int start = (int) Math.min((long) von + erster, bis);
+		final int ende = (int) Math.min((long) start + anzahl, bis);
+		if (start >= ende) {
+			return Collections.emptyList();
+		}
+		
+		final List<Artikel> result = new ArrayList<>(ende - start);
+		for (int i = start; i < ende; i++) {
+			result.add(artikelById.get(ids[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return Position des ersten Preises, der nicht kleiner als der gegebene Preis ist
+	 */
+	private int untereGrenze(long preisCents) {
+		// Arrays.binarySearch liefert bei gleichen Preisen eine beliebige Position
+		int links = 0;
+		int rechts = cents.length;
+		while (links < rechts) {
+			final int mitte = (links + rechts) >>> 1;
+			if (cents[mitte] < preisCents) {
+				links = mitte + 1;
+			}
+			else {
+				rechts = mitte;
+			}
+		}
+		return links;
+	}
+
+	private static long toCents(BigDecimal preis, RoundingMode rundung) {
+		return preis.setScale(NACHKOMMASTELLEN, rundung).unscaledValue().longValue();
+	}
+}
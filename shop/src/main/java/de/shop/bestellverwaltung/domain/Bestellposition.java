@@ -34,17 +34,17 @@ import de.shop.artikelverwaltung.domain.Artikel;
 	@Index(columnList = "artikel_fk")
 })
 @NamedQueries({
-    @NamedQuery(name  = Bestellposition.FIND_LADENHUETER,
-   	            query = "SELECT a"
-   	            	    + " FROM   Artikel a"
-   	            	    + " WHERE  a NOT IN (SELECT bp.artikel FROM Bestellposition bp)")
+    @NamedQuery(name  = Bestellposition.FIND_LETZTE_BESTELLUNG_BY_ARTIKEL,
+   	            query = "SELECT   bp.artikel.id, MAX(b.erzeugt)"
+   	            	    + " FROM     Bestellung b JOIN b.bestellpositionen bp"
+   	            	    + " GROUP BY bp.artikel.id")
 })
 public class Bestellposition implements Serializable {
 	private static final long serialVersionUID = 2222771733641950913L;
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
 	private static final String PREFIX = "Bestellposition.";
-	public static final String FIND_LADENHUETER = PREFIX + "findLadenhueter";
+	public static final String FIND_LETZTE_BESTELLUNG_BY_ARTIKEL = PREFIX + "findLetzteBestellungByArtikel";
 	private static final int ANZAHL_MIN = 1;
 	
 	@Id
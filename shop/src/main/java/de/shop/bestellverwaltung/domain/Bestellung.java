@@ -51,7 +51,7 @@ import de.shop.kundenverwaltung.domain.AbstractKunde;
  * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
  */
 @Entity
-@Table(indexes = { @Index(columnList = "kunde_fk"), @Index(columnList = "erzeugt") })
+@Table(indexes = { @Index(columnList = "kunde_fk,idx", unique = true), @Index(columnList = "erzeugt") })
 @NamedQueries({
 	@NamedQuery(name  = Bestellung.FIND_BESTELLUNGEN_BY_KUNDE,
                 query = "SELECT b"
@@ -64,7 +64,15 @@ import de.shop.kundenverwaltung.domain.AbstractKunde;
 	@NamedQuery(name  = Bestellung.FIND_KUNDE_BY_ID,
  			    query = "SELECT b.kunde"
                         + " FROM   Bestellung b"
-  			            + " WHERE  b.id = :" + Bestellung.PARAM_ID)
+  			            + " WHERE  b.id = :" + Bestellung.PARAM_ID),
+	@NamedQuery(name  = Bestellung.FIND_MAX_IDX_BY_KUNDE_ID,
+			    query = "SELECT MAX(b.idx)"
+			            + " FROM   Bestellung b"
+			            + " WHERE  b.kunde.id = :" + Bestellung.PARAM_KUNDE_ID),
+	@NamedQuery(name  = Bestellung.FIND_AKTUALISIERT_BY_ID,
+			    query = "SELECT b.aktualisiert"
+			            + " FROM   Bestellung b"
+			            + " WHERE  b.id = :" + Bestellung.PARAM_ID)
 })
 @XmlRootElement
 public class Bestellung implements Serializable {
@@ -76,8 +84,11 @@ public class Bestellung implements Serializable {
 	public static final String FIND_BESTELLUNG_BY_ID_FETCH_LIEFERUNGEN =
 		                       PREFIX + "findBestellungenByIdFetchLieferungen";
 	public static final String FIND_KUNDE_BY_ID = PREFIX + "findBestellungKundeById";
+	public static final String FIND_MAX_IDX_BY_KUNDE_ID = PREFIX + "findMaxIdxByKundeId";
+	public static final String FIND_AKTUALISIERT_BY_ID = PREFIX + "findAktualisiertById";
 	
 	public static final String PARAM_KUNDE = "kunde";
+	public static final String PARAM_KUNDE_ID = "kundeId";
 	public static final String PARAM_ID = "id";
 
 	@Id
@@ -85,11 +96,18 @@ public class Bestellung implements Serializable {
 	@Column(nullable = false, updatable = false)
 	private Long id = KEINE_ID;
 
+	// Die Bestellung verwaltet den Fremdschluessel selbst, damit beim Anlegen die
+	// vorhandenen Bestellungen des Kunden nicht geladen werden muessen
 	@ManyToOne
-	@JoinColumn(name = "kunde_fk", nullable = false, insertable = false, updatable = false)
+	@JoinColumn(name = "kunde_fk", nullable = false, updatable = false)
 	@XmlTransient
 	private AbstractKunde kunde;
 	
+	// Position in der Liste der Bestellungen des Kunden
+	@Column(nullable = false, updatable = false)
+	@XmlTransient
+	private int idx;
+	
 	@Transient
 	private URI kundeUri;
 
@@ -185,6 +203,13 @@ public class Bestellung implements Serializable {
 		this.kunde = kunde;
 	}
 
+	public int getIdx() {
+		return idx;
+	}
+	public void setIdx(int idx) {
+		this.idx = idx;
+	}
+
 	public URI getKundeUri() {
 		return kundeUri;
 	}
@@ -13,7 +13,9 @@ import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -27,8 +29,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.jboss.logging.Logger;
@@ -42,8 +47,10 @@ import de.shop.bestellverwaltung.service.BestellungService;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.rest.KundeResource;
 import de.shop.util.interceptor.Log;
+import de.shop.util.persistence.ReadOnly;
 import de.shop.util.rest.NotFoundException;
 import de.shop.util.rest.UriHelper;
+import de.shop.util.rest.Vorbedingungen;
 
 
 /**
@@ -63,6 +70,12 @@ public class BestellungResource {
 	@Context
 	private UriInfo uriInfo;
 	
+	@Context
+	private Request request;
+	
+	@Context
+	private HttpHeaders headers;
+	
 	@Inject
 	private BestellungService bs;
 	
@@ -95,7 +108,20 @@ public class BestellungResource {
 	 */
 	@GET
 	@Path("{id:[1-9][0-9]*}")
+	@ReadOnly
 	public Response findBestellungById(@PathParam("id") Long id) {
+		// Bei If-None-Match bzw. If-Modified-Since zuerst nur den Zeitstempel ermitteln
+		if (Vorbedingungen.isBedingt(headers)) {
+			final Date aktualisiert = bs.findAktualisiertById(id);
+			if (aktualisiert == null) {
+				throw new NotFoundException(NOT_FOUND_ID, id);
+			}
+			final ResponseBuilder notModified = Vorbedingungen.pruefen(request, id, aktualisiert);
+			if (notModified != null) {
+				return notModified.build();
+			}
+		}
+		
 		final Bestellung bestellung = bs.findBestellungById(id, NUR_BESTELLUNG);
 		if (bestellung == null) {
 			throw new NotFoundException(NOT_FOUND_ID, id);
@@ -104,10 +130,11 @@ public class BestellungResource {
 		// URIs innerhalb der gefundenen Bestellung anpassen
 		setStructuralLinks(bestellung, uriInfo);
 		
-		// Link-Header setzen
-		final Response response = Response.ok(bestellung)
-                                          .links(getTransitionalLinks(bestellung, uriInfo))
-                                          .build();
+		// ETag, Last-Modified und Link-Header setzen
+		final Response response = Vorbedingungen.setzen(Response.ok(bestellung), request, id,
+		                                                bestellung.getAktualisiert())
+                                                .links(getTransitionalLinks(bestellung, uriInfo))
+                                                .build();
 		return response;
 	}
 	
@@ -174,6 +201,7 @@ public class BestellungResource {
 	 */
 	@GET
 	@Path("{id:[1-9][0-9]*}/kunde")
+	@ReadOnly
 	public Response findKundeByBestellungId(@PathParam("id") Long id) {
 		final AbstractKunde kunde = bs.findKundeById(id);
 		if (kunde == null) {
@@ -200,37 +228,32 @@ public class BestellungResource {
 	@Produces
 	public Response createBestellung(@Valid Bestellung bestellung) {
 		// TODO eingeloggter Kunde wird durch die URI im Attribut "kundeUri" emuliert
-		final String kundeUriStr = bestellung.getKundeUri().toString();
-		int startPos = kundeUriStr.lastIndexOf('/') + 1;
-		final String kundeIdStr = kundeUriStr.substring(startPos);
-		Long kundeId = null;
-		try {
-			kundeId = Long.valueOf(kundeIdStr);
-		}
-		catch (NumberFormatException e) {
+		final String kundeIdStr = getLetztesSegment(bestellung.getKundeUri());
+		final Long kundeId = parseId(kundeIdStr);
+		if (kundeId == null) {
 			throw new NotFoundException(NOT_FOUND_KUNDE_ID, kundeIdStr);
 		}
 		
 		// IDs der (persistenten) Artikel ermitteln
+		// bestellpositionArtikelIds hat dieselbe Reihenfolge wie bestellpositionen, mit null bei ungueltiger URI
 		final Collection<Bestellposition> bestellpositionen = bestellung.getBestellpositionen();
+		final List<Long> bestellpositionArtikelIds = new ArrayList<>(bestellpositionen.size());
 		final List<Long> artikelIds = new ArrayList<>(bestellpositionen.size());
 		for (Bestellposition bp : bestellpositionen) {
-			final URI artikelUri = bp.getArtikelUri();
-			if (artikelUri == null) {
-				continue;
-			}
-			final String artikelUriStr = artikelUri.toString();
-			startPos = artikelUriStr.lastIndexOf('/') + 1;
-			final String artikelIdStr = artikelUriStr.substring(startPos);
 			Long artikelId = null;
-			try {
-				artikelId = Long.valueOf(artikelIdStr);
-			}
-			catch (NumberFormatException e) {
-				// Ungueltige Artikel-ID: wird nicht beruecksichtigt
-				continue;
+			final URI artikelUri = bp.getArtikelUri();
+			if (artikelUri != null) {
+				final String artikelIdStr = getLetztesSegment(artikelUri);
+				artikelId = parseId(artikelIdStr);
+				if (artikelId == null) {
+					// Ungueltige Artikel-ID: wird nicht beruecksichtigt
+					LOGGER.tracef("Ungueltige Artikel-ID: %s", artikelIdStr);
+				}
+				else {
+					artikelIds.add(artikelId);
+				}
 			}
-			artikelIds.add(artikelId);
+			bestellpositionArtikelIds.add(artikelId);
 		}
 		
 		if (artikelIds.isEmpty()) {
@@ -241,15 +264,14 @@ public class BestellungResource {
 				if (artikelUri == null) {
 					continue;
 				}
-				final String artikelUriStr = artikelUri.toString();
-				startPos = artikelUriStr.lastIndexOf('/') + 1;
-				artikelId = artikelUriStr.substring(startPos);
+				artikelId = getLetztesSegment(artikelUri);
 				break;
 			}
 			throw new NotFoundException(NOT_FOUND_ID_ARTIKEL, artikelId);
 		}
 
-		final Collection<Artikel> gefundeneArtikel = as.findArtikelByIds(artikelIds);
+		// Alle Artikel mit einem einzigen DB-Zugriff ermitteln
+		final Map<Long, Artikel> gefundeneArtikel = as.findArtikelMapByIds(artikelIds);
 		if (gefundeneArtikel.isEmpty()) {
 			throw new NotFoundException(NOT_FOUND_ID_ARTIKEL, artikelIds.get(0));
 		}
@@ -261,18 +283,17 @@ public class BestellungResource {
 		int i = 0;
 		final List<Bestellposition> neueBestellpositionen = new ArrayList<>(bestellpositionen.size());
 		for (Bestellposition bp : bestellpositionen) {
-			// Artikel-ID der aktuellen Bestellposition (s.o.):
-			// artikelIds haben gleiche Reihenfolge wie bestellpositionen
-			final long artikelId = artikelIds.get(i++);
+			// Artikel-ID der aktuellen Bestellposition (s.o.)
+			final Long artikelId = bestellpositionArtikelIds.get(i++);
+			if (artikelId == null) {
+				continue;
+			}
 			
 			// Wurde der Artikel beim DB-Zugriff gefunden?
-			for (Artikel artikel : gefundeneArtikel) {
-				if (artikel.getId().longValue() == artikelId) {
-					// Der Artikel wurde gefunden
-					bp.setArtikel(artikel);
-					neueBestellpositionen.add(bp);
-					break;					
-				}
+			final Artikel artikel = gefundeneArtikel.get(artikelId);
+			if (artikel != null) {
+				bp.setArtikel(artikel);
+				neueBestellpositionen.add(bp);
 			}
 		}
 		bestellung.setBestellpositionen(neueBestellpositionen);
@@ -282,4 +303,45 @@ public class BestellungResource {
 		final URI bestellungUri = getUriBestellung(bestellung, uriInfo);
 		return Response.created(bestellungUri).build();
 	}
+	
+	/**
+	 * Das letzte Segment einer URI, z.B. "42" bei http://localhost:8080/shop/rest/artikel/42
+	 */
+	static String getLetztesSegment(URI uri) {
+		final String uriStr = uri.toString();
+		return uriStr.substring(uriStr.lastIndexOf('/') + 1);
+	}
+	
+	/**
+	 * Eine ID aus einem URI-Segment ermitteln. Ein Segment mit anderen Zeichen als Ziffern wird vorab
+	 * erkannt, ohne dass eine NumberFormatException mit Stacktrace erzeugt wird.
+	 * @param idStr Das Segment, z.B. "42"
+	 * @return Die ID oder null, falls das Segment keine gueltige Zahl ist
+	 */
+	static Long parseId(String idStr) {
+		final int laenge = idStr.length();
+		if (laenge == 0) {
+			return null;
+		}
+		// Vorzeichen wie bei Long.valueOf()
+		final char erstesZeichen = idStr.charAt(0);
+		int i = erstesZeichen == '-' || erstesZeichen == '+' ? 1 : 0;
+		if (i == laenge) {
+			return null;
+		}
+		for (; i < laenge; i++) {
+			final char c = idStr.charAt(i);
+			if (c < '0' || c > '9') {
+				return null;
+			}
+		}
+		
+		try {
+			return Long.valueOf(idStr);
+		}
+		catch (NumberFormatException e) {
+			// Ueberlauf
+			return null;
+		}
+	}
 }
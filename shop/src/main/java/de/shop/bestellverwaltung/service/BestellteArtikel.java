@@ -0,0 +1,182 @@
+package de.shop.bestellverwaltung.service;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.logging.Logger;
+
+import com.google.common.primitives.Ints;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.service.ArtikelKatalog;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.util.cdi.Eager;
+import de.shop.util.persistence.TransactionHelper;
+
+/**
+ * Die IDs der jemals bestellten Artikel als Bitmap im Hauptspeicher und der Zeitpunkt ihrer letzten
+ * Bestellung. Ladenhueter ergeben sich als Komplement der Bitmap ueber den Artikelkatalog, ohne bei
+ * einer Suche die Bestellpositionen in der DB zu lesen. Die Daten werden beim Start der Anwendung
+ * geladen und nach dem Commit einer neuen Bestellung aktualisiert.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class BestellteArtikel {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@Inject
+	private EntityManager em;
+	
+	@Inject
+	private ArtikelKatalog katalog;
+	
+	@Inject
+	private TransactionHelper transactionHelper;
+	
+	// Bit i gesetzt: Der Artikel mit der ID i wurde mindestens 1x bestellt
+	private final BitSet bestellt = new BitSet();
+	// Artikel-ID -> Zeitpunkt der letzten Bestellung in Millisekunden
+	private final Map<Long, Long> letzteBestellung = new HashMap<>();
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Lock readLock = lock.readLock();
+	private final Lock writeLock = lock.writeLock();
+	
+	@PostConstruct
+	private void postConstruct() {
+		final List<Object[]> artikelZeitpunkte =
+			                 em.createNamedQuery(Bestellposition.FIND_LETZTE_BESTELLUNG_BY_ARTIKEL, Object[].class)
+			                   .getResultList();
+		writeLock.lock();
+		try {
+			for (Object[] artikelZeitpunkt : artikelZeitpunkte) {
+				final Long artikelId = (Long) artikelZeitpunkt[0];
+				final Date zeitpunkt = (Date) artikelZeitpunkt[1];
+				hinzufuegen(artikelId, zeitpunkt.getTime());
+			}
+		}
+		finally {
+			writeLock.unlock();
+		}
+		LOGGER.infof("Bitmap fuer %d bestellte Artikel aufgebaut", artikelZeitpunkte.size());
+	}
+	
+	/**
+	 * Die Artikel einer neuen Bestellung nach dem Commit der aktuellen Transaktion als bestellt markieren.
+	 * @param bestellung Die neue, bereits persistente Bestellung
+	 */
+	public void addNachCommit(Bestellung bestellung) {
+		final List<Long> artikelIds = new ArrayList<>(bestellung.getBestellpositionen().size());
+		for (Bestellposition bp : bestellung.getBestellpositionen()) {
+			artikelIds.add(bp.getArtikel().getId());
+		}
+		final long zeitpunkt = bestellung.getErzeugt() == null
+		                       ? System.currentTimeMillis()
+		                       : bestellung.getErzeugt().getTime();
+		
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				writeLock.lock();
+				try {
+					for (Long artikelId : artikelIds) {
+						hinzufuegen(artikelId, zeitpunkt);
+					}
+				}
+				finally {
+					writeLock.unlock();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Artikel suchen, die noch nie bestellt wurden.
+	 * @param anzahl Maximale Anzahl der Artikel
+	 * @return Die Artikel sortiert nach der ID, die nicht veraendert werden duerfen
+	 */
+	public List<Artikel> findNieBestellt(int anzahl) {
+		final List<Artikel> result = new ArrayList<>();
+		readLock.lock();
+		try {
+			for (Artikel artikel : katalog.getAlleArtikel()) {
+				if (result.size() >= anzahl) {
+					break;
+				}
+				if (!bestellt.get(Ints.checkedCast(artikel.getId()))) {
+					result.add(artikel);
+				}
+			}
+		}
+		finally {
+			readLock.unlock();
+		}
+		return result;
+	}
+	
+	/**
+	 * Artikel suchen, die vor einem Zeitpunkt zuletzt oder noch nie bestellt wurden.
+	 * @param vor Zeitpunkt, ab dem ein Artikel nicht mehr bestellt wurde
+	 * @param anzahl Maximale Anzahl der Artikel
+	 * @return Die Artikel, die nie bestellten zuerst und danach die am laengsten nicht bestellten,
+	 *         die nicht veraendert werden duerfen
+	 */
+	public List<Artikel> findNichtBestelltSeit(Date vor, int anzahl) {
+		final long vorMillis = vor.getTime();
+		final List<Artikel> result = new ArrayList<>();
+		final Map<Long, Long> zeitpunkte = new HashMap<>();
+		readLock.lock();
+		try {
+			for (Artikel artikel : katalog.getAlleArtikel()) {
+				if (!bestellt.get(Ints.checkedCast(artikel.getId()))) {
+					result.add(artikel);
+					zeitpunkte.put(artikel.getId(), Long.MIN_VALUE);
+					continue;
+				}
+				final Long zeitpunkt = letzteBestellung.get(artikel.getId());
+				if (zeitpunkt < vorMillis) {
+					result.add(artikel);
+					zeitpunkte.put(artikel.getId(), zeitpunkt);
+				}
+			}
+		}
+		finally {
+			readLock.unlock();
+		}
+		
+		// Die Artikel des Katalogs sind nach der ID sortiert und die Sortierung ist stabil
+		Collections.sort(result, new Comparator<Artikel>() {
+			@Override
+			public int compare(Artikel a1, Artikel a2) {
+				return zeitpunkte.get(a1.getId()).compareTo(zeitpunkte.get(a2.getId()));
+			}
+		});
+		return result.size() > anzahl ? result.subList(0, anzahl) : result;
+	}
+	
+	// Aufruf nur mit gesperrtem writeLock
+	private void hinzufuegen(Long artikelId, long zeitpunkt) {
+		bestellt.set(Ints.checkedCast(artikelId));
+		final Long bisher = letzteBestellung.get(artikelId);
+		if (bisher == null || bisher < zeitpunkt) {
+			letzteBestellung.put(artikelId, zeitpunkt);
+		}
+	}
+}
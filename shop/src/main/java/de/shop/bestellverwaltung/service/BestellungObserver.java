@@ -1,19 +1,12 @@
 package de.shop.bestellverwaltung.service;
 
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
 import java.lang.invoke.MethodHandles;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
-import javax.mail.Message.RecipientType;
-import javax.mail.MessagingException;
-import javax.mail.Session;
-import javax.mail.Transport;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
 
 import org.jboss.logging.Logger;
 
@@ -23,6 +16,7 @@ import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.util.interceptor.Log;
 import de.shop.util.mail.AbsenderMail;
 import de.shop.util.mail.AbsenderName;
+import de.shop.util.mail.MailOutbox;
 
 /**
  * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
@@ -35,7 +29,7 @@ public class BestellungObserver implements Serializable {
 	private static final String NEWLINE = System.getProperty("line.separator");
 	
 	@Inject
-	private transient Session session;
+	private MailOutbox mailOutbox;
 	
 	@Inject
 	@AbsenderMail
@@ -63,40 +57,18 @@ public class BestellungObserver implements Serializable {
 		final String vorname = kunde.getVorname() == null ? "" : kunde.getVorname();
 		final String empfaengerName = vorname + " " + kunde.getNachname();
 		
-		final MimeMessage message = new MimeMessage(session);
-
-		try {
-			// Absender setzen
-			final InternetAddress absenderObj = new InternetAddress(absenderMail, absenderName);
-			message.setFrom(absenderObj);
-			
-			// Empfaenger setzen
-			final InternetAddress empfaenger = new InternetAddress(empfaengerMail, empfaengerName);
-			message.setRecipient(RecipientType.TO, empfaenger);   // RecipientType: TO, CC, BCC
-
-			// Subject setzen
-			message.setSubject("Neue Bestellung Nr. " + bestellung.getId());
-			
-			// Text setzen mit MIME Type "text/plain"
-			final StringBuilder sb = new StringBuilder(256);
-			sb.append("<h3>Neue Bestellung Nr. <b>" + bestellung.getId() + "</b></h3>" + NEWLINE);
-			for (Bestellposition bp : bestellung.getBestellpositionen()) {
-				sb.append(bp.getAnzahl() + "\t" + bp.getArtikel().getBezeichnung() + "<br/>" + NEWLINE);
-			}
-			final String text = sb.toString();
-			LOGGER.trace(text);
-			message.setContent(text, "text/html;charset=iso-8859-1");
-
-			// Hohe Prioritaet einstellen
-			//message.setHeader("Importance", "high");
-			//message.setHeader("Priority", "urgent");
-			//message.setHeader("X-Priority", "1");
-
-			Transport.send(message);
-		}
-		catch (MessagingException | UnsupportedEncodingException e) {
-			LOGGER.error(e.getMessage());
-			return;
+		// Die Email wird nur als Auftrag in der Outbox abgespeichert und nach dem Commit
+		// im Hintergrund versendet, damit das Anlegen der Bestellung nicht auf den Mailserver wartet
+		final String betreff = "Neue Bestellung Nr. " + bestellung.getId();
+		
+		final StringBuilder sb = new StringBuilder(256);
+		sb.append("<h3>Neue Bestellung Nr. <b>" + bestellung.getId() + "</b></h3>" + NEWLINE);
+		for (Bestellposition bp : bestellung.getBestellpositionen()) {
+			sb.append(bp.getAnzahl() + "\t" + bp.getArtikel().getBezeichnung() + "<br/>" + NEWLINE);
 		}
+		final String text = sb.toString();
+		LOGGER.trace(text);
+		
+		mailOutbox.add(empfaengerMail, empfaengerName, betreff, text);
 	}
 }
@@ -1,5 +1,6 @@
 package de.shop.bestellverwaltung.service;
 
+import java.util.Date;
 import java.util.List;
 
 import de.shop.artikelverwaltung.domain.Artikel;
@@ -21,6 +22,13 @@ public interface BestellungService {
 	 */
 	Bestellung findBestellungById(Long id, FetchType fetch);
 	
+	/**
+	 * Nur den Zeitstempel der letzten Aenderung einer Bestellung ermitteln, ohne die Bestellung zu laden
+	 * @param id ID der Bestellung
+	 * @return Zeitstempel der letzten Aenderung oder null, falls es keine Bestellung mit der ID gibt
+	 */
+	Date findAktualisiertById(Long id);
+	
 	/**
 	 * Kunde zur einer Bestellung suchen
 	 * @param id ID der Bestellung
@@ -58,6 +66,14 @@ public interface BestellungService {
 	 */
 	List<Artikel> ladenhueter(int anzahl);
 	
+	/**
+	 * Artikel suchen, die vor einem Zeitpunkt zuletzt oder noch nie bestellt wurden
+	 * @param vor Zeitpunkt, ab dem die Artikel nicht mehr bestellt wurden
+	 * @param anzahl Maximale Anzahl der Artikel
+	 * @return Liste der Artikel, die am laengsten nicht bestellten zuerst
+	 */
+	List<Artikel> ladenhueter(Date vor, int anzahl);
+	
 	/**
 	 * Lieferungen zu gegebenem Nummer-Praefix suchen
 	 * @param nr Nummer-Praefix
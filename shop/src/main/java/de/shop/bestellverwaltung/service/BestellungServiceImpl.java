@@ -1,11 +1,13 @@
 package de.shop.bestellverwaltung.service;
 
 import static de.shop.util.Constants.KEINE_ID;
+import static de.shop.util.persistence.QueryHelper.getErstesElement;
 
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import javax.annotation.PostConstruct;
@@ -13,7 +15,8 @@ import javax.annotation.PreDestroy;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.JoinType;
@@ -28,7 +31,7 @@ import de.shop.bestellverwaltung.domain.Bestellposition;
 import de.shop.bestellverwaltung.domain.Bestellung;
 import de.shop.bestellverwaltung.domain.Lieferung;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
-import de.shop.kundenverwaltung.service.KundeService;
+import de.shop.kundenverwaltung.domain.AbstractKunde_;
 import de.shop.util.interceptor.Log;
 
 /**
@@ -42,13 +45,13 @@ public class BestellungServiceImpl implements Serializable, BestellungService {
 	@Inject
 	private transient EntityManager em;
 	
-	@Inject
-	private KundeService ks;
-	
 	@Inject
 	@NeueBestellung
 	private transient Event<Bestellung> event;
 	
+	@Inject
+	private BestellteArtikel bestellteArtikel;
+	
 	@PostConstruct
 	private void postConstruct() {
 		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
@@ -70,31 +73,32 @@ public class BestellungServiceImpl implements Serializable, BestellungService {
 			bestellung = em.find(Bestellung.class, id);
 			break;
 		case MIT_LIEFERUNGEN:
-			try {
-				bestellung = em.createNamedQuery(Bestellung.FIND_BESTELLUNG_BY_ID_FETCH_LIEFERUNGEN, Bestellung.class)
-	                           .setParameter(Bestellung.PARAM_ID, id)
-						       .getSingleResult();
-			}
-			catch (NoResultException e) {
-				bestellung = null;
-			}
+			bestellung = getErstesElement(em.createNamedQuery(Bestellung.FIND_BESTELLUNG_BY_ID_FETCH_LIEFERUNGEN,
+			                                                  Bestellung.class)
+	                                        .setParameter(Bestellung.PARAM_ID, id)
+						                    .getResultList());
 		}
 		return bestellung;
 	}
 
+	/**
+	 * {inheritDoc}
+	 */
+	@Override
+	public Date findAktualisiertById(Long id) {
+		return getErstesElement(em.createNamedQuery(Bestellung.FIND_AKTUALISIERT_BY_ID, Date.class)
+		                          .setParameter(Bestellung.PARAM_ID, id)
+		                          .getResultList());
+	}
+
 	/**
 	 * {inheritDoc}
 	 */
 	@Override
 	public AbstractKunde findKundeById(Long id) {
-		try {
-			return em.createNamedQuery(Bestellung.FIND_KUNDE_BY_ID, AbstractKunde.class)
-                     .setParameter(Bestellung.PARAM_ID, id)
-					 .getSingleResult();
-		}
-		catch (NoResultException e) {
-			return null;
-		}
+		return getErstesElement(em.createNamedQuery(Bestellung.FIND_KUNDE_BY_ID, AbstractKunde.class)
+                                  .setParameter(Bestellung.PARAM_ID, id)
+					              .getResultList());
 	}
 
 	/**
@@ -122,9 +126,10 @@ public class BestellungServiceImpl implements Serializable, BestellungService {
 			return null;
 		}
 		
-		// Den persistenten Kunden mit der transienten Bestellung verknuepfen
-		final AbstractKunde kunde = ks.findKundeById(kundeId, KundeService.FetchType.MIT_BESTELLUNGEN);
-		return createBestellung(bestellung, kunde);
+		// Den persistenten Kunden mit der transienten Bestellung verknuepfen,
+		// ohne die vorhandenen Bestellungen des Kunden zu laden
+		final AbstractKunde kunde = findKundeZurBestellung(kundeId);
+		return persistBestellung(bestellung, kunde);
 	}
 	
 	/**
@@ -140,11 +145,46 @@ public class BestellungServiceImpl implements Serializable, BestellungService {
 		
 		// Den persistenten Kunden mit der transienten Bestellung verknuepfen
 		if (!em.contains(kunde)) {
-			kunde = ks.findKundeById(kunde.getId(), KundeService.FetchType.MIT_BESTELLUNGEN);
+			return createBestellung(bestellung, kunde.getId());
 		}
-		kunde.addBestellung(bestellung);
+		
+		// Den Kunden fuer die Vergabe der naechsten Position sperren
+		em.lock(kunde, LockModeType.PESSIMISTIC_WRITE);
+		return persistBestellung(bestellung, kunde);
+	}
+	
+	/**
+	 * Den Kunden zu einer neuen Bestellung lesen und fuer die Vergabe der naechsten Position sperren,
+	 * damit parallele Bestellungen desselben Kunden nicht dieselbe Position erhalten.
+	 * Die Bestellungen des Kunden werden dabei nicht geladen.
+	 * @param kundeId ID des Kunden
+	 * @return Der gesperrte Kunde
+	 */
+	private AbstractKunde findKundeZurBestellung(Long kundeId) {
+		return em.find(AbstractKunde.class, kundeId, LockModeType.PESSIMISTIC_WRITE);
+	}
+	
+	/**
+	 * Eine neue Bestellung an die Bestellungen eines gesperrten Kunden anhaengen. Die naechste Position
+	 * wird per Query ermittelt, statt die Liste der vorhandenen Bestellungen zu laden, so dass der
+	 * Aufwand unabhaengig von der Anzahl der bisherigen Bestellungen ist.
+	 * @param bestellung Die neue Bestellung
+	 * @param kunde Der persistente und gesperrte Kunde
+	 * @return Die neue Bestellung einschliesslich generierter ID
+	 */
+	private Bestellung persistBestellung(Bestellung bestellung, AbstractKunde kunde) {
+		final Integer maxIdx = em.createNamedQuery(Bestellung.FIND_MAX_IDX_BY_KUNDE_ID, Integer.class)
+				                 .setParameter(Bestellung.PARAM_KUNDE_ID, kunde.getId())
+				                 .getSingleResult();
+		bestellung.setIdx(maxIdx == null ? 0 : maxIdx + 1);
 		bestellung.setKunde(kunde);
 		
+		// Nur eine bereits geladene Liste der Bestellungen aktualisieren
+		final PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+		if (persistenceUnitUtil.isLoaded(kunde, AbstractKunde_.bestellungen.getName())) {
+			kunde.addBestellung(bestellung);
+		}
+		
 		// Vor dem Abspeichern IDs zuruecksetzen:
 		// IDs koennten einen Wert != null haben, wenn sie durch einen Web Service uebertragen wurden
 		bestellung.setId(KEINE_ID);
@@ -154,6 +194,7 @@ public class BestellungServiceImpl implements Serializable, BestellungService {
 		}
 		
 		em.persist(bestellung);
+		bestellteArtikel.addNachCommit(bestellung);
 		event.fire(bestellung);
 
 		return bestellung;
@@ -164,9 +205,18 @@ public class BestellungServiceImpl implements Serializable, BestellungService {
 	 */
 	@Override
 	public List<Artikel> ladenhueter(int anzahl) {
-		return em.createNamedQuery(Bestellposition.FIND_LADENHUETER, Artikel.class)
-				 .setMaxResults(anzahl)
-				 .getResultList();
+		return bestellteArtikel.findNieBestellt(anzahl);
+	}
+	
+	/**
+	 * {inheritDoc}
+	 */
+	@Override
+	public List<Artikel> ladenhueter(Date vor, int anzahl) {
+		if (vor == null) {
+			return ladenhueter(anzahl);
+		}
+		return bestellteArtikel.findNichtBestelltSeit(vor, anzahl);
 	}
 	
 	/**
@@ -1,6 +1,7 @@
 package de.shop.bestellverwaltung.service;
 
 import java.lang.invoke.MethodHandles;
+import java.util.Date;
 import java.util.List;
 
 import javax.decorator.Decorator;
@@ -77,6 +78,14 @@ public abstract class BestellungServiceMitGeschenkverpackung implements Bestellu
 		return bs.ladenhueter(anzahl);
 	}
 
+	/**
+	 * {inheritDoc}
+	 */
+	@Override
+	public List<Artikel> ladenhueter(Date vor, int anzahl) {
+		return bs.ladenhueter(vor, anzahl);
+	}
+
 	/**
 	 * {inheritDoc}
 	 */
@@ -34,6 +34,7 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.OrderBy;
 import javax.persistence.OrderColumn;
 import javax.persistence.PostLoad;
 import javax.persistence.PostPersist;
@@ -57,7 +58,6 @@ import org.codehaus.jackson.annotate.JsonSubTypes;
 import org.codehaus.jackson.annotate.JsonSubTypes.Type;
 import org.codehaus.jackson.annotate.JsonTypeInfo;
 import org.hibernate.validator.constraints.Email;
-import org.hibernate.validator.constraints.ScriptAssert;
 import org.jboss.logging.Logger;
 
 import de.shop.bestellverwaltung.domain.Bestellung;
@@ -86,20 +86,35 @@ import de.shop.bestellverwaltung.domain.Bestellung;
 		        query = "SELECT   k"
 				        + " FROM  AbstractKunde k"
 		                + " ORDER BY k.id"),
-	@NamedQuery(name  = AbstractKunde.FIND_IDS_BY_PREFIX,
-		        query = "SELECT   k.id"
-		                + " FROM  AbstractKunde k"
-		                + " WHERE CONCAT('', k.id) LIKE :" + AbstractKunde.PARAM_KUNDE_ID_PREFIX
+	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_NACH_ID_ORDER_BY_ID,
+		        query = "SELECT   k"
+				        + " FROM  AbstractKunde k"
+		                + " WHERE k.id > :" + AbstractKunde.PARAM_KUNDE_ID
 		                + " ORDER BY k.id"),
+	@NamedQuery(name  = AbstractKunde.FIND_EMAILS_NACH_ID,
+		        query = "SELECT   k.id, k.email"
+				        + " FROM  AbstractKunde k"
+		                + " WHERE k.id > :" + AbstractKunde.PARAM_KUNDE_ID
+		                + " ORDER BY k.id"),
+	@NamedQuery(name  = AbstractKunde.FIND_MAX_ID,
+		        query = "SELECT   MAX(k.id)"
+		                + " FROM  AbstractKunde k"),
 	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_BY_NACHNAME,
 	            query = "SELECT k"
 				        + " FROM   AbstractKunde k"
 	            		+ " WHERE  UPPER(k.nachname) = UPPER(:" + AbstractKunde.PARAM_KUNDE_NACHNAME + ")"),
-	@NamedQuery(name  = AbstractKunde.FIND_NACHNAMEN_BY_PREFIX,
-   	            query = "SELECT   DISTINCT k.nachname"
-				        + " FROM  AbstractKunde k "
-	            		+ " WHERE UPPER(k.nachname) LIKE UPPER(:"
-	            		+ AbstractKunde.PARAM_KUNDE_NACHNAME_PREFIX + ")"),
+	@NamedQuery(name  = AbstractKunde.FIND_NACHNAMEN_ANZAHL,
+   	            query = "SELECT   k.nachname, COUNT(k)"
+				        + " FROM  AbstractKunde k"
+	            		+ " GROUP BY k.nachname"),
+	@NamedQuery(name  = AbstractKunde.FIND_NACHNAME_BY_ID,
+   	            query = "SELECT   k.nachname"
+				        + " FROM  AbstractKunde k"
+	            		+ " WHERE k.id = :" + AbstractKunde.PARAM_KUNDE_ID),
+	@NamedQuery(name  = AbstractKunde.FIND_AKTUALISIERT_BY_ID,
+   	            query = "SELECT   k.aktualisiert, a.aktualisiert"
+				        + " FROM  AbstractKunde k LEFT JOIN k.adresse a"
+	            		+ " WHERE k.id = :" + AbstractKunde.PARAM_KUNDE_ID),
 	// FIXME https://hibernate.atlassian.net/browse/HHH-8285 : @NamedEntityGraph ab Java EE 7 bzw. JPA 2.1
 	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_BY_NACHNAME_FETCH_BESTELLUNGEN,
 	            query = "SELECT DISTINCT k"
@@ -138,11 +153,7 @@ import de.shop.bestellverwaltung.domain.Bestellung;
 	@NamedEntityGraph(name = AbstractKunde.GRAPH_WARTUNGSVERTRAEGE,
 					  attributeNodes = @NamedAttributeNode("wartungsvertraege"))
 })
-@ScriptAssert(lang = "javascript",
-	          script = "_this.password != null && !_this.password.equals(\"\")"
-	                   + " && _this.password.equals(_this.passwordWdh)",
-	          message = "{kunde.password.notEqual}",
-	          groups = { Default.class, PasswordGroup.class })
+@PasswordsMatch(groups = { Default.class, PasswordGroup.class })
 @XmlRootElement
 @XmlSeeAlso({ Privatkunde.class, Firmenkunde.class })
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
@@ -172,9 +183,13 @@ public abstract class AbstractKunde implements Serializable {
 	public static final String FIND_KUNDEN = PREFIX + "findKunden";
 	public static final String FIND_KUNDEN_FETCH_BESTELLUNGEN = PREFIX + "findKundenFetchBestellungen";
 	public static final String FIND_KUNDEN_ORDER_BY_ID = PREFIX + "findKundenOrderById";
-	public static final String FIND_IDS_BY_PREFIX = PREFIX + "findIdsByPrefix";
+	public static final String FIND_KUNDEN_NACH_ID_ORDER_BY_ID = PREFIX + "findKundenNachIdOrderById";
+	public static final String FIND_MAX_ID = PREFIX + "findMaxId";
+	public static final String FIND_EMAILS_NACH_ID = PREFIX + "findEmailsNachId";
 	public static final String FIND_KUNDEN_BY_NACHNAME = PREFIX + "findKundenByNachname";
-	public static final String FIND_NACHNAMEN_BY_PREFIX = PREFIX + "findNachnamenByPrefix";
+	public static final String FIND_NACHNAMEN_ANZAHL = PREFIX + "findNachnamenAnzahl";
+	public static final String FIND_NACHNAME_BY_ID = PREFIX + "findNachnameById";
+	public static final String FIND_AKTUALISIERT_BY_ID = PREFIX + "findAktualisiertById";
 	// FIXME https://hibernate.atlassian.net/browse/HHH-8285 : @NamedEntityGraph ab Java EE 7 bzw. JPA 2.1
 	public static final String FIND_KUNDEN_BY_NACHNAME_FETCH_BESTELLUNGEN =
 		                       PREFIX + "findKundenByNachnameFetchBestellungen";
@@ -189,9 +204,7 @@ public abstract class AbstractKunde implements Serializable {
 	public static final String FIND_PRIVATKUNDEN_FIRMENKUNDEN = PREFIX + "findPrivatkundenFirmenkunden";
 	
 	public static final String PARAM_KUNDE_ID = "kundeId";
-	public static final String PARAM_KUNDE_ID_PREFIX = "idPrefix";
 	public static final String PARAM_KUNDE_NACHNAME = "nachname";
-	public static final String PARAM_KUNDE_NACHNAME_PREFIX = "nachnamePrefix";
 	public static final String PARAM_KUNDE_ADRESSE_PLZ = "plz";
 	public static final String PARAM_KUNDE_SEIT = "seit";
 	public static final String PARAM_KUNDE_EMAIL = "email";
@@ -253,9 +266,9 @@ public abstract class AbstractKunde implements Serializable {
 	private Adresse adresse;
 
 	// Default: fetch=LAZY
-	@OneToMany
-	@JoinColumn(name = "kunde_fk", nullable = false)
-	@OrderColumn(name = "idx", nullable = false)
+	// Fremdschluessel und Position werden von der Bestellung verwaltet, s. Bestellung.idx
+	@OneToMany(mappedBy = "kunde")
+	@OrderBy("idx")
 	@XmlTransient
 	private List<Bestellung> bestellungen;
 	
@@ -154,6 +154,11 @@ public class Adresse implements Serializable {
 	public AbstractKunde getKunde() {
 		return kunde;
 	}
+	
+	public Date getAktualisiert() {
+		return aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+	
 	@Override
 	public String toString() {
 		return "Adresse [id=" + id + ", plz=" + plz + ", ort=" + ort + ", strasse=" + strasse + ", hausnr=" + hausnr
@@ -0,0 +1,27 @@
+package de.shop.kundenverwaltung.domain;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+
+/**
+ * Ein Kunde muss ein Passwort haben, das mit der Wiederholung des Passworts uebereinstimmt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Constraint(validatedBy = PasswordsMatchValidator.class)
+@Target(TYPE)
+@Retention(RUNTIME)
+@Documented
+public @interface PasswordsMatch {
+	String message() default "{kunde.password.notEqual}";
+	
+	Class<?>[] groups() default { };
+	
+	Class<? extends Payload>[] payload() default { };
+}
@@ -0,0 +1,27 @@
+package de.shop.kundenverwaltung.domain;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+import com.google.common.base.Strings;
+
+/**
+ * Validierung von @PasswordsMatch in Java statt mit einem Skript, das bei jeder Validierung
+ * durch eine Script Engine ausgewertet werden muesste.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public class PasswordsMatchValidator implements ConstraintValidator<PasswordsMatch, AbstractKunde> {
+	@Override
+	public void initialize(PasswordsMatch constraintAnnotation) {
+		// nichts zu tun
+	}
+	
+	@Override
+	public boolean isValid(AbstractKunde kunde, ConstraintValidatorContext ctx) {
+		if (kunde == null) {
+			return true;
+		}
+		final String password = kunde.getPassword();
+		return !Strings.isNullOrEmpty(password) && password.equals(kunde.getPasswordWdh());
+	}
+}
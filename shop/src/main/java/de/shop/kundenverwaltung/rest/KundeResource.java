@@ -5,20 +5,30 @@ import static de.shop.util.Constants.FIRST_LINK;
 import static de.shop.util.Constants.KEINE_ID;
 import static de.shop.util.Constants.LAST_LINK;
 import static de.shop.util.Constants.LIST_LINK;
+import static de.shop.util.Constants.NEXT_LINK;
 import static de.shop.util.Constants.REMOVE_LINK;
 import static de.shop.util.Constants.SELF_LINK;
 import static de.shop.util.Constants.UPDATE_LINK;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
 import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
 import static javax.ws.rs.core.MediaType.TEXT_XML;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -26,6 +36,7 @@ import javax.inject.Inject;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import javax.validation.constraints.Pattern;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -37,9 +48,17 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
 
 import org.hibernate.validator.constraints.Email;
 import org.jboss.logging.Logger;
@@ -51,12 +70,15 @@ import de.shop.bestellverwaltung.rest.BestellungResource;
 import de.shop.bestellverwaltung.service.BestellungService;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.domain.Adresse;
+import de.shop.kundenverwaltung.domain.Firmenkunde;
+import de.shop.kundenverwaltung.domain.Privatkunde;
 import de.shop.kundenverwaltung.service.KundeService;
 import de.shop.kundenverwaltung.service.KundeService.FetchType;
-import de.shop.kundenverwaltung.service.KundeService.OrderType;
 import de.shop.util.interceptor.Log;
+import de.shop.util.persistence.ReadOnly;
 import de.shop.util.rest.NotFoundException;
 import de.shop.util.rest.UriHelper;
+import de.shop.util.rest.Vorbedingungen;
 
 
 /**
@@ -75,15 +97,41 @@ public class KundeResource {
 	public static final String KUNDEN_NACHNAME_QUERY_PARAM = "nachname";
 	public static final String KUNDEN_PLZ_QUERY_PARAM = "plz";
 	public static final String KUNDEN_EMAIL_QUERY_PARAM = "email";
+	public static final String KUNDEN_SEIT_QUERY_PARAM = "seit";
+	public static final String KUNDEN_ART_QUERY_PARAM = "art";
+	public static final String KUNDEN_MIN_BEST_MENGE_QUERY_PARAM = "minBestMenge";
+	public static final String KUNDEN_NACH_ID_QUERY_PARAM = "after";
+	public static final String KUNDEN_ANZAHL_QUERY_PARAM = "limit";
+	
+	// Seitengroesse bei der Keyset-Paginierung ohne bzw. mit zu grossem Query-Parameter "limit"
+	private static final int ANZAHL_DEFAULT = 100;
+	private static final int ANZAHL_MAX = 1000;
+	// Anzahl der Kunden, die beim Streaming jeweils aus der DB gelesen werden
+	private static final int STREAM_SEITE = 500;
+	private static final Annotation[] KEINE_ANNOTATIONEN = new Annotation[0];
+	
+	// Datumsformat fuer den Query-Parameter "seit"
+	private static final String SEIT_FORMAT = "yyyy-MM-dd";
+	private static final String SEIT_PATTERN = "\\d{4}-\\d{2}-\\d{2}";
 
 	private static final String NOT_FOUND_ID = "kunde.notFound.id";
 	private static final String NOT_FOUND_NACHNAME = "kunde.notFound.nachname";
 	private static final String NOT_FOUND_PLZ = "kunde.notFound.plz";
 	private static final String NOT_FOUND_EMAIL = "kunde.notFound.email";
+	private static final String NOT_FOUND_KRITERIEN = "kunde.notFound.kriterien";
 	
     @Context
     private UriInfo uriInfo;
     
+    @Context
+    private Providers providers;
+    
+	@Context
+	private Request request;
+	
+	@Context
+	private HttpHeaders headers;
+    
 	@Inject
 	private KundeService ks;
 	
@@ -120,7 +168,20 @@ public class KundeResource {
 	 */
 	@GET
 	@Path("{" + KUNDEN_ID_PATH_PARAM + ":[1-9][0-9]*}")
+	@ReadOnly
 	public Response findKundeById(@PathParam(KUNDEN_ID_PATH_PARAM) Long id) {
+		// Bei If-None-Match bzw. If-Modified-Since zuerst nur den Zeitstempel ermitteln
+		if (Vorbedingungen.isBedingt(headers)) {
+			final Date aktualisiert = ks.findAktualisiertById(id);
+			if (aktualisiert == null) {
+				throw new NotFoundException(NOT_FOUND_ID, id);
+			}
+			final ResponseBuilder notModified = Vorbedingungen.pruefen(request, id, aktualisiert);
+			if (notModified != null) {
+				return notModified.build();
+			}
+		}
+		
 		final AbstractKunde kunde = ks.findKundeById(id, FetchType.NUR_KUNDE);
 		if (kunde == null) {
 			throw new NotFoundException(NOT_FOUND_ID, id);
@@ -128,13 +189,27 @@ public class KundeResource {
 		
 		setStructuralLinks(kunde, uriInfo);
 	
-		final Response response = Response.ok(kunde)
-                                          .links(getTransitionalLinks(kunde, uriInfo))
-                                          .build();
+		final Response response = Vorbedingungen.setzen(Response.ok(kunde), request, id, getAktualisiert(kunde))
+                                                .links(getTransitionalLinks(kunde, uriInfo))
+                                                .build();
 
 		return response;
 	}
 	
+	/**
+	 * Zeitstempel der letzten Aenderung fuer das ETag: Die Adresse ist Bestandteil des Response-Body,
+	 * wird aber unabhaengig vom Kunden aktualisiert.
+	 */
+	private static Date getAktualisiert(AbstractKunde kunde) {
+		final Date aktualisiert = kunde.getAktualisiert();
+		final Adresse adresse = kunde.getAdresse();
+		final Date adresseAktualisiert = adresse == null ? null : adresse.getAktualisiert();
+		if (aktualisiert == null || adresseAktualisiert == null) {
+			return aktualisiert;
+		}
+		return aktualisiert.getTime() >= adresseAktualisiert.getTime() ? aktualisiert : adresseAktualisiert;
+	}
+	
 	public void setStructuralLinks(AbstractKunde kunde, UriInfo uriInfo) {
 		kunde.setBestellungenUri(getUriBestellungen(kunde, uriInfo));
 	}
@@ -148,15 +223,17 @@ public class KundeResource {
 	                          .rel(SELF_LINK)
 	                          .build();
 
-		final Link list = Link.fromUri(uriHelper.getUri(KundeResource.class, uriInfo))
+		// Dieselbe URI fuer list, add und update
+		final URI kundenUri = uriHelper.getUri(KundeResource.class, uriInfo);
+		final Link list = Link.fromUri(kundenUri)
 		                      .rel(LIST_LINK)
 		                      .build();
 
-		final Link add = Link.fromUri(uriHelper.getUri(KundeResource.class, uriInfo))
+		final Link add = Link.fromUri(kundenUri)
                              .rel(ADD_LINK)
                              .build();
 		
-		final Link update = Link.fromUri(uriHelper.getUri(KundeResource.class, uriInfo))
+		final Link update = Link.fromUri(kundenUri)
 			                    .rel(UPDATE_LINK)
 			                    .build();
 		
@@ -173,12 +250,24 @@ public class KundeResource {
 
 
 	/**
-	 * Mit der URL /kunden werden alle Kunden ermittelt oder
+	 * Mit der URL /kunden werden die Kunden seitenweise sortiert nach der ID ermittelt oder
 	 * mit kundenverwaltung/kunden?nachname=... diejenigen mit einem bestimmten Nachnamen.
+	 * Die Suchkriterien nachname, plz, email, seit, art und minBestMenge koennen beliebig kombiniert werden,
+	 * z.B. /kunden?nachname=...&amp;plz=...&amp;art=P, und werden mit einer einzigen DB-Query ausgewertet.
+	 * Die naechste Seite wird mit /kunden?after=...&amp;limit=... ermittelt, wobei die URL im Link "next"
+	 * mitgeliefert wird, solange die aktuelle Seite voll ist.
 	 * @param nachname Nachname der gesuchten Kunden
+	 * @param plz Postleitzahl der gesuchten Kunden
+	 * @param email Email-Adresse des gesuchten Kunden
+	 * @param seit Registriert seit diesem Datum im Format yyyy-MM-dd
+	 * @param art "P" fuer Privatkunden oder "F" fuer Firmenkunden
+	 * @param minBestMenge Mindestbestellmenge in einer Bestellposition
+	 * @param nachId ID des letzten Kunden der vorherigen Seite
+	 * @param anzahl Maximale Anzahl der Kunden einer Seite
 	 * @return Collection mit den gefundenen Kundendaten
 	 */
 	@GET
+	@ReadOnly
 	public Response findKunden(@QueryParam(KUNDEN_NACHNAME_QUERY_PARAM)
                                @Pattern(regexp = AbstractKunde.NACHNAME_PATTERN, message = "{kunde.nachname.pattern}")
 	                           String nachname,
@@ -187,30 +276,55 @@ public class KundeResource {
                                String plz,
                                @QueryParam(KUNDEN_EMAIL_QUERY_PARAM)
                                @Email(message = "{kunde.email}")
-                               String email) {
+                               String email,
+                               @QueryParam(KUNDEN_SEIT_QUERY_PARAM)
+                               @Pattern(regexp = SEIT_PATTERN, message = "{kunde.seit}")
+                               String seit,
+                               @QueryParam(KUNDEN_ART_QUERY_PARAM)
+                               @Pattern(regexp = AbstractKunde.PRIVATKUNDE + "|" + AbstractKunde.FIRMENKUNDE,
+                                        message = "{kunde.art}")
+                               String art,
+                               @QueryParam(KUNDEN_MIN_BEST_MENGE_QUERY_PARAM)
+                               Short minBestMenge,
+                               @QueryParam(KUNDEN_NACH_ID_QUERY_PARAM)
+                               Long nachId,
+                               @QueryParam(KUNDEN_ANZAHL_QUERY_PARAM)
+                               Integer anzahl) {
 		List<? extends AbstractKunde> kunden = null;
 		AbstractKunde kunde = null;
-		// TODO Mehrere Query-Parameter koennen angegeben sein
-		if (!Strings.isNullOrEmpty(nachname)) {
-			kunden = ks.findKundenByNachname(nachname, FetchType.NUR_KUNDE);
-			if (kunden.isEmpty()) {
-				throw new NotFoundException(NOT_FOUND_NACHNAME, nachname);
-			}
-		}
-		else if (!Strings.isNullOrEmpty(plz)) {
-			kunden = ks.findKundenByPLZ(plz);
-			if (kunden.isEmpty()) {
-				throw new NotFoundException(NOT_FOUND_PLZ, plz);
-			}
-		}
-		else if (!Strings.isNullOrEmpty(email)) {
+		Link next = null;
+		final boolean mitNachname = !Strings.isNullOrEmpty(nachname);
+		final boolean mitPlz = !Strings.isNullOrEmpty(plz);
+		final boolean mitEmail = !Strings.isNullOrEmpty(email);
+		final boolean mitWeiterenKriterien = !Strings.isNullOrEmpty(seit) || !Strings.isNullOrEmpty(art)
+		                                     || minBestMenge != null;
+		
+		if (mitEmail && !mitNachname && !mitPlz && !mitWeiterenKriterien) {
+			// Email ist eindeutig: genau ein Kunde statt einer Liste
 			kunde = ks.findKundeByEmail(email);
 			if (kunde == null) {
 				throw new NotFoundException(NOT_FOUND_EMAIL, email);
 			}
 		}
+		else if (mitNachname || mitPlz || mitEmail || mitWeiterenKriterien) {
+			kunden = ks.findKunden(nachname, plz, email, parseSeit(seit), getKundeKlasse(art), minBestMenge);
+			if (kunden.isEmpty()) {
+				if (mitNachname && !mitPlz && !mitEmail && !mitWeiterenKriterien) {
+					throw new NotFoundException(NOT_FOUND_NACHNAME, nachname);
+				}
+				if (mitPlz && !mitNachname && !mitEmail && !mitWeiterenKriterien) {
+					throw new NotFoundException(NOT_FOUND_PLZ, plz);
+				}
+				throw new NotFoundException(NOT_FOUND_KRITERIEN);
+			}
+		}
 		else {
-			kunden = ks.findAllKunden(FetchType.NUR_KUNDE, OrderType.ID);
+			// Keyset-Paginierung statt alle Kunden auf einmal zu laden
+			final int seitengroesse = anzahl == null || anzahl <= 0 ? ANZAHL_DEFAULT : Math.min(anzahl, ANZAHL_MAX);
+			kunden = ks.findKundenNachId(nachId, seitengroesse);
+			if (kunden.size() == seitengroesse) {
+				next = getNextLink(kunden.get(seitengroesse - 1), seitengroesse, uriInfo);
+			}
 		}
 		
 		Object entity = null;
@@ -220,7 +334,7 @@ public class KundeResource {
 				setStructuralLinks(k, uriInfo);
 			}
 			entity = new GenericEntity<List<? extends AbstractKunde>>(kunden) { };
-			links = getTransitionalLinksKunden(kunden, uriInfo);
+			links = getTransitionalLinksKunden(kunden, next, uriInfo);
 		}
 		else if (kunde != null) {
 			entity = kunde;
@@ -232,7 +346,31 @@ public class KundeResource {
 		               .build();
 	}
 	
-	private Link[] getTransitionalLinksKunden(List<? extends AbstractKunde> kunden, UriInfo uriInfo) {
+	private static Date parseSeit(String seit) {
+		if (Strings.isNullOrEmpty(seit)) {
+			return null;
+		}
+		final DateFormat format = new SimpleDateFormat(SEIT_FORMAT, Locale.ROOT);
+		format.setLenient(false);
+		try {
+			return format.parse(seit);
+		}
+		catch (ParseException e) {
+			throw new BadRequestException(e);
+		}
+	}
+	
+	private static Class<? extends AbstractKunde> getKundeKlasse(String art) {
+		if (AbstractKunde.PRIVATKUNDE.equals(art)) {
+			return Privatkunde.class;
+		}
+		if (AbstractKunde.FIRMENKUNDE.equals(art)) {
+			return Firmenkunde.class;
+		}
+		return null;
+	}
+	
+	private Link[] getTransitionalLinksKunden(List<? extends AbstractKunde> kunden, Link next, UriInfo uriInfo) {
 		if (kunden == null || kunden.isEmpty()) {
 			return null;
 		}
@@ -245,7 +383,67 @@ public class KundeResource {
                               .rel(LAST_LINK)
                               .build();
 		
-		return new Link[] {first, last };
+		if (next == null) {
+			return new Link[] {first, last };
+		}
+		return new Link[] {first, last, next };
+	}
+	
+	private static Link getNextLink(AbstractKunde letzterKunde, int anzahl, UriInfo uriInfo) {
+		final URI nextUri = uriInfo.getRequestUriBuilder()
+		                           .replaceQueryParam(KUNDEN_NACH_ID_QUERY_PARAM, letzterKunde.getId())
+		                           .replaceQueryParam(KUNDEN_ANZAHL_QUERY_PARAM, anzahl)
+		                           .build();
+		return Link.fromUri(nextUri)
+		           .rel(NEXT_LINK)
+		           .build();
+	}
+	
+	/**
+	 * Mit der URL /kunden/stream werden alle Kunden als JSON-Array ermittelt. Die Kunden werden
+	 * seitenweise sortiert nach der ID aus der DB gelesen und sofort in den Ausgabestrom geschrieben,
+	 * so dass sich nie alle Kunden gleichzeitig im Hauptspeicher befinden.
+	 * @return Response-Objekt mit dem Ausgabestrom
+	 */
+	@GET
+	@Path("stream")
+	@Produces(APPLICATION_JSON)
+	public Response streamKunden() {
+		final MessageBodyWriter<AbstractKunde> writer =
+			providers.getMessageBodyWriter(AbstractKunde.class, AbstractKunde.class, KEINE_ANNOTATIONEN,
+				                           APPLICATION_JSON_TYPE);
+		
+		final StreamingOutput output = new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException {
+				final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+				boolean erster = true;
+				Long nachId = null;
+				List<AbstractKunde> kunden;
+				
+				out.write('[');
+				do {
+					// Jede Seite in einer eigenen Query: die Kunden der vorherigen Seite sind danach
+					// nicht mehr referenziert und koennen von der Garbage Collection entfernt werden
+					kunden = ks.findKundenNachId(nachId, STREAM_SEITE);
+					for (AbstractKunde k : kunden) {
+						if (!erster) {
+							out.write(',');
+						}
+						erster = false;
+						setStructuralLinks(k, uriInfo);
+						writer.writeTo(k, AbstractKunde.class, AbstractKunde.class, KEINE_ANNOTATIONEN,
+								       APPLICATION_JSON_TYPE, headers, out);
+						nachId = k.getId();
+					}
+					out.flush();
+				} while (kunden.size() == STREAM_SEITE);
+				out.write(']');
+			}
+		};
+		
+		return Response.ok(output)
+		               .build();
 	}
 	
 	/**
@@ -255,6 +453,7 @@ public class KundeResource {
 	 */
 	@GET
 	@Path("/prefix/id/{id:[1-9][0-9]*}")
+	@ReadOnly
 	public Collection<Long> findIdsByPrefix(@PathParam("id") String idPrefix) {
 		final Collection<Long> ids = ks.findIdsByPrefix(idPrefix);
 		return ids;
@@ -281,6 +480,7 @@ public class KundeResource {
 	 */
 	@GET
 	@Path("{id:[1-9][0-9]*}/bestellungen")
+	@ReadOnly
 	public Response findBestellungenByKundeId(@PathParam("id") Long kundeId) {
 		final AbstractKunde kunde = ks.findKundeById(kundeId, FetchType.MIT_BESTELLUNGEN);
 		if (kunde == null) {
@@ -332,6 +532,7 @@ public class KundeResource {
 	@GET
 	@Path("{id:[1-9][0-9]*}/bestellungenIds")
 	@Produces({ APPLICATION_JSON, TEXT_PLAIN + ";qs=0.75", APPLICATION_XML + ";qs=0.5" })
+	@ReadOnly
 	public Response findBestellungenIdsByKundeId(@PathParam("id") Long kundeId) {
 		final AbstractKunde kunde = ks.findKundeById(kundeId, FetchType.MIT_BESTELLUNGEN);
 		if (kunde == null) {
@@ -0,0 +1,222 @@
+package de.shop.kundenverwaltung.service;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.logging.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.util.cdi.Eager;
+import de.shop.util.jmx.JmxHelper;
+
+/**
+ * Bloom-Filter fuer die vorhandenen Email-Adressen der Kunden. Liefert der Filter "nicht vorhanden",
+ * dann ist die Email-Adresse sicher noch nicht vergeben und die Suche in der DB kann entfallen.
+ * Bei "vielleicht vorhanden" muss weiterhin in der DB gesucht werden. Der UNIQUE-Index auf der
+ * Spalte email bleibt die letzte Absicherung, z.B. fuer Kunden, die nicht ueber die Anwendung angelegt werden.
+ * <p>
+ * Email-Adressen werden nur eingetragen und nie entfernt: geloeschte oder geaenderte Adressen
+ * fuehren lediglich zu zusaetzlichen falsch positiven Treffern.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class EmailFilter implements EmailFilterMXBean {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String JMX_TYPE = "EmailFilter";
+	private static final int KAPAZITAET_DEFAULT = 100_000;
+	private static final double FALSCH_POSITIV_RATE = 0.01;
+	private static final int SEITE = 1000;
+	private static final int BITS_PRO_LONG = Long.SIZE;
+	
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+	
+	// In src\main\webapp\WEB-INF\web.xml kann der Wert gesetzt bzw. ueberschrieben werden
+	@Resource(name = "emailFilterKapazitaet")
+	private Integer kapazitaet;
+	
+	@Inject
+	private EntityManager em;
+	
+	private AtomicLongArray bits;
+	private long anzahlBits;
+	private int anzahlHashfunktionen;
+	
+	private final AtomicLong anzahlEmails = new AtomicLong();
+	private final AtomicLong pruefungen = new AtomicLong();
+	private final AtomicLong uebersprungen = new AtomicLong();
+	private final AtomicLong falschPositiv = new AtomicLong();
+	
+	@PostConstruct
+	private void postConstruct() {
+		if (kapazitaet == null || kapazitaet <= 0) {
+			kapazitaet = KAPAZITAET_DEFAULT;
+		}
+		
+		// Optimale Groesse fuer die gewuenschte Rate falsch positiver Treffer: m = -n ln(p) / (ln 2)^2
+		final double ln2 = Math.log(2);
+		final long m = (long) Math.ceil(-kapazitaet * Math.log(FALSCH_POSITIV_RATE) / (ln2 * ln2));
+		final int anzahlLongs = (int) ((m + BITS_PRO_LONG - 1) / BITS_PRO_LONG);
+		bits = new AtomicLongArray(anzahlLongs);
+		anzahlBits = (long) anzahlLongs * BITS_PRO_LONG;
+		anzahlHashfunktionen = Math.max(1, (int) Math.round((double) anzahlBits / kapazitaet * ln2));
+		
+		// Vorhandene Email-Adressen seitenweise einlesen, damit nicht alle Kunden gleichzeitig geladen werden
+		long nachId = Long.MIN_VALUE;
+		for (;;) {
+			final List<Object[]> idsEmails = em.createNamedQuery(AbstractKunde.FIND_EMAILS_NACH_ID, Object[].class)
+					                           .setParameter(AbstractKunde.PARAM_KUNDE_ID, nachId)
+					                           .setMaxResults(SEITE)
+					                           .getResultList();
+			for (Object[] idEmail : idsEmails) {
+				add((String) idEmail[1]);
+			}
+			if (idsEmails.size() < SEITE) {
+				break;
+			}
+			nachId = (Long) idsEmails.get(idsEmails.size() - 1)[0];
+		}
+		
+		JmxHelper.register(JMX_TYPE, this);
+		LOGGER.infof("Email-Filter mit %d Bits und %d Hashfunktionen fuer %d Email-Adressen aufgebaut",
+				     anzahlBits, anzahlHashfunktionen, anzahlEmails.get());
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		JmxHelper.unregister(JMX_TYPE);
+	}
+	
+	/**
+	 * Pruefen, ob eine Email-Adresse bereits vorhanden sein koennte.
+	 * @param email Die zu pruefende Email-Adresse
+	 * @return false, falls die Email-Adresse sicher nicht vorhanden ist;
+	 *         true, falls sie vorhanden sein koennte und in der DB gesucht werden muss
+	 */
+	public boolean mightContain(String email) {
+		pruefungen.incrementAndGet();
+		if (email == null) {
+			uebersprungen.incrementAndGet();
+			return false;
+		}
+		
+		final long hash = HASH_FUNCTION.hashString(email, Charsets.UTF_8).asLong();
+		final int hash1 = (int) hash;
+		final int hash2 = (int) (hash >>> Integer.SIZE);
+		for (int i = 1; i <= anzahlHashfunktionen; i++) {
+			final long bit = index(hash1, hash2, i);
+			if ((bits.get((int) (bit / BITS_PRO_LONG)) & (1L << (bit % BITS_PRO_LONG))) == 0) {
+				uebersprungen.incrementAndGet();
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Eine Email-Adresse eintragen. Das Eintragen ist auch schon vor dem Commit unproblematisch,
+	 * weil ein Rollback lediglich zu einem zusaetzlichen falsch positiven Treffer fuehrt.
+	 * @param email Die einzutragende Email-Adresse
+	 */
+	public void add(String email) {
+		if (email == null) {
+			return;
+		}
+		
+		final long hash = HASH_FUNCTION.hashString(email, Charsets.UTF_8).asLong();
+		final int hash1 = (int) hash;
+		final int hash2 = (int) (hash >>> Integer.SIZE);
+		boolean neu = false;
+		for (int i = 1; i <= anzahlHashfunktionen; i++) {
+			final long bit = index(hash1, hash2, i);
+			final int pos = (int) (bit / BITS_PRO_LONG);
+			final long maske = 1L << (bit % BITS_PRO_LONG);
+			for (;;) {
+				final long alt = bits.get(pos);
+				if ((alt & maske) != 0) {
+					break;
+				}
+				if (bits.compareAndSet(pos, alt, alt | maske)) {
+					neu = true;
+					break;
+				}
+			}
+		}
+		
+		// Nur gezaehlt, wenn mindestens ein Bit neu gesetzt wurde, z.B. nicht bei unveraenderter Email-Adresse
+		if (neu && anzahlEmails.incrementAndGet() == kapazitaet) {
+			LOGGER.warnf("Der Email-Filter hat seine Kapazitaet von %d Email-Adressen erreicht", kapazitaet);
+		}
+	}
+	
+	/**
+	 * Einen falsch positiven Treffer zaehlen, d.h. die Email-Adresse war laut Filter vielleicht vorhanden,
+	 * wurde aber in der DB nicht gefunden.
+	 */
+	public void falschPositiv() {
+		falschPositiv.incrementAndGet();
+	}
+	
+	// Double Hashing nach Kirsch und Mitzenmacher: g_i(x) = h1(x) + i * h2(x), als long ohne Ueberlauf
+	// berechnet und wie Math.floorMod() aus Java 8 in den Bereich 0 bis anzahlBits - 1 abgebildet
+	private long index(int hash1, int hash2, int i) {
+		final long combined = hash1 + (long) i * hash2;
+		final long index = combined % anzahlBits;
+		return index < 0 ? index + anzahlBits : index;
+	}
+	
+	@Override
+	public long getPruefungen() {
+		return pruefungen.get();
+	}
+	
+	@Override
+	public long getUebersprungen() {
+		return uebersprungen.get();
+	}
+	
+	@Override
+	public long getTreffer() {
+		return pruefungen.get() - uebersprungen.get();
+	}
+	
+	@Override
+	public long getFalschPositiv() {
+		return falschPositiv.get();
+	}
+	
+	@Override
+	public double getFalschPositivRate() {
+		final long treffer = getTreffer();
+		return treffer == 0 ? 0 : (double) falschPositiv.get() / treffer;
+	}
+	
+	@Override
+	public long getAnzahlEmails() {
+		return anzahlEmails.get();
+	}
+	
+	@Override
+	public long getAnzahlBits() {
+		return anzahlBits;
+	}
+	
+	@Override
+	public int getAnzahlHashfunktionen() {
+		return anzahlHashfunktionen;
+	}
+}
@@ -0,0 +1,49 @@
+package de.shop.kundenverwaltung.service;
+
+/**
+ * Kennzahlen des Filters fuer Email-Adressen, die per JMX unter de.shop:type=EmailFilter abgefragt werden koennen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public interface EmailFilterMXBean {
+	/**
+	 * @return Anzahl der Pruefungen, ob eine Email-Adresse vorhanden sein koennte
+	 */
+	long getPruefungen();
+	
+	/**
+	 * @return Anzahl der Pruefungen, bei denen die Email-Adresse sicher nicht vorhanden war,
+	 *         d.h. die Suche in der DB entfallen ist
+	 */
+	long getUebersprungen();
+	
+	/**
+	 * @return Anzahl der Pruefungen, bei denen die Email-Adresse vorhanden sein koennte,
+	 *         d.h. in der DB gesucht werden musste
+	 */
+	long getTreffer();
+	
+	/**
+	 * @return Anzahl der Treffer, bei denen die Email-Adresse in der DB doch nicht vorhanden war
+	 */
+	long getFalschPositiv();
+	
+	/**
+	 * @return Anteil der falsch positiven Treffer an allen Treffern
+	 */
+	double getFalschPositivRate();
+	
+	/**
+	 * @return Anzahl der eingetragenen Email-Adressen
+	 */
+	long getAnzahlEmails();
+	
+	/**
+	 * @return Groesse des Filters in Bits
+	 */
+	long getAnzahlBits();
+	
+	/**
+	 * @return Anzahl der Hashfunktionen je Email-Adresse
+	 */
+	int getAnzahlHashfunktionen();
+}
@@ -1,15 +1,22 @@
 package de.shop.kundenverwaltung.service;
 
+import static de.shop.util.persistence.QueryHelper.getErstesElement;
+
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -19,14 +26,19 @@ import javax.persistence.criteria.Root;
 
 import org.jboss.logging.Logger;
 
+import com.google.common.base.Strings;
+
 import de.shop.bestellverwaltung.domain.Bestellposition;
 import de.shop.bestellverwaltung.domain.Bestellposition_;
 import de.shop.bestellverwaltung.domain.Bestellung;
 import de.shop.bestellverwaltung.domain.Bestellung_;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.domain.AbstractKunde_;
+import de.shop.kundenverwaltung.domain.Firmenkunde;
+import de.shop.kundenverwaltung.domain.Privatkunde;
 import de.shop.kundenverwaltung.domain.Wartungsvertrag;
 import de.shop.util.interceptor.Log;
+import de.shop.util.persistence.ReadOnly;
 
 
 /**
@@ -37,6 +49,24 @@ public class KundeService implements Serializable {
 	private static final long serialVersionUID = -5520738420154763865L;
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
+	private static final long ZEHN = 10L;
+	private static final long NEUN = 9L;
+	
+	// Suchkriterien als Bits, damit je Kombination der JPQL-String nur einmal aufgebaut wird
+	private static final int KRITERIUM_EMAIL = 1;
+	private static final int KRITERIUM_NACHNAME = 1 << 1;
+	private static final int KRITERIUM_PLZ = 1 << 2;
+	private static final int KRITERIUM_SEIT = 1 << 3;
+	private static final int KRITERIUM_PRIVATKUNDE = 1 << 4;
+	private static final int KRITERIUM_FIRMENKUNDE = 1 << 5;
+	private static final int KRITERIUM_MIN_BEST_MENGE = 1 << 6;
+	
+	private static final String PARAM_MIN_BEST_MENGE = "minBestMenge";
+	
+	// JPQL-Strings statt CriteriaQuery-Objekten: Criteria-Objekte gehoeren zu einem EntityManager und sind
+	// nicht threadsicher, ein String kann dagegen von allen Threads gemeinsam verwendet werden
+	private static final ConcurrentMap<Integer, String> SUCHE_QUERIES = new ConcurrentHashMap<>();
+	
 	public enum FetchType {
 		NUR_KUNDE,
 		MIT_BESTELLUNGEN,
@@ -51,6 +81,12 @@ public class KundeService implements Serializable {
 	@Inject
 	private transient EntityManager em;
 	
+	@Inject
+	private NachnameIndex nachnameIndex;
+	
+	@Inject
+	private EmailFilter emailFilter;
+	
 	@PostConstruct
 	private void postConstruct() {
 		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
@@ -94,7 +130,29 @@ public class KundeService implements Serializable {
 
 		return kunden;
 	}
-	
+
+	/**
+	 * Suche die naechsten Kunden nach einer gegebenen ID (Keyset-Paginierung), sortiert nach der ID.
+	 * Statt einer Position (OFFSET) wird die ID des letzten bereits gelieferten Kunden verwendet,
+	 * so dass jede Seite ueber den Primaerschluessel-Index gelesen wird.
+	 * @param nachId ID des letzten Kunden der vorherigen Seite oder null fuer die erste Seite
+	 * @param anzahl Maximale Anzahl der gesuchten Kunden
+	 * @return Liste der Kunden mit einer groesseren ID, hoechstens anzahl Kunden
+	 */
+	@ReadOnly
+	public List<AbstractKunde> findKundenNachId(Long nachId, int anzahl) {
+		if (nachId == null) {
+			return em.createNamedQuery(AbstractKunde.FIND_KUNDEN_ORDER_BY_ID, AbstractKunde.class)
+					 .setMaxResults(anzahl)
+					 .getResultList();
+		}
+
+		return em.createNamedQuery(AbstractKunde.FIND_KUNDEN_NACH_ID_ORDER_BY_ID, AbstractKunde.class)
+				 .setParameter(AbstractKunde.PARAM_KUNDE_ID, nachId)
+				 .setMaxResults(anzahl)
+				 .getResultList();
+	}
+
 	/**
 	 * Suche alle Kunden mit gleichem Nachnamen
 	 * @param nachname Der gemeinsame Nachname
@@ -128,14 +186,13 @@ public class KundeService implements Serializable {
 	}
 
 	/**
-	 * Suche alle Nachnamen mit gleichem Praefix
+	 * Suche alle Nachnamen mit gleichem Praefix. Die Suche erfolgt im Index des Hauptspeichers
+	 * ohne Gross- und Kleinschreibung zu unterscheiden.
 	 * @param nachnamePrefix Der gemeinsame Praefix
 	 * @return Liste der passenden Nachnamen
 	 */
 	public List<String> findNachnamenByPrefix(String nachnamePrefix) {
-		return em.createNamedQuery(AbstractKunde.FIND_NACHNAMEN_BY_PREFIX, String.class)
-				 .setParameter(AbstractKunde.PARAM_KUNDE_NACHNAME_PREFIX, nachnamePrefix + '%')
-				 .getResultList();
+		return nachnameIndex.findNachnamenByPrefix(nachnamePrefix);
 	}
 
 	/**
@@ -156,27 +213,18 @@ public class KundeService implements Serializable {
 					break;
 				
 				case MIT_BESTELLUNGEN:
-					try {
-						kunde = em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_ID_FETCH_BESTELLUNGEN,
-																	AbstractKunde.class)
-								  .setParameter(AbstractKunde.PARAM_KUNDE_ID, id)
-								  .getSingleResult();
-					}
-					catch (NoResultException e) {
-						kunde = null;
-					}
+					kunde = getErstesElement(em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_ID_FETCH_BESTELLUNGEN,
+																 AbstractKunde.class)
+											   .setParameter(AbstractKunde.PARAM_KUNDE_ID, id)
+											   .getResultList());
 					break;
 					
 				case MIT_WARTUNGSVERTRAEGEN:
-					try {
-						kunde = em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_ID_FETCH_WARTUNGSVERTRAEGE,
-								                    AbstractKunde.class)
-								  .setParameter(AbstractKunde.PARAM_KUNDE_ID, id)
-								  .getSingleResult();
-					}
-					catch (NoResultException e) {
-						kunde = null;
-					}
+					kunde = getErstesElement(em.createNamedQuery(
+					                                 AbstractKunde.FIND_KUNDE_BY_ID_FETCH_WARTUNGSVERTRAEGE,
+					                                 AbstractKunde.class)
+											   .setParameter(AbstractKunde.PARAM_KUNDE_ID, id)
+											   .getResultList());
 					break;
 	
 				default:
@@ -186,16 +234,78 @@ public class KundeService implements Serializable {
 
 		return kunde;
 	}
+	
+	/**
+	 * Nur den Zeitstempel der letzten Aenderung eines Kunden einschliesslich seiner Adresse ermitteln,
+	 * ohne den Kunden zu laden.
+	 * @param id Die ID des Kunden.
+	 * @return Der juengere Zeitstempel von Kunde und Adresse oder null, falls es keinen Kunden mit der ID gibt.
+	 */
+	public Date findAktualisiertById(Long id) {
+		if (id == null) {
+			return null;
+		}
+		final Object[] zeitstempel =
+				getErstesElement(em.createNamedQuery(AbstractKunde.FIND_AKTUALISIERT_BY_ID, Object[].class)
+				                   .setParameter(AbstractKunde.PARAM_KUNDE_ID, id)
+				                   .getResultList());
+		if (zeitstempel == null) {
+			return null;
+		}
+		final Date kunde = (Date) zeitstempel[0];
+		final Date adresse = (Date) zeitstempel[1];
+		return adresse == null || kunde.getTime() >= adresse.getTime() ? kunde : adresse;
+	}
 
 	/**
-	 * Suche nach IDs mit gleichem Praefix.
+	 * Suche nach IDs mit gleichem Praefix. Der Praefix wird in Zahlenbereiche umgewandelt, z.B. "12" in
+	 * [12,12], [120,129], [1200,1299] usw. bis zur groessten vorhandenen ID. Dadurch kann der Index
+	 * des Primaerschluessels genutzt werden, statt jede ID in einen String zu konvertieren.
 	 * @param idPrefix Der gemeinsame Praefix.
-	 * @return Liste der passenden Praefixe.
+	 * @return Liste der passenden IDs, aufsteigend sortiert.
 	 */
 	public List<Long> findIdsByPrefix(String idPrefix) {
-		return em.createNamedQuery(AbstractKunde.FIND_IDS_BY_PREFIX, Long.class)
-				 .setParameter(AbstractKunde.PARAM_KUNDE_ID_PREFIX, idPrefix + '%')
-				 .getResultList();
+		final long prefix;
+		try {
+			prefix = Long.parseLong(idPrefix);
+		}
+		catch (NumberFormatException e) {
+			return Collections.emptyList();
+		}
+		// IDs haben weder ein Vorzeichen noch fuehrende Nullen
+		if (prefix <= 0 || idPrefix.charAt(0) == '0') {
+			return Collections.emptyList();
+		}
+		
+		final Long maxId = em.createNamedQuery(AbstractKunde.FIND_MAX_ID, Long.class)
+				             .getSingleResult();
+		if (maxId == null || maxId < prefix) {
+			return Collections.emptyList();
+		}
+		
+		final CriteriaBuilder builder = em.getCriteriaBuilder();
+		final CriteriaQuery<Long> criteriaQuery = builder.createQuery(Long.class);
+		final Root<AbstractKunde> k = criteriaQuery.from(AbstractKunde.class);
+		final Path<Long> idPath = k.get(AbstractKunde_.id);
+		
+		final List<Predicate> bereiche = new ArrayList<>();
+		long von = prefix;
+		long bis = prefix;
+		for (;;) {
+			bereiche.add(builder.between(idPath, von, Math.min(bis, maxId)));
+			
+			// naechster Bereich mit einer zusaetzlichen Ziffer, z.B. [120,129] nach [12,12]
+			if (von > maxId / ZEHN) {
+				break;
+			}
+			von = von * ZEHN;
+			bis = bis > (Long.MAX_VALUE - NEUN) / ZEHN ? Long.MAX_VALUE : bis * ZEHN + NEUN;
+		}
+		
+		criteriaQuery.select(idPath)
+		             .where(builder.or(bereiche.toArray(new Predicate[bereiche.size()])))
+		             .orderBy(builder.asc(idPath));
+		return em.createQuery(criteriaQuery).getResultList();
 	}
 	
 	/**
@@ -204,14 +314,10 @@ public class KundeService implements Serializable {
 	 * @return Der gefundene Kunde oder null.
 	 */
 	public AbstractKunde findKundeByEmail(String email) {
-		try {
-			return em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_EMAIL, AbstractKunde.class)
-					 .setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, email)
-					 .getSingleResult();
-		}
-		catch (NoResultException e) {
-			return null;
-		}
+		// Keine NoResultException bei einer unbekannten Email-Adresse, z.B. bei der Pruefung vor dem Anlegen
+		return getErstesElement(em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_EMAIL, AbstractKunde.class)
+				                  .setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, email)
+				                  .getResultList());
 	}
 
 	/**
@@ -224,19 +330,18 @@ public class KundeService implements Serializable {
 			return kunde;
 		}
 
-		// Pruefung, ob die Email-Adresse schon existiert
-		try {
-			em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_EMAIL, AbstractKunde.class)
-			  .setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, kunde.getEmail())
-			  .getSingleResult();
-			throw new EmailExistsException(kunde.getEmail());
-		}
-		catch (NoResultException e) {
-			// Noch kein Kunde mit dieser Email-Adresse
-			LOGGER.trace("Email-Adresse existiert noch nicht");
+		// Pruefung, ob die Email-Adresse schon existiert. Die Suche in der DB entfaellt,
+		// wenn die Email-Adresse laut Filter sicher noch nicht vorhanden ist.
+		if (emailFilter.mightContain(kunde.getEmail())) {
+			if (findKundeByEmail(kunde.getEmail()) != null) {
+				throw new EmailExistsException(kunde.getEmail());
+			}
+			emailFilter.falschPositiv();
 		}
 		
 		em.persist(kunde);
+		emailFilter.add(kunde.getEmail());
+		nachnameIndex.add(kunde.getNachname());
 		return kunde;		
 	}
 	/**
@@ -252,17 +357,32 @@ public class KundeService implements Serializable {
 		// kunde vom EntityManager trennen, weil anschliessend z.B. nach Id und Email gesucht wird
 		em.detach(kunde);
 		
-		// Gibt es ein anderes Objekt mit gleicher Email-Adresse?
-		final AbstractKunde	tmp = findKundeByEmail(kunde.getEmail());
-		if (tmp != null) {
-			em.detach(tmp);
-			if (tmp.getId().longValue() != kunde.getId().longValue()) {
-				// anderes Objekt mit gleichem Attributwert fuer email
-				throw new EmailExistsException(kunde.getEmail());
+		// Gibt es ein anderes Objekt mit gleicher Email-Adresse? Die Suche in der DB entfaellt,
+		// wenn die Email-Adresse laut Filter sicher noch nicht vorhanden ist.
+		if (emailFilter.mightContain(kunde.getEmail())) {
+			final AbstractKunde	tmp = findKundeByEmail(kunde.getEmail());
+			if (tmp == null) {
+				emailFilter.falschPositiv();
+			}
+			else {
+				em.detach(tmp);
+				if (tmp.getId().longValue() != kunde.getId().longValue()) {
+					// anderes Objekt mit gleichem Attributwert fuer email
+					throw new EmailExistsException(kunde.getEmail());
+				}
 			}
 		}
 
+		// Bisherigen Nachnamen fuer den Index ermitteln
+		final List<String> nachnamen = em.createNamedQuery(AbstractKunde.FIND_NACHNAME_BY_ID, String.class)
+				                         .setParameter(AbstractKunde.PARAM_KUNDE_ID, kunde.getId())
+				                         .getResultList();
+
 		em.merge(kunde);
+		emailFilter.add(kunde.getEmail());
+		if (!nachnamen.isEmpty()) {
+			nachnameIndex.replace(nachnamen.get(0), kunde.getNachname());
+		}
 		return kunde;
 	}
 
@@ -287,6 +407,7 @@ public class KundeService implements Serializable {
 		}
 
 		em.remove(kunde);
+		nachnameIndex.remove(kunde.getNachname());
 	}
 
 	/**
@@ -341,6 +462,121 @@ public class KundeService implements Serializable {
 		return em.createQuery(criteriaQuery).getResultList();
 	}
 	
+	/**
+	 * Kunden zu einer beliebigen Kombination von Suchkriterien mit einer einzigen JPQL-Query suchen.
+	 * Nicht gesetzte Kriterien (null bzw. leerer String) werden ignoriert. Der JPQL-String wird je Kombination
+	 * der gesetzten Kriterien nur einmal aufgebaut und danach wiederverwendet.
+	 * @param nachname Der Nachname
+	 * @param plz Die Postleitzahl
+	 * @param email Die Email-Adresse
+	 * @param seit Registriert seit diesem Datum (einschliesslich)
+	 * @param art Privatkunde.class oder Firmenkunde.class
+	 * @param minBestMenge Mindestbestellmenge in einer Bestellposition
+	 * @return Liste der passenden Kunden
+	 */
+	public List<AbstractKunde> findKunden(String nachname, String plz, String email, Date seit,
+			                              Class<? extends AbstractKunde> art, Short minBestMenge) {
+		int kriterien = 0;
+		if (!Strings.isNullOrEmpty(email)) {
+			kriterien |= KRITERIUM_EMAIL;
+		}
+		if (!Strings.isNullOrEmpty(nachname)) {
+			kriterien |= KRITERIUM_NACHNAME;
+		}
+		if (!Strings.isNullOrEmpty(plz)) {
+			kriterien |= KRITERIUM_PLZ;
+		}
+		if (seit != null) {
+			kriterien |= KRITERIUM_SEIT;
+		}
+		if (Privatkunde.class.equals(art)) {
+			kriterien |= KRITERIUM_PRIVATKUNDE;
+		}
+		else if (Firmenkunde.class.equals(art)) {
+			kriterien |= KRITERIUM_FIRMENKUNDE;
+		}
+		if (minBestMenge != null) {
+			kriterien |= KRITERIUM_MIN_BEST_MENGE;
+		}
+		
+		String jpql = SUCHE_QUERIES.get(kriterien);
+		if (jpql == null) {
+			jpql = createSucheQuery(kriterien);
+			final String vorhanden = SUCHE_QUERIES.putIfAbsent(kriterien, jpql);
+			if (vorhanden != null) {
+				jpql = vorhanden;
+			}
+		}
+		
+		final TypedQuery<AbstractKunde> query = em.createQuery(jpql, AbstractKunde.class);
+		if ((kriterien & KRITERIUM_EMAIL) != 0) {
+			query.setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, email);
+		}
+		if ((kriterien & KRITERIUM_NACHNAME) != 0) {
+			query.setParameter(AbstractKunde.PARAM_KUNDE_NACHNAME, nachname);
+		}
+		if ((kriterien & KRITERIUM_PLZ) != 0) {
+			query.setParameter(AbstractKunde.PARAM_KUNDE_ADRESSE_PLZ, plz);
+		}
+		if ((kriterien & KRITERIUM_SEIT) != 0) {
+			query.setParameter(AbstractKunde.PARAM_KUNDE_SEIT, seit, TemporalType.DATE);
+		}
+		if ((kriterien & KRITERIUM_MIN_BEST_MENGE) != 0) {
+			query.setParameter(PARAM_MIN_BEST_MENGE, minBestMenge);
+		}
+		return query.getResultList();
+	}
+	
+	/**
+	 * JPQL-Query zu einer Kombination von Suchkriterien aufbauen. Zuerst kommen die Praedikate, die ein
+	 * Index unterstuetzt: Email ist eindeutig und PLZ hat einen Index. Der Index auf nachname wird dagegen
+	 * nicht verwendet, weil ohne Beruecksichtigung von Gross-/Kleinschreibung mit UPPER() verglichen wird
+	 * und H2 keine funktionsbasierten Indexe kennt. Die Werte werden erst beim Ausfuehren als Parameter
+	 * gesetzt.
+	 * @param kriterien Die gesetzten Suchkriterien als Bits
+	 * @return Die JPQL-Query mit benannten Parametern
+	 */
+	private static String createSucheQuery(int kriterien) {
+		// Bei der Art des Kunden wird direkt die Unterklasse abgefragt, d.h. die Diskriminator-Spalte
+		final String art;
+		if ((kriterien & KRITERIUM_PRIVATKUNDE) != 0) {
+			art = Privatkunde.class.getSimpleName();
+		}
+		else if ((kriterien & KRITERIUM_FIRMENKUNDE) != 0) {
+			art = Firmenkunde.class.getSimpleName();
+		}
+		else {
+			art = AbstractKunde.class.getSimpleName();
+		}
+		
+		final List<String> preds = new ArrayList<>();
+		if ((kriterien & KRITERIUM_EMAIL) != 0) {
+			preds.add("k.email = :" + AbstractKunde.PARAM_KUNDE_EMAIL);
+		}
+		if ((kriterien & KRITERIUM_PLZ) != 0) {
+			preds.add("k.adresse.plz = :" + AbstractKunde.PARAM_KUNDE_ADRESSE_PLZ);
+		}
+		if ((kriterien & KRITERIUM_NACHNAME) != 0) {
+			// wie bei FIND_KUNDEN_BY_NACHNAME ohne Beruecksichtigung von Gross-/Kleinschreibung
+			preds.add("UPPER(k.nachname) = UPPER(:" + AbstractKunde.PARAM_KUNDE_NACHNAME + ")");
+		}
+		if ((kriterien & KRITERIUM_SEIT) != 0) {
+			preds.add("k.seit >= :" + AbstractKunde.PARAM_KUNDE_SEIT);
+		}
+		if ((kriterien & KRITERIUM_MIN_BEST_MENGE) != 0) {
+			// EXISTS statt JOIN mit DISTINCT, damit jeder Kunde nur einmal gelesen wird
+			preds.add("EXISTS (SELECT b.id FROM Bestellung b JOIN b.bestellpositionen bp"
+			          + " WHERE b.kunde = k AND bp.anzahl > :" + PARAM_MIN_BEST_MENGE + ")");
+		}
+		
+		final StringBuilder jpql = new StringBuilder("SELECT k FROM ").append(art).append(" k");
+		for (int i = 0; i < preds.size(); i++) {
+			jpql.append(i == 0 ? " WHERE " : " AND ").append(preds.get(i));
+		}
+		jpql.append(" ORDER BY k.id");
+		return jpql.toString();
+	}
+	
 	/**
 	 * Die Kunden mit einer bestimmten Mindestbestellmenge suchen.
 	 * @param minMenge Die Mindestbestellmenge
@@ -0,0 +1,175 @@
+package de.shop.kundenverwaltung.service;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.logging.Logger;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.util.cdi.Eager;
+import de.shop.util.persistence.TransactionHelper;
+
+/**
+ * Sortierter Index der vorhandenen Nachnamen im Hauptspeicher fuer die Suche nach einem Praefix,
+ * z.B. zur automatischen Vervollstaendigung. Gross- und Kleinschreibung wird dabei ignoriert.
+ * Der Index wird beim Start der Anwendung aufgebaut und nach dem Commit von Aenderungen aktualisiert.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class NachnameIndex {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final int ANZAHL_MAX_DEFAULT = 10;
+	private static final char TRENNZEICHEN = '\0';
+
+	// In src\main\webapp\WEB-INF\web.xml kann der Wert gesetzt bzw. ueberschrieben werden
+	@Resource(name = "nachnamePrefixMax")
+	private Integer anzahlMax;
+
+	@Inject
+	private EntityManager em;
+
+	@Inject
+	private TransactionHelper transactionHelper;
+
+	// Schluessel: Nachname in Grossbuchstaben, Trennzeichen, Nachname in der Originalschreibweise
+	// Wert: Anzahl der Kunden mit diesem Nachnamen
+	private final ConcurrentSkipListMap<String, Integer> nachnamen = new ConcurrentSkipListMap<>();
+
+	@PostConstruct
+	private void postConstruct() {
+		if (anzahlMax == null || anzahlMax <= 0) {
+			anzahlMax = ANZAHL_MAX_DEFAULT;
+		}
+
+		final List<Object[]> nachnamenAnzahl = em.createNamedQuery(AbstractKunde.FIND_NACHNAMEN_ANZAHL,
+				                                                   Object[].class)
+				                                 .getResultList();
+		for (Object[] nachnameAnzahl : nachnamenAnzahl) {
+			final String nachname = (String) nachnameAnzahl[0];
+			final int anzahl = ((Number) nachnameAnzahl[1]).intValue();
+			nachnamen.put(toKey(nachname), anzahl);
+		}
+		LOGGER.infof("Index fuer %d Nachnamen aufgebaut", nachnamen.size());
+	}
+
+	/**
+	 * Nachnamen zu einem Praefix suchen. Die maximale Anzahl der Nachnamen wird in web.xml konfiguriert.
+	 * @param prefix Der gemeinsame Praefix
+	 * @return Sortierte Liste der passenden Nachnamen
+	 */
+	public List<String> findNachnamenByPrefix(String prefix) {
+		return findNachnamenByPrefix(prefix, anzahlMax);
+	}
+
+	/**
+	 * Nachnamen zu einem Praefix suchen.
+	 * @param prefix Der gemeinsame Praefix
+	 * @param anzahl Maximale Anzahl der Nachnamen
+	 * @return Sortierte Liste der passenden Nachnamen
+	 */
+	public List<String> findNachnamenByPrefix(String prefix, int anzahl) {
+		final String von = prefix.toUpperCase(Locale.GERMAN);
+		final ConcurrentNavigableMap<String, Integer> treffer =
+			                                          nachnamen.subMap(von, true, von + Character.MAX_VALUE, false);
+
+		final List<String> result = new ArrayList<>(Math.min(anzahl, ANZAHL_MAX_DEFAULT));
+		for (String key : treffer.keySet()) {
+			if (result.size() >= anzahl) {
+				break;
+			}
+			result.add(key.substring(key.indexOf(TRENNZEICHEN) + 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Einen Nachnamen nach dem Commit der aktuellen Transaktion hinzufuegen.
+	 * @param nachname Der Nachname eines neuen Kunden
+	 */
+	public void add(final String nachname) {
+		if (nachname == null) {
+			return;
+		}
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				increment(nachname);
+			}
+		});
+	}
+
+	/**
+	 * Einen Nachnamen nach dem Commit der aktuellen Transaktion entfernen.
+	 * @param nachname Der Nachname eines geloeschten Kunden
+	 */
+	public void remove(final String nachname) {
+		if (nachname == null) {
+			return;
+		}
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				decrement(nachname);
+			}
+		});
+	}
+
+	/**
+	 * Einen geaenderten Nachnamen nach dem Commit der aktuellen Transaktion ersetzen.
+	 * @param alt Der bisherige Nachname
+	 * @param neu Der neue Nachname
+	 */
+	public void replace(final String alt, final String neu) {
+		if (alt == null ? neu == null : alt.equals(neu)) {
+			return;
+		}
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				if (alt != null) {
+					decrement(alt);
+				}
+				if (neu != null) {
+					increment(neu);
+				}
+			}
+		});
+	}
+
+	// Lesende Zugriffe sind nicht synchronisiert, nur die Zaehler werden atomar aktualisiert
+	private synchronized void increment(String nachname) {
+		final String key = toKey(nachname);
+		final Integer anzahl = nachnamen.get(key);
+		nachnamen.put(key, anzahl == null ? 1 : anzahl + 1);
+	}
+
+	private synchronized void decrement(String nachname) {
+		final String key = toKey(nachname);
+		final Integer anzahl = nachnamen.get(key);
+		if (anzahl == null) {
+			return;
+		}
+		if (anzahl <= 1) {
+			nachnamen.remove(key);
+		}
+		else {
+			nachnamen.put(key, anzahl - 1);
+		}
+	}
+
+	private static String toKey(String nachname) {
+		return nachname.toUpperCase(Locale.GERMAN) + TRENNZEICHEN + nachname;
+	}
+}
@@ -6,8 +6,14 @@ package de.shop.util;
 public abstract class AbstractShopException extends RuntimeException {
 	private static final long serialVersionUID = -1030863258479949134L;
 	
+	/**
+	 * Exception fuer einen erwarteten fachlichen Fehler, z.B. eine bereits vorhandene Email-Adresse.
+	 * Der Stacktrace wird nicht ermittelt, weil er fuer die Fehlermeldung nicht benoetigt wird und
+	 * das Ermitteln deutlich teurer als das Erzeugen der Exception ist.
+	 * @param msg Die Meldung
+	 */
 	public AbstractShopException(String msg) {
-		super(msg);
+		super(msg, null, false, false);
 	}
 
 	public AbstractShopException(String msg, Throwable t) {
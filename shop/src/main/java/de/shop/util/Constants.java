@@ -14,6 +14,7 @@ public final class Constants {
 	public static final String REMOVE_LINK = "remove";
 	public static final String FIRST_LINK = "first";
 	public static final String LAST_LINK = "last";
+	public static final String NEXT_LINK = "next";
 
 	// JPA
 	public static final Long KEINE_ID = null;
@@ -0,0 +1,20 @@
+package de.shop.util.cdi;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Markiert eine Bean mit @ApplicationScoped, die bereits beim Start der Anwendung erzeugt werden soll,
+ * z.B. um einen Index aufzubauen oder ein MXBean zu registrieren, und nicht erst beim ersten Zugriff.
+ * Die Beans werden von {@link EagerStartup} erzeugt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Documented
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface Eager {
+}
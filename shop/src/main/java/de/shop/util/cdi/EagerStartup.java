@@ -0,0 +1,45 @@
+package de.shop.util.cdi;
+
+import java.lang.invoke.MethodHandles;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Erzeugt beim Start der Anwendung alle Beans, die mit {@link Eager} markiert sind.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class EagerStartup {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@SuppressWarnings("serial")
+	private static final AnnotationLiteral<Any> ANY = new AnnotationLiteral<Any>() { };
+	
+	@Inject
+	private BeanManager beanManager;
+	
+	private void onStartup(@Observes @Initialized(ApplicationScoped.class) Object init) {
+		int anzahl = 0;
+		for (Bean<?> bean : beanManager.getBeans(Object.class, ANY)) {
+			if (!bean.getBeanClass().isAnnotationPresent(Eager.class)) {
+				continue;
+			}
+			
+			// Der Aufruf ueber den Client-Proxy erzeugt die Bean, d.h. @PostConstruct wird ausgefuehrt
+			final Object reference = beanManager.getReference(bean, bean.getBeanClass(),
+			                                                  beanManager.createCreationalContext(bean));
+			reference.toString();
+			anzahl++;
+		}
+		LOGGER.infof("%d Beans mit @Eager beim Start der Anwendung erzeugt", anzahl);
+	}
+}
@@ -2,6 +2,7 @@ package de.shop.util.interceptor;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
@@ -24,18 +25,51 @@ public class LogInterceptor implements Serializable {
 	private static final String COUNT = "Anzahl = ";
 	private static final int MAX_ELEM = 4;  // bei Collections wird ab 5 Elementen nur die Anzahl ausgegeben
 	private static final int CHAR_POS_AFTER_IS = 2; // isX...
+	
+	// Nach einer Aenderung der Log-Konfiguration wird der Level spaetestens nach 1 Sekunde neu ermittelt
+	private static final long PRUEFINTERVALL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	// Logger und Level je Klasse, ohne bei jedem Aufruf den Klassennamen im LogContext zu suchen
+	private static final ClassValue<LoggerStatus> LOGGER_STATUS = new ClassValue<LoggerStatus>() {
+		@Override
+		protected LoggerStatus computeValue(Class<?> clazz) {
+			return new LoggerStatus(Logger.getLogger(clazz.getName()));
+		}
+	};
+	
+	/**
+	 * Logger einer Klasse mit dem zuletzt ermittelten Wert fuer isDebugEnabled().
+	 */
+	private static final class LoggerStatus {
+		private final Logger logger;
+		private volatile boolean debugEnabled;
+		private volatile long geprueftNanos;
+		
+		private LoggerStatus(Logger logger) {
+			this.logger = logger;
+			debugEnabled = logger.isDebugEnabled();
+			geprueftNanos = System.nanoTime();
+		}
+		
+		private boolean isDebugEnabled() {
+			final long jetzt = System.nanoTime();
+			if (jetzt - geprueftNanos > PRUEFINTERVALL_NANOS) {
+				// Bei parallelen Aufrufen wird evtl. mehrfach geprueft, was unkritisch ist
+				debugEnabled = logger.isDebugEnabled();
+				geprueftNanos = jetzt;
+			}
+			return debugEnabled;
+		}
+	}
 
 	@AroundInvoke
 	public Object log(InvocationContext ctx) throws Exception {
-		
-		final Object bean = ctx.getTarget();
-		final Class<?> clazz = bean.getClass();
-		final String classname = clazz.getName();
-		final Logger logger = Logger.getLogger(classname);
-
-		if (!logger.isDebugEnabled()) {
+		// Ohne DEBUG weder Strings noch andere Objekte erzeugen
+		final LoggerStatus status = LOGGER_STATUS.get(ctx.getTarget().getClass());
+		if (!status.isDebugEnabled()) {
 			return ctx.proceed();
 		}
+		final Logger logger = status.logger;
 
 		final String methodName = ctx.getMethod().getName();
 
@@ -101,7 +135,7 @@ public class LogInterceptor implements Serializable {
 	/**
 	 * Collection oder Array oder Objekt in einen String konvertieren
 	 */
-	private static String toString(Object obj) {
+	static String toString(Object obj) {
 		if (obj instanceof Collection<?>) {
 			// Collection: Elemente bei kleiner Anzahl ausgeben; sonst nur die Anzahl
 			final Collection<?> coll = (Collection<?>) obj;
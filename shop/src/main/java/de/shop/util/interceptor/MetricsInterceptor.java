@@ -0,0 +1,40 @@
+package de.shop.util.interceptor;
+
+import java.io.Serializable;
+
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+import de.shop.util.metrics.Latenzhistogramm;
+import de.shop.util.metrics.MetricsRegistry;
+
+/**
+ * Interceptor zur Erfassung von Anzahl, Dauer und Exceptions der Aufrufe von public-Methoden
+ * der CDI-faehigen Beans je Bean und Methode. Die Kennzahlen werden unter /rest/metrics ausgegeben.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Interceptor
+@Log
+public class MetricsInterceptor implements Serializable {
+	private static final long serialVersionUID = -3394624893036364578L;
+	
+	@Inject
+	private MetricsRegistry registry;
+	
+	@AroundInvoke
+	public Object measure(InvocationContext ctx) throws Exception {
+		final Latenzhistogramm histogramm = registry.getHistogramm(ctx.getMethod());
+		final long start = System.nanoTime();
+		boolean mitFehler = true;
+		try {
+			final Object result = ctx.proceed();
+			mitFehler = false;
+			return result;
+		}
+		finally {
+			histogramm.erfassen(System.nanoTime() - start, mitFehler);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package de.shop.util.jmx;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Registrierung von MXBeans beim MBeanServer der JVM, damit Kennzahlen der Anwendung
+ * z.B. mit jconsole oder VisualVM abgefragt werden koennen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public final class JmxHelper {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	public static final String DOMAIN = "de.shop";
+	
+	private JmxHelper() {
+	}
+	
+	/**
+	 * Ein MXBean unter dem Namen de.shop:type=... registrieren. Ein bereits vorhandenes MXBean
+	 * mit gleichem Namen, z.B. nach einem Redeployment, wird dabei ersetzt.
+	 * @param type Der Wert fuer "type" im ObjectName
+	 * @param mxbean Das zu registrierende MXBean
+	 */
+	public static void register(String type, Object mxbean) {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			final ObjectName name = getObjectName(type);
+			try {
+				server.registerMBean(mxbean, name);
+			}
+			catch (InstanceAlreadyExistsException e) {
+				server.unregisterMBean(name);
+				server.registerMBean(mxbean, name);
+			}
+		}
+		catch (JMException e) {
+			LOGGER.warnf(e, "Das MXBean %s konnte nicht registriert werden", type);
+		}
+	}
+	
+	/**
+	 * Ein MXBean mit dem Namen de.shop:type=... deregistrieren.
+	 * @param type Der Wert fuer "type" im ObjectName
+	 */
+	public static void unregister(String type) {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(getObjectName(type));
+		}
+		catch (InstanceNotFoundException e) {
+			LOGGER.tracef("Das MXBean %s ist nicht registriert", type);
+		}
+		catch (JMException e) {
+			LOGGER.warnf(e, "Das MXBean %s konnte nicht deregistriert werden", type);
+		}
+	}
+	
+	private static ObjectName getObjectName(String type) throws JMException {
+		return new ObjectName(DOMAIN + ":type=" + type);
+	}
+}
@@ -0,0 +1,92 @@
+package de.shop.util.mail;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.interceptor.Log;
+import de.shop.util.mail.domain.MailAuftrag;
+import de.shop.util.mail.domain.MailStatus;
+
+/**
+ * DB-Zugriffe fuer die Outbox mit den zu versendenden Emails.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Log
+public class MailAuftragService implements Serializable {
+	private static final long serialVersionUID = 4307617362467271049L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@Inject
+	private transient EntityManager em;
+	
+	@PostConstruct
+	private void postConstruct() {
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+	
+	/**
+	 * Einen neuen MailAuftrag in der aktuellen Transaktion abspeichern, z.B. beim Anlegen einer Bestellung.
+	 * @param mailAuftrag Der neue MailAuftrag
+	 * @return Der neue MailAuftrag einschliesslich generierter ID
+	 */
+	public MailAuftrag createMailAuftrag(MailAuftrag mailAuftrag) {
+		em.persist(mailAuftrag);
+		return mailAuftrag;
+	}
+	
+	/**
+	 * Die faelligen MailAuftraege einer Partition suchen.
+	 * @param partition Die Partition, d.h. der Rest der ID bei der Division durch die Anzahl der Partitionen
+	 * @param partitionen Die Anzahl der Partitionen
+	 * @param anzahl Die maximale Anzahl der MailAuftraege
+	 * @return Die faelligen MailAuftraege sortiert nach der ID
+	 */
+	@Transactional
+	public List<MailAuftrag> findFaelligeMailAuftraege(int partition, int partitionen, int anzahl) {
+		return em.createNamedQuery(MailAuftrag.FIND_FAELLIGE_MAIL_AUFTRAEGE, MailAuftrag.class)
+				 .setParameter(MailAuftrag.PARAM_STATUS, MailStatus.OFFEN)
+				 .setParameter(MailAuftrag.PARAM_JETZT, new Date())
+				 .setParameter(MailAuftrag.PARAM_PARTITIONEN, partitionen)
+				 .setParameter(MailAuftrag.PARAM_PARTITION, partition)
+				 .setMaxResults(anzahl)
+				 .getResultList();
+	}
+	
+	/**
+	 * Status, Anzahl der Versuche usw. von bearbeiteten MailAuftraegen in einer eigenen Transaktion abspeichern.
+	 * @param mailAuftraege Die bearbeiteten MailAuftraege
+	 */
+	@Transactional
+	public void updateMailAuftraege(List<MailAuftrag> mailAuftraege) {
+		for (MailAuftrag mailAuftrag : mailAuftraege) {
+			em.merge(mailAuftrag);
+		}
+	}
+	
+	/**
+	 * Die Anzahl der MailAuftraege mit einem bestimmten Status ermitteln.
+	 * @param status Der Status
+	 * @return Die Anzahl der MailAuftraege
+	 */
+	@Transactional
+	public long countMailAuftraege(MailStatus status) {
+		return em.createNamedQuery(MailAuftrag.COUNT_MAIL_AUFTRAEGE_BY_STATUS, Long.class)
+				 .setParameter(MailAuftrag.PARAM_STATUS, status)
+				 .getSingleResult();
+	}
+}
@@ -0,0 +1,308 @@
+package de.shop.util.mail;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.cdi.Eager;
+import de.shop.util.jmx.JmxHelper;
+import de.shop.util.mail.domain.MailAuftrag;
+import de.shop.util.mail.domain.MailStatus;
+import de.shop.util.persistence.TransactionHelper;
+
+/**
+ * Transaktionale Outbox fuer Emails: ein MailAuftrag wird in der Transaktion des Aufrufers abgespeichert
+ * und erst nach dem Commit im Hintergrund versendet. Die MailAuftraege sind ueber den Rest der ID auf
+ * mehrere Worker verteilt. Ein Worker versendet die faelligen MailAuftraege seiner Partition jeweils
+ * als Batch ueber eine einzige Verbindung zum Mailserver. Fehlgeschlagene Versuche werden mit
+ * exponentiell wachsendem Abstand wiederholt, bis die maximale Anzahl an Versuchen erreicht ist.
+ * <p>
+ * Der Mailserver wird ueber die Mail-Session java:jboss/mail/Default konfiguriert, z.B. fuer Tests
+ * mit einem lokalen SMTP-Server.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class MailOutbox implements MailOutboxMXBean {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String JMX_TYPE = "MailOutbox";
+	private static final String CONTENT_TYPE = "text/html;charset=iso-8859-1";
+	
+	private static final int ANZAHL_WORKER_DEFAULT = 2;
+	private static final int BATCH_GROESSE_DEFAULT = 50;
+	private static final int MAX_VERSUCHE_DEFAULT = 5;
+	
+	// Intervall, in dem jeder Worker auch ohne neue MailAuftraege nach faelligen Wiederholungen sucht
+	private static final long INTERVALL_SEKUNDEN = 30;
+	// Wartezeit nach dem 1. fehlgeschlagenen Versuch, die sich danach jeweils verdoppelt
+	private static final long BACKOFF_BASIS_MILLIS = 10_000;
+	private static final long BACKOFF_MAX_MILLIS = 60 * 60 * 1000;
+	private static final int BACKOFF_MAX_SHIFT = 16;
+	
+	// In src\main\webapp\WEB-INF\web.xml koennen die Werte gesetzt bzw. ueberschrieben werden
+	@Resource(name = "mailWorker")
+	private Integer anzahlWorker;
+	
+	@Resource(name = "mailBatchGroesse")
+	private Integer batchGroesse;
+	
+	@Resource(name = "mailMaxVersuche")
+	private Integer maxVersuche;
+	
+	@Resource
+	private ManagedScheduledExecutorService executor;
+	
+	@Inject
+	private Session session;
+	
+	@Inject
+	@AbsenderMail
+	private String absenderMail;
+	
+	@Inject
+	@AbsenderName
+	private String absenderName;
+	
+	@Inject
+	private MailAuftragService mas;
+	
+	@Inject
+	private TransactionHelper transactionHelper;
+	
+	// Je Partition hoechstens ein laufender Worker
+	private AtomicBoolean[] aktiv;
+	private final List<ScheduledFuture<?>> futures = new ArrayList<>();
+	
+	private final AtomicLong warteschlange = new AtomicLong();
+	private final AtomicLong gesendet = new AtomicLong();
+	private final AtomicLong wiederholungen = new AtomicLong();
+	private final AtomicLong fehlgeschlagen = new AtomicLong();
+	
+	@PostConstruct
+	private void postConstruct() {
+		if (anzahlWorker == null || anzahlWorker <= 0) {
+			anzahlWorker = ANZAHL_WORKER_DEFAULT;
+		}
+		if (batchGroesse == null || batchGroesse <= 0) {
+			batchGroesse = BATCH_GROESSE_DEFAULT;
+		}
+		if (maxVersuche == null || maxVersuche <= 0) {
+			maxVersuche = MAX_VERSUCHE_DEFAULT;
+		}
+		
+		warteschlange.set(mas.countMailAuftraege(MailStatus.OFFEN));
+		
+		aktiv = new AtomicBoolean[anzahlWorker];
+		for (int i = 0; i < anzahlWorker; i++) {
+			aktiv[i] = new AtomicBoolean();
+			futures.add(executor.scheduleWithFixedDelay(createWorker(i), INTERVALL_SEKUNDEN, INTERVALL_SEKUNDEN,
+					                                    SECONDS));
+		}
+		
+		JmxHelper.register(JMX_TYPE, this);
+		LOGGER.infof("Outbox fuer Emails mit %d Worker(n) und %d offenen MailAuftraegen gestartet",
+				     anzahlWorker, warteschlange.get());
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		for (ScheduledFuture<?> future : futures) {
+			future.cancel(false);
+		}
+		JmxHelper.unregister(JMX_TYPE);
+	}
+	
+	/**
+	 * Einen MailAuftrag in der aktuellen Transaktion abspeichern. Nach dem Commit wird der zustaendige
+	 * Worker angestossen; bei einem Rollback wird der MailAuftrag verworfen.
+	 * @param empfaengerMail Email-Adresse des Empfaengers
+	 * @param empfaengerName Name des Empfaengers
+	 * @param betreff Betreff der Email
+	 * @param text Text der Email als HTML
+	 */
+	public void add(String empfaengerMail, String empfaengerName, String betreff, String text) {
+		final MailAuftrag mailAuftrag = mas.createMailAuftrag(new MailAuftrag(empfaengerMail, empfaengerName,
+				                                                              betreff, text));
+		transactionHelper.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				warteschlange.incrementAndGet();
+				if (mailAuftrag.getId() != null) {
+					executor.execute(createWorker((int) (mailAuftrag.getId() % anzahlWorker)));
+				}
+			}
+		});
+	}
+	
+	private Runnable createWorker(final int partition) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				drain(partition);
+			}
+		};
+	}
+	
+	/**
+	 * Die faelligen MailAuftraege einer Partition batchweise versenden.
+	 * @param partition Die Partition
+	 */
+	private void drain(int partition) {
+		if (!aktiv[partition].compareAndSet(false, true)) {
+			// Der Worker fuer diese Partition laeuft bereits
+			return;
+		}
+		
+		try {
+			for (;;) {
+				final List<MailAuftrag> mailAuftraege = mas.findFaelligeMailAuftraege(partition, anzahlWorker,
+						                                                              batchGroesse);
+				if (mailAuftraege.isEmpty()) {
+					break;
+				}
+				send(mailAuftraege);
+				mas.updateMailAuftraege(mailAuftraege);
+				if (mailAuftraege.size() < batchGroesse) {
+					break;
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			LOGGER.errorf(e, "Fehler beim Versenden der MailAuftraege in Partition %d", partition);
+		}
+		finally {
+			aktiv[partition].set(false);
+		}
+	}
+	
+	/**
+	 * MailAuftraege ueber eine gemeinsame Verbindung zum Mailserver versenden und den jeweiligen Status setzen.
+	 * @param mailAuftraege Die zu versendenden MailAuftraege
+	 */
+	private void send(List<MailAuftrag> mailAuftraege) {
+		final Transport transport;
+		try {
+			transport = session.getTransport();
+			transport.connect();
+		}
+		catch (MessagingException | RuntimeException e) {
+			for (MailAuftrag mailAuftrag : mailAuftraege) {
+				fehler(mailAuftrag, e);
+			}
+			return;
+		}
+		
+		try {
+			for (MailAuftrag mailAuftrag : mailAuftraege) {
+				try {
+					final MimeMessage message = createMessage(mailAuftrag);
+					transport.sendMessage(message, message.getAllRecipients());
+					mailAuftrag.setStatus(MailStatus.GESENDET);
+					mailAuftrag.setFehler(null);
+					gesendet.incrementAndGet();
+					warteschlange.decrementAndGet();
+				}
+				catch (MessagingException | UnsupportedEncodingException | RuntimeException e) {
+					// Auch z.B. eine ungueltige Adresse darf den Status der uebrigen MailAuftraege nicht verhindern
+					fehler(mailAuftrag, e);
+				}
+			}
+		}
+		finally {
+			try {
+				transport.close();
+			}
+			catch (MessagingException e) {
+				LOGGER.warn(e.getMessage());
+			}
+		}
+	}
+	
+	private MimeMessage createMessage(MailAuftrag mailAuftrag) throws MessagingException,
+	                                                                  UnsupportedEncodingException {
+		final MimeMessage message = new MimeMessage(session);
+		message.setFrom(new InternetAddress(absenderMail, absenderName));
+		message.setRecipient(RecipientType.TO, new InternetAddress(mailAuftrag.getEmpfaengerMail(),
+				                                                   mailAuftrag.getEmpfaengerName()));
+		message.setSubject(mailAuftrag.getBetreff());
+		message.setContent(mailAuftrag.getText(), CONTENT_TYPE);
+		message.saveChanges();
+		return message;
+	}
+	
+	/**
+	 * Einen fehlgeschlagenen Versuch vermerken: entweder spaeter wiederholen oder endgueltig als
+	 * fehlgeschlagen markieren.
+	 * @param mailAuftrag Der MailAuftrag
+	 * @param e Die Ursache
+	 */
+	private void fehler(MailAuftrag mailAuftrag, Exception e) {
+		final int versuche = mailAuftrag.getVersuche() + 1;
+		mailAuftrag.setVersuche(versuche);
+		mailAuftrag.setFehler(e.getMessage());
+		
+		if (versuche >= maxVersuche) {
+			mailAuftrag.setStatus(MailStatus.FEHLGESCHLAGEN);
+			fehlgeschlagen.incrementAndGet();
+			warteschlange.decrementAndGet();
+			LOGGER.errorf("MailAuftrag %d nach %d Versuchen fehlgeschlagen: %s", mailAuftrag.getId(), versuche,
+					      e.getMessage());
+			return;
+		}
+		
+		final long wartezeit = Math.min(BACKOFF_BASIS_MILLIS << Math.min(versuche - 1, BACKOFF_MAX_SHIFT),
+				                        BACKOFF_MAX_MILLIS);
+		mailAuftrag.setNaechsterVersuch(new Date(System.currentTimeMillis() + wartezeit));
+		wiederholungen.incrementAndGet();
+		LOGGER.warnf("MailAuftrag %d: Versuch %d fehlgeschlagen: %s", mailAuftrag.getId(), versuche,
+				     e.getMessage());
+	}
+	
+	@Override
+	public long getWarteschlange() {
+		return warteschlange.get();
+	}
+	
+	@Override
+	public long getGesendet() {
+		return gesendet.get();
+	}
+	
+	@Override
+	public long getWiederholungen() {
+		return wiederholungen.get();
+	}
+	
+	@Override
+	public long getFehlgeschlagen() {
+		return fehlgeschlagen.get();
+	}
+	
+	@Override
+	public int getAnzahlWorker() {
+		return anzahlWorker;
+	}
+}
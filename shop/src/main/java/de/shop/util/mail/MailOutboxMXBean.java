@@ -0,0 +1,32 @@
+package de.shop.util.mail;
+
+/**
+ * Kennzahlen der Outbox, die per JMX unter de.shop:type=MailOutbox abgefragt werden koennen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public interface MailOutboxMXBean {
+	/**
+	 * @return Anzahl der noch zu versendenden Emails
+	 */
+	long getWarteschlange();
+	
+	/**
+	 * @return Anzahl der seit dem Start versendeten Emails
+	 */
+	long getGesendet();
+	
+	/**
+	 * @return Anzahl der seit dem Start fehlgeschlagenen Versuche, die wiederholt werden
+	 */
+	long getWiederholungen();
+	
+	/**
+	 * @return Anzahl der seit dem Start endgueltig fehlgeschlagenen Emails
+	 */
+	long getFehlgeschlagen();
+	
+	/**
+	 * @return Anzahl der Worker bzw. Partitionen
+	 */
+	int getAnzahlWorker();
+}
@@ -0,0 +1,257 @@
+package de.shop.util.mail.domain;
+
+import static de.shop.util.Constants.KEINE_ID;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Date;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+
+import org.jboss.logging.Logger;
+
+
+/**
+ * Eine zu versendende Email in der Outbox. Der Auftrag wird in derselben Transaktion wie z.B. eine neue
+ * Bestellung abgespeichert und nach dem Commit asynchron versendet.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Entity
+@Table(name = "mail_auftrag", indexes = @Index(columnList = "status,naechster_versuch"))
+@NamedQueries({
+	@NamedQuery(name  = MailAuftrag.FIND_FAELLIGE_MAIL_AUFTRAEGE,
+                query = "SELECT m"
+			            + " FROM   MailAuftrag m"
+			            + " WHERE  m.status = :" + MailAuftrag.PARAM_STATUS
+			            + "        AND m.naechsterVersuch <= :" + MailAuftrag.PARAM_JETZT
+			            + "        AND MOD(m.id, :" + MailAuftrag.PARAM_PARTITIONEN + ") = :"
+			            + MailAuftrag.PARAM_PARTITION
+			            + " ORDER BY m.id"),
+	@NamedQuery(name  = MailAuftrag.COUNT_MAIL_AUFTRAEGE_BY_STATUS,
+                query = "SELECT COUNT(m)"
+			            + " FROM   MailAuftrag m"
+			            + " WHERE  m.status = :" + MailAuftrag.PARAM_STATUS)
+})
+public class MailAuftrag implements Serializable {
+	private static final long serialVersionUID = -2637540863487271526L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final int EMAIL_LENGTH_MAX = 128;
+	private static final int NAME_LENGTH_MAX = 128;
+	private static final int BETREFF_LENGTH_MAX = 256;
+	private static final int FEHLER_LENGTH_MAX = 512;
+	
+	private static final String PREFIX = "MailAuftrag.";
+	public static final String FIND_FAELLIGE_MAIL_AUFTRAEGE = PREFIX + "findFaelligeMailAuftraege";
+	public static final String COUNT_MAIL_AUFTRAEGE_BY_STATUS = PREFIX + "countMailAuftraegeByStatus";
+	
+	public static final String PARAM_STATUS = "status";
+	public static final String PARAM_JETZT = "jetzt";
+	public static final String PARAM_PARTITIONEN = "partitionen";
+	public static final String PARAM_PARTITION = "partition";
+
+	@Id
+	@GeneratedValue
+	@Column(nullable = false, updatable = false)
+	private Long id = KEINE_ID;
+	
+	@Column(name = "empfaenger_mail", length = EMAIL_LENGTH_MAX, nullable = false)
+	private String empfaengerMail;
+	
+	@Column(name = "empfaenger_name", length = NAME_LENGTH_MAX)
+	private String empfaengerName;
+	
+	@Column(length = BETREFF_LENGTH_MAX, nullable = false)
+	private String betreff;
+	
+	@Lob
+	@Basic(optional = false)
+	private String text;
+	
+	@Column(length = 1, nullable = false)
+	private MailStatus status = MailStatus.OFFEN;
+	
+	@Column(nullable = false)
+	private int versuche;
+	
+	@Column(name = "naechster_versuch", nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date naechsterVersuch;
+	
+	@Column(length = FEHLER_LENGTH_MAX)
+	private String fehler;
+
+	@Basic(optional = false)
+	@Temporal(TIMESTAMP)
+	private Date erzeugt;
+
+	@Basic(optional = false)
+	@Temporal(TIMESTAMP)
+	private Date aktualisiert;
+
+	public MailAuftrag() {
+		super();
+	}
+	
+	public MailAuftrag(String empfaengerMail, String empfaengerName, String betreff, String text) {
+		super();
+		this.empfaengerMail = empfaengerMail;
+		this.empfaengerName = empfaengerName;
+		this.betreff = betreff;
+		this.text = text;
+	}
+
+	@PrePersist
+	private void prePersist() {
+		erzeugt = new Date();
+		aktualisiert = new Date();
+		if (naechsterVersuch == null) {
+			naechsterVersuch = erzeugt;
+		}
+	}
+	
+	@PostPersist
+	private void postPersist() {
+		LOGGER.debugf("Neuer MailAuftrag mit ID=%d", id);
+	}
+	
+	@PreUpdate
+	private void preUpdate() {
+		aktualisiert = new Date();
+	}
+	
+	public Long getId() {
+		return id;
+	}
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getEmpfaengerMail() {
+		return empfaengerMail;
+	}
+	public void setEmpfaengerMail(String empfaengerMail) {
+		this.empfaengerMail = empfaengerMail;
+	}
+
+	public String getEmpfaengerName() {
+		return empfaengerName;
+	}
+	public void setEmpfaengerName(String empfaengerName) {
+		this.empfaengerName = empfaengerName;
+	}
+
+	public String getBetreff() {
+		return betreff;
+	}
+	public void setBetreff(String betreff) {
+		this.betreff = betreff;
+	}
+
+	public String getText() {
+		return text;
+	}
+	public void setText(String text) {
+		this.text = text;
+	}
+
+	public MailStatus getStatus() {
+		return status;
+	}
+	public void setStatus(MailStatus status) {
+		this.status = status;
+	}
+
+	public int getVersuche() {
+		return versuche;
+	}
+	public void setVersuche(int versuche) {
+		this.versuche = versuche;
+	}
+
+	public Date getNaechsterVersuch() {
+		return naechsterVersuch == null ? null : (Date) naechsterVersuch.clone();
+	}
+	public void setNaechsterVersuch(Date naechsterVersuch) {
+		this.naechsterVersuch = naechsterVersuch == null ? null : (Date) naechsterVersuch.clone();
+	}
+
+	public String getFehler() {
+		return fehler;
+	}
+	public void setFehler(String fehler) {
+		if (fehler != null && fehler.length() > FEHLER_LENGTH_MAX) {
+			this.fehler = fehler.substring(0, FEHLER_LENGTH_MAX);
+			return;
+		}
+		this.fehler = fehler;
+	}
+
+	public Date getErzeugt() {
+		return erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+	public void setErzeugt(Date erzeugt) {
+		this.erzeugt = erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+	public Date getAktualisiert() {
+		return aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+	public void setAktualisiert(Date aktualisiert) {
+		this.aktualisiert = aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "MailAuftrag [id=" + id + ", empfaengerMail=" + empfaengerMail + ", betreff=" + betreff
+		       + ", status=" + status + ", versuche=" + versuche + ", naechsterVersuch=" + naechsterVersuch
+		       + ", erzeugt=" + erzeugt
+		       + ", aktualisiert=" + aktualisiert + ']';
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final MailAuftrag other = (MailAuftrag) obj;
+		
+		if (id == null) {
+			if (other.id != null) {
+				return false;
+			}
+		}
+		else if (!id.equals(other.id)) {
+			return false;
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,34 @@
+package de.shop.util.mail.domain;
+
+
+/**
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public enum MailStatus {
+	OFFEN("O"),
+	GESENDET("G"),
+	FEHLGESCHLAGEN("F");
+	
+	private String dbString;
+	
+	private MailStatus(String dbString) {
+		this.dbString = dbString;
+	}
+	
+	public String getDbString() {
+		return dbString;
+	}
+	
+	public static MailStatus build(String dbString) {
+		switch (dbString) {
+			case "O":
+				return OFFEN;
+			case "G":
+				return GESENDET;
+			case "F":
+				return FEHLGESCHLAGEN;
+			default:
+				throw new IllegalArgumentException(dbString + " ist kein gueltiger Wert fuer MailStatus");
+		}
+	}
+}
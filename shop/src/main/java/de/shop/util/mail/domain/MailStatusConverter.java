@@ -0,0 +1,20 @@
+package de.shop.util.mail.domain;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Converter(autoApply = true)
+public class MailStatusConverter implements AttributeConverter<MailStatus, String> {
+	@Override
+	public String convertToDatabaseColumn(MailStatus mailStatus) {
+		return mailStatus.getDbString();
+	}
+
+	@Override
+	public MailStatus convertToEntityAttribute(String dbString) {
+		return MailStatus.build(dbString);
+	}
+}
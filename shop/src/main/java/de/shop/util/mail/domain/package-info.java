@@ -0,0 +1,12 @@
+@XmlAccessorType(FIELD)
+@Vetoed
+package de.shop.util.mail.domain;
+
+import static javax.xml.bind.annotation.XmlAccessType.FIELD;
+
+import javax.enterprise.inject.Vetoed;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
@@ -0,0 +1,126 @@
+package de.shop.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramm der Aufrufdauer einer Methode mit logarithmisch-linearen Intervallen wie bei HdrHistogram:
+ * Jede Zweierpotenz in Nanosekunden wird in 4 gleich grosse Intervalle unterteilt, d.h. der relative Fehler
+ * betraegt hoechstens 25%. Die Zaehler werden ohne Sperren atomar erhoeht.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public class Latenzhistogramm {
+	private static final int UNTERTEILUNG_BITS = 2;
+	private static final int UNTERTEILUNG = 1 << UNTERTEILUNG_BITS;
+	private static final int ANZAHL_INTERVALLE = Long.SIZE * UNTERTEILUNG;
+	
+	private final AtomicLongArray intervalle = new AtomicLongArray(ANZAHL_INTERVALLE);
+	private final AtomicLong anzahl = new AtomicLong();
+	private final AtomicLong fehler = new AtomicLong();
+	private final AtomicLong summeNanos = new AtomicLong();
+	
+	/**
+	 * Einen Aufruf erfassen.
+	 * @param dauerNanos Dauer des Aufrufs in Nanosekunden
+	 * @param mitFehler true, falls der Aufruf mit einer Exception beendet wurde
+	 */
+	public void erfassen(long dauerNanos, boolean mitFehler) {
+		final long dauer = Math.max(dauerNanos, 0);
+		intervalle.incrementAndGet(index(dauer));
+		summeNanos.addAndGet(dauer);
+		anzahl.incrementAndGet();
+		if (mitFehler) {
+			fehler.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Anzahl der Aufrufe, die kuerzer als eine Zweierpotenz in Nanosekunden waren.
+	 * @param exponent Exponent der Zweierpotenz, mindestens 3
+	 * @return Anzahl der Aufrufe mit einer Dauer unter 2^exponent Nanosekunden
+	 */
+	public long getAnzahlUnter(int exponent) {
+		final int bis = Math.min(exponent * UNTERTEILUNG, ANZAHL_INTERVALLE);
+		long result = 0;
+		for (int i = 0; i < bis; i++) {
+			result += intervalle.get(i);
+		}
+		return result;
+	}
+	
+	public long getAnzahl() {
+		return anzahl.get();
+	}
+	
+	public long getFehler() {
+		return fehler.get();
+	}
+	
+	public long getSummeNanos() {
+		return summeNanos.get();
+	}
+	
+	/**
+	 * @return Kopie der Zaehler je Intervall, z.B. um die Differenz zweier Zeitpunkte zu bilden
+	 */
+	public long[] getIntervalle() {
+		final long[] result = new long[ANZAHL_INTERVALLE];
+		for (int i = 0; i < ANZAHL_INTERVALLE; i++) {
+			result[i] = intervalle.get(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * Ein Perzentil aus den Zaehlern je Intervall ermitteln.
+	 * @param intervalle Zaehler je Intervall, z.B. von getIntervalle()
+	 * @param anteil Anteil zwischen 0 und 1, z.B. 0.99 fuer das 99. Perzentil
+	 * @return Obergrenze in Nanosekunden des Intervalls, in dem das Perzentil liegt, oder 0 ohne Aufrufe
+	 */
+	public static long getPerzentil(long[] intervalle, double anteil) {
+		long gesamt = 0;
+		for (long anzahlIntervall : intervalle) {
+			gesamt += anzahlIntervall;
+		}
+		if (gesamt == 0) {
+			return 0;
+		}
+		
+		final long rang = (long) Math.ceil(anteil * gesamt);
+		long summe = 0;
+		for (int i = 0; i < intervalle.length; i++) {
+			summe += intervalle[i];
+			if (summe >= rang) {
+				return getObergrenze(i);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Kleinste Dauer in Nanosekunden, die nicht mehr im Intervall liegt.
+	 */
+	private static long getObergrenze(int index) {
+		if (index < UNTERTEILUNG) {
+			return index + 1;
+		}
+		final int exponent = index / UNTERTEILUNG;
+		final long unterteilung = index % UNTERTEILUNG;
+		if (exponent >= Long.SIZE - 1) {
+			return Long.MAX_VALUE;
+		}
+		return (1L << exponent) + ((unterteilung + 1) << (exponent - UNTERTEILUNG_BITS));
+	}
+	
+	/**
+	 * Index des Intervalls: die Position des hoechsten Bits und die beiden folgenden Bits.
+	 */
+	private static int index(long dauer) {
+		if (dauer < UNTERTEILUNG) {
+			return (int) dauer;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(dauer);
+		final int unterteilung = (int) (dauer >>> (exponent - UNTERTEILUNG_BITS)) & (UNTERTEILUNG - 1);
+		return exponent * UNTERTEILUNG + unterteilung;
+	}
+}
@@ -0,0 +1,164 @@
+package de.shop.util.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.jmx.JmxHelper;
+
+/**
+ * Kennzahlen der Methodenaufrufe je Bean und Methode und Export im Textformat von Prometheus
+ * zusammen mit den Attributen der MXBeans der Anwendung.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String DAUER = "shop_method_duration_seconds";
+	private static final String FEHLER = "shop_method_errors_total";
+	private static final String PREFIX_JMX = "shop_";
+	
+	// Obergrenzen der exportierten Intervalle: 2^10 ns (ca. 1 Mikrosekunde) bis 2^36 ns (ca. 69 Sekunden)
+	private static final int EXPONENT_MIN = 10;
+	private static final int EXPONENT_MAX = 36;
+	private static final double NANOS_PRO_SEKUNDE = 1e9;
+	
+	private final ConcurrentMap<Method, Latenzhistogramm> histogramme = new ConcurrentHashMap<>();
+	
+	/**
+	 * Das Histogramm zu einer Methode ermitteln und ggf. anlegen.
+	 * @param method Die aufgerufene Methode
+	 * @return Das Histogramm zur Methode
+	 */
+	public Latenzhistogramm getHistogramm(Method method) {
+		final Latenzhistogramm histogramm = histogramme.get(method);
+		if (histogramm != null) {
+			return histogramm;
+		}
+		final Latenzhistogramm neu = new Latenzhistogramm();
+		final Latenzhistogramm vorhanden = histogramme.putIfAbsent(method, neu);
+		return vorhanden == null ? neu : vorhanden;
+	}
+	
+	/**
+	 * @return Die Histogramme aller bisher aufgerufenen Methoden
+	 */
+	public Map<Method, Latenzhistogramm> getHistogramme() {
+		return Collections.unmodifiableMap(histogramme);
+	}
+	
+	/**
+	 * Alle Kennzahlen im Textformat von Prometheus (Version 0.0.4) ausgeben.
+	 * @return Die Kennzahlen als Text
+	 */
+	public String toPrometheus() {
+		final StringBuilder sb = new StringBuilder(4096);
+		appendMethoden(sb);
+		appendMXBeans(sb);
+		return sb.toString();
+	}
+	
+	private void appendMethoden(StringBuilder sb) {
+		// Sortiert nach Bean und Methode; ueberladene Methoden werden zusammengefasst
+		final Map<String, List<Latenzhistogramm>> sortiert = new TreeMap<>();
+		for (Entry<Method, Latenzhistogramm> entry : histogramme.entrySet()) {
+			final Method method = entry.getKey();
+			final String labels = "bean=\"" + method.getDeclaringClass().getSimpleName()
+			                      + "\",method=\"" + method.getName() + "\"";
+			List<Latenzhistogramm> liste = sortiert.get(labels);
+			if (liste == null) {
+				liste = new ArrayList<>(1);
+				sortiert.put(labels, liste);
+			}
+			liste.add(entry.getValue());
+		}
+		
+		sb.append("# HELP ").append(DAUER).append(" Dauer der Methodenaufrufe\n")
+		  .append("# TYPE ").append(DAUER).append(" histogram\n");
+		for (Entry<String, List<Latenzhistogramm>> entry : sortiert.entrySet()) {
+			final String labels = entry.getKey();
+			final List<Latenzhistogramm> histogramm = entry.getValue();
+			for (int exponent = EXPONENT_MIN; exponent <= EXPONENT_MAX; exponent++) {
+				long anzahl = 0;
+				for (Latenzhistogramm h : histogramm) {
+					anzahl += h.getAnzahlUnter(exponent);
+				}
+				sb.append(DAUER).append("_bucket{").append(labels).append(",le=\"")
+				  .append(String.format(Locale.ROOT, "%.9f", (1L << exponent) / NANOS_PRO_SEKUNDE))
+				  .append("\"} ").append(anzahl).append('\n');
+			}
+			long anzahl = 0;
+			long summeNanos = 0;
+			for (Latenzhistogramm h : histogramm) {
+				anzahl += h.getAnzahl();
+				summeNanos += h.getSummeNanos();
+			}
+			sb.append(DAUER).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(anzahl).append('\n')
+			  .append(DAUER).append("_sum{").append(labels).append("} ").append(summeNanos / NANOS_PRO_SEKUNDE)
+			  .append('\n')
+			  .append(DAUER).append("_count{").append(labels).append("} ").append(anzahl).append('\n');
+		}
+		
+		sb.append("# HELP ").append(FEHLER).append(" Methodenaufrufe mit einer Exception\n")
+		  .append("# TYPE ").append(FEHLER).append(" counter\n");
+		for (Entry<String, List<Latenzhistogramm>> entry : sortiert.entrySet()) {
+			long fehler = 0;
+			for (Latenzhistogramm h : entry.getValue()) {
+				fehler += h.getFehler();
+			}
+			sb.append(FEHLER).append('{').append(entry.getKey()).append("} ").append(fehler).append('\n');
+		}
+	}
+	
+	/**
+	 * Numerische Attribute der MXBeans de.shop:type=... als Gauges ausgeben, z.B. shop_MailOutbox_Offen.
+	 */
+	private static void appendMXBeans(StringBuilder sb) {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			for (ObjectName name : sortieren(server.queryNames(new ObjectName(JmxHelper.DOMAIN + ":*"), null))) {
+				final String type = name.getKeyProperty("type");
+				for (MBeanAttributeInfo attribut : server.getMBeanInfo(name).getAttributes()) {
+					final Object wert = server.getAttribute(name, attribut.getName());
+					if (!(wert instanceof Number)) {
+						continue;
+					}
+					final String metrik = PREFIX_JMX + type + "_" + attribut.getName();
+					sb.append("# TYPE ").append(metrik).append(" gauge\n")
+					  .append(metrik).append(' ').append(wert).append('\n');
+				}
+			}
+		}
+		catch (JMException e) {
+			LOGGER.warnf(e, "Die MXBeans konnten nicht gelesen werden");
+		}
+	}
+	
+	private static Collection<ObjectName> sortieren(Set<ObjectName> names) {
+		final Map<String, ObjectName> result = new TreeMap<>();
+		for (ObjectName name : names) {
+			result.put(name.getCanonicalName(), name);
+		}
+		return result.values();
+	}
+}
@@ -1,14 +1,46 @@
 package de.shop.util.persistence;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
 import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
 /**
+ * Der injizierte EntityManager delegiert innerhalb einer Methode mit {@link ReadOnly} an die Replika
+ * und sonst an die primaere DB.
  * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
  */
 public class EntityManagerProducer {
-	@PersistenceContext
+	@PersistenceContext(unitName = "shopPU")
+	private EntityManager primaer;
+	
+	@Inject
+	private Replika replika;
+	
 	@Produces
-	private EntityManager em;
+	private EntityManager getEntityManager() {
+		return (EntityManager) Proxy.newProxyInstance(EntityManagerProducer.class.getClassLoader(),
+				                                      new Class<?>[] { EntityManager.class },
+				                                      new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				EntityManager em = Replika.getEntityManager();
+				if (em == null) {
+					em = primaer;
+					replika.primaerVerwendet();
+				}
+				try {
+					return method.invoke(em, args);
+				}
+				catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
 }
@@ -0,0 +1,23 @@
+package de.shop.util.persistence;
+
+import java.util.List;
+
+/**
+ * Hilfsmethoden fuer Query-Ergebnisse, damit ein fehlendes Ergebnis nicht durch eine NoResultException
+ * von getSingleResult() signalisiert wird: Die Exception wuerde einen Stacktrace ermitteln und die
+ * aktuelle Transaktion fuer ein Rollback markieren.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public final class QueryHelper {
+	private QueryHelper() {
+	}
+	
+	/**
+	 * Das erste Element eines Query-Ergebnisses ermitteln.
+	 * @param resultList Das Ergebnis von getResultList()
+	 * @return Das erste Element oder null, falls das Ergebnis leer ist
+	 */
+	public static <T> T getErstesElement(List<T> resultList) {
+		return resultList.isEmpty() ? null : resultList.get(0);
+	}
+}
@@ -0,0 +1,25 @@
+package de.shop.util.persistence;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.interceptor.InterceptorBinding;
+
+/**
+ * Methoden, die nur lesend auf die DB zugreifen und deshalb die Replika verwenden koennen, sofern deren
+ * Verzoegerung klein genug ist. Die Annotation wirkt nur, wenn die aktuelle Transaktion die primaere DB
+ * noch nicht verwendet hat, und ist deshalb fuer die Methode gedacht, mit der eine Transaktion beginnt,
+ * oder fuer Methoden, die ausserhalb einer Transaktion aufgerufen werden.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@InterceptorBinding
+@Target({ TYPE, METHOD })
+@Retention(RUNTIME)
+@Documented
+public @interface ReadOnly {
+}
@@ -0,0 +1,43 @@
+package de.shop.util.persistence;
+
+import java.io.Serializable;
+
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import javax.persistence.EntityManager;
+
+/**
+ * Interceptor fuer Methoden mit {@link ReadOnly}: waehrend des Aufrufs delegiert der injizierte
+ * EntityManager an einen EntityManager der Replika. Ist die Replika nicht verwendbar, wird die
+ * primaere DB verwendet.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Interceptor
+@ReadOnly
+public class ReadOnlyInterceptor implements Serializable {
+	private static final long serialVersionUID = 6041587296311647285L;
+	
+	@Inject
+	private Replika replika;
+	
+	@AroundInvoke
+	public Object route(InvocationContext ctx) throws Exception {
+		// Verschachtelte Aufrufe verwenden den bereits geoeffneten EntityManager
+		if (Replika.getEntityManager() != null) {
+			return ctx.proceed();
+		}
+		
+		final EntityManager em = replika.oeffnen();
+		if (em == null) {
+			return ctx.proceed();
+		}
+		try {
+			return ctx.proceed();
+		}
+		finally {
+			replika.schliessen(em);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package de.shop.util.persistence;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.hibernate.Session;
+import org.jboss.logging.Logger;
+
+import de.shop.util.cdi.Eager;
+import de.shop.util.jmx.JmxHelper;
+
+/**
+ * Zugriff auf eine Replika der DB fuer Methoden mit {@link ReadOnly}, damit lesende Zugriffe einen eigenen
+ * Connection-Pool verwenden. Die Replika wird ueber die Persistence Unit "shopReplicaPU" ohne JTA angesprochen,
+ * so dass sie zusammen mit der primaeren DB in einer Transaktion kein XA erfordert.
+ * <p>
+ * Ein Hintergrund-Thread schreibt regelmaessig einen Zeitstempel in die Tabelle replika_heartbeat der
+ * primaeren DB und liest ihn aus der Replika. Ist die Replika nicht erreichbar oder liegt sie weiter als
+ * konfiguriert zurueck, wird die primaere DB verwendet.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class Replika implements ReplikaMXBean {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String JMX_TYPE = "Replika";
+	private static final int MAX_VERZOEGERUNG_MILLIS_DEFAULT = 5000;
+	private static final long INTERVALL_MILLIS = 1000;
+	// Ohne aktuelle Messung, z.B. weil der Hintergrund-Thread haengt, wird die Replika nicht verwendet
+	private static final long MESSUNG_MAX_ALTER_MILLIS = 3 * INTERVALL_MILLIS;
+	private static final long UNBEKANNT = -1;
+	
+	private static final String HEARTBEAT_SCHREIBEN = "UPDATE replika_heartbeat SET zeitpunkt = ? WHERE id = 1";
+	private static final String HEARTBEAT_LESEN = "SELECT zeitpunkt FROM replika_heartbeat WHERE id = 1";
+	
+	// Markierung in der aktuellen JTA-Transaktion, dass die primaere DB bereits verwendet wurde
+	private static final String PRIMAER_VERWENDET = Replika.class.getName() + ".primaer";
+	
+	// EntityManager der Replika waehrend eines Aufrufs mit @ReadOnly
+	private static final ThreadLocal<EntityManager> ENTITY_MANAGER = new ThreadLocal<>();
+	
+	// In src\main\webapp\WEB-INF\web.xml kann der Wert gesetzt bzw. ueberschrieben werden
+	@Resource(name = "replikaMaxVerzoegerungMillis")
+	private Integer maxVerzoegerungMillis;
+	
+	@Resource(lookup = "java:jboss/datasources/shopDS")
+	private DataSource primaerDataSource;
+	
+	@Resource(lookup = "java:jboss/datasources/shopReplicaDS")
+	private DataSource replikaDataSource;
+	
+	@PersistenceUnit(unitName = "shopReplicaPU")
+	private EntityManagerFactory emf;
+	
+	@Resource
+	private TransactionSynchronizationRegistry tsr;
+	
+	@Resource
+	private ManagedScheduledExecutorService executor;
+	
+	private ScheduledFuture<?> future;
+	
+	// Nur vom Hintergrund-Thread verwendet
+	private long letzterHeartbeat;
+	
+	private volatile long verzoegerungMillis = UNBEKANNT;
+	private volatile long gemessen;
+	
+	private final AtomicLong aufrufeReplika = new AtomicLong();
+	private final AtomicLong aufrufePrimaer = new AtomicLong();
+	
+	@PostConstruct
+	private void postConstruct() {
+		if (maxVerzoegerungMillis == null || maxVerzoegerungMillis <= 0) {
+			maxVerzoegerungMillis = MAX_VERZOEGERUNG_MILLIS_DEFAULT;
+		}
+		
+		future = executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				messen();
+			}
+		}, 0, INTERVALL_MILLIS, MILLISECONDS);
+		
+		JmxHelper.register(JMX_TYPE, this);
+		LOGGER.infof("Replika mit einer maximalen Verzoegerung von %d ms", maxVerzoegerungMillis);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		future.cancel(false);
+		JmxHelper.unregister(JMX_TYPE);
+	}
+	
+	/**
+	 * @return Der EntityManager der Replika fuer den aktuellen Aufruf mit @ReadOnly oder null
+	 */
+	static EntityManager getEntityManager() {
+		return ENTITY_MANAGER.get();
+	}
+	
+	/**
+	 * Einen EntityManager der Replika fuer den aktuellen Thread oeffnen.
+	 * @return Der neue EntityManager oder null, falls die primaere DB verwendet werden muss
+	 */
+	EntityManager oeffnen() {
+		// Innerhalb einer Transaktion, die bereits geschrieben oder gelesen hat, die eigenen Daten sehen
+		if (tsr.getTransactionKey() != null && tsr.getResource(PRIMAER_VERWENDET) != null) {
+			aufrufePrimaer.incrementAndGet();
+			return null;
+		}
+		if (!isVerwendbar()) {
+			aufrufePrimaer.incrementAndGet();
+			return null;
+		}
+		
+		final EntityManager em = emf.createEntityManager();
+		// Keine Snapshots fuer Dirty Checking
+		em.unwrap(Session.class).setDefaultReadOnly(true);
+		ENTITY_MANAGER.set(em);
+		aufrufeReplika.incrementAndGet();
+		return em;
+	}
+	
+	/**
+	 * Den EntityManager der Replika nach dem Aufruf schliessen.
+	 * @param em Der von oeffnen() gelieferte EntityManager
+	 */
+	void schliessen(EntityManager em) {
+		ENTITY_MANAGER.remove();
+		em.close();
+	}
+	
+	/**
+	 * In der aktuellen Transaktion vermerken, dass die primaere DB verwendet wird.
+	 */
+	void primaerVerwendet() {
+		if (tsr.getTransactionKey() != null && tsr.getResource(PRIMAER_VERWENDET) == null) {
+			tsr.putResource(PRIMAER_VERWENDET, Boolean.TRUE);
+		}
+	}
+	
+	/**
+	 * Einen neuen Zeitstempel in die primaere DB schreiben und den zuletzt replizierten Zeitstempel
+	 * aus der Replika lesen.
+	 */
+	private void messen() {
+		final long jetzt = System.currentTimeMillis();
+		final long alteVerzoegerung = verzoegerungMillis;
+		try {
+			final long repliziert = lesen();
+			// Ist der vorherige Zeitstempel angekommen, liegt die Replika hoechstens ein Intervall zurueck
+			verzoegerungMillis = repliziert >= letzterHeartbeat ? 0 : jetzt - repliziert;
+			gemessen = jetzt;
+		}
+		catch (SQLException | RuntimeException e) {
+			verzoegerungMillis = UNBEKANNT;
+			if (alteVerzoegerung != UNBEKANNT) {
+				LOGGER.warnf("Die Replika ist nicht erreichbar: %s", e.getMessage());
+			}
+			return;
+		}
+		finally {
+			try {
+				schreiben(jetzt);
+				letzterHeartbeat = jetzt;
+			}
+			catch (SQLException | RuntimeException e) {
+				LOGGER.warnf("Der Heartbeat fuer die Replika konnte nicht geschrieben werden: %s", e.getMessage());
+			}
+		}
+		
+		final boolean zuLangsam = verzoegerungMillis > maxVerzoegerungMillis;
+		if (zuLangsam != alteVerzoegerung > maxVerzoegerungMillis || alteVerzoegerung == UNBEKANNT) {
+			LOGGER.infof("Verzoegerung der Replika %d ms: %s", verzoegerungMillis,
+			             zuLangsam ? "primaere DB wird verwendet" : "Replika wird verwendet");
+		}
+	}
+	
+	private long lesen() throws SQLException {
+		try (final Connection conn = replikaDataSource.getConnection();
+		     final PreparedStatement stmt = conn.prepareStatement(HEARTBEAT_LESEN);
+		     final ResultSet rs = stmt.executeQuery()) {
+			return rs.next() ? rs.getLong(1) : 0;
+		}
+	}
+	
+	private void schreiben(long zeitpunkt) throws SQLException {
+		try (final Connection conn = primaerDataSource.getConnection();
+		     final PreparedStatement stmt = conn.prepareStatement(HEARTBEAT_SCHREIBEN)) {
+			stmt.setLong(1, zeitpunkt);
+			stmt.executeUpdate();
+		}
+	}
+	
+	@Override
+	public long getVerzoegerungMillis() {
+		return verzoegerungMillis;
+	}
+	
+	@Override
+	public boolean isVerwendbar() {
+		final long verzoegerung = verzoegerungMillis;
+		return verzoegerung != UNBEKANNT
+		       && verzoegerung <= maxVerzoegerungMillis
+		       && System.currentTimeMillis() - gemessen <= MESSUNG_MAX_ALTER_MILLIS;
+	}
+	
+	@Override
+	public long getAufrufeReplika() {
+		return aufrufeReplika.get();
+	}
+	
+	@Override
+	public long getAufrufePrimaer() {
+		return aufrufePrimaer.get();
+	}
+}
@@ -0,0 +1,27 @@
+package de.shop.util.persistence;
+
+/**
+ * Kennzahlen der Replika, die per JMX unter de.shop:type=Replika abgefragt werden koennen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public interface ReplikaMXBean {
+	/**
+	 * @return Zuletzt gemessene Verzoegerung der Replika in Millisekunden oder -1, falls unbekannt
+	 */
+	long getVerzoegerungMillis();
+	
+	/**
+	 * @return true, falls Methoden mit @ReadOnly derzeit die Replika verwenden
+	 */
+	boolean isVerwendbar();
+	
+	/**
+	 * @return Anzahl der seit dem Start mit der Replika ausgefuehrten Aufrufe
+	 */
+	long getAufrufeReplika();
+	
+	/**
+	 * @return Anzahl der seit dem Start auf die primaere DB umgeleiteten Aufrufe
+	 */
+	long getAufrufePrimaer();
+}
@@ -0,0 +1,115 @@
+package de.shop.util.persistence;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.cdi.Eager;
+import de.shop.util.jmx.JmxHelper;
+
+/**
+ * Summen der SQL-Anweisungen, die der {@link StatementZaehler} je Transaktion ermittelt hat.
+ * Damit laesst sich pruefen, ob z.B. die Positionen einer neuen Bestellung per JDBC-Batching
+ * mit wenigen Anweisungen abgespeichert werden.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+@Eager
+public class StatementStatistik implements StatementStatistikMXBean {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String JMX_TYPE = "StatementStatistik";
+	
+	private final AtomicLong transaktionen = new AtomicLong();
+	private final AtomicLong insert = new AtomicLong();
+	private final AtomicLong update = new AtomicLong();
+	private final AtomicLong delete = new AtomicLong();
+	private final AtomicLong select = new AtomicLong();
+	private final AtomicLong entitiesGeschrieben = new AtomicLong();
+	private final AtomicLong maxDml = new AtomicLong();
+	private volatile long dmlLetzteTransaktion;
+	
+	@PostConstruct
+	private void postConstruct() {
+		JmxHelper.register(JMX_TYPE, this);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		JmxHelper.unregister(JMX_TYPE);
+	}
+	
+	/**
+	 * Die Anweisungen einer abgeschlossenen Transaktion erfassen.
+	 * @param anzahlInsert Anzahl der INSERT-Anweisungen
+	 * @param anzahlUpdate Anzahl der UPDATE-Anweisungen
+	 * @param anzahlDelete Anzahl der DELETE-Anweisungen
+	 * @param anzahlSelect Anzahl der SELECT-Anweisungen
+	 * @param anzahlEntities Anzahl der neu angelegten, geaenderten oder geloeschten Entities
+	 */
+	void erfassen(int anzahlInsert, int anzahlUpdate, int anzahlDelete, int anzahlSelect, int anzahlEntities) {
+		final long dml = anzahlInsert + anzahlUpdate + anzahlDelete;
+		transaktionen.incrementAndGet();
+		insert.addAndGet(anzahlInsert);
+		update.addAndGet(anzahlUpdate);
+		delete.addAndGet(anzahlDelete);
+		select.addAndGet(anzahlSelect);
+		entitiesGeschrieben.addAndGet(anzahlEntities);
+		dmlLetzteTransaktion = dml;
+		
+		long max = maxDml.get();
+		while (dml > max && !maxDml.compareAndSet(max, dml)) {
+			max = maxDml.get();
+		}
+		
+		if (LOGGER.isDebugEnabled() && anzahlEntities > 0) {
+			LOGGER.debugf("Transaktion mit %d Entities: %d INSERT, %d UPDATE, %d DELETE, %d SELECT",
+					      anzahlEntities, anzahlInsert, anzahlUpdate, anzahlDelete, anzahlSelect);
+		}
+	}
+	
+	@Override
+	public long getTransaktionen() {
+		return transaktionen.get();
+	}
+	
+	@Override
+	public long getInsert() {
+		return insert.get();
+	}
+	
+	@Override
+	public long getUpdate() {
+		return update.get();
+	}
+	
+	@Override
+	public long getDelete() {
+		return delete.get();
+	}
+	
+	@Override
+	public long getSelect() {
+		return select.get();
+	}
+	
+	@Override
+	public long getEntitiesGeschrieben() {
+		return entitiesGeschrieben.get();
+	}
+	
+	@Override
+	public long getMaxDmlProTransaktion() {
+		return maxDml.get();
+	}
+	
+	@Override
+	public long getDmlLetzteTransaktion() {
+		return dmlLetzteTransaktion;
+	}
+}
@@ -0,0 +1,48 @@
+package de.shop.util.persistence;
+
+/**
+ * Kennzahlen der SQL-Anweisungen je Transaktion, die per JMX unter de.shop:type=StatementStatistik
+ * abgefragt werden koennen. Beim JDBC-Batching wird eine Anweisung je Batch gezaehlt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public interface StatementStatistikMXBean {
+	/**
+	 * @return Anzahl der seit dem Start abgeschlossenen Transaktionen mit SQL-Anweisungen
+	 */
+	long getTransaktionen();
+	
+	/**
+	 * @return Anzahl der seit dem Start vorbereiteten INSERT-Anweisungen
+	 */
+	long getInsert();
+	
+	/**
+	 * @return Anzahl der seit dem Start vorbereiteten UPDATE-Anweisungen
+	 */
+	long getUpdate();
+	
+	/**
+	 * @return Anzahl der seit dem Start vorbereiteten DELETE-Anweisungen
+	 */
+	long getDelete();
+	
+	/**
+	 * @return Anzahl der seit dem Start vorbereiteten SELECT-Anweisungen
+	 */
+	long getSelect();
+	
+	/**
+	 * @return Anzahl der seit dem Start neu angelegten, geaenderten oder geloeschten Entities
+	 */
+	long getEntitiesGeschrieben();
+	
+	/**
+	 * @return Hoechste Anzahl an INSERT-, UPDATE- und DELETE-Anweisungen in einer Transaktion
+	 */
+	long getMaxDmlProTransaktion();
+	
+	/**
+	 * @return Anzahl der INSERT-, UPDATE- und DELETE-Anweisungen in der zuletzt abgeschlossenen Transaktion
+	 */
+	long getDmlLetzteTransaktion();
+}
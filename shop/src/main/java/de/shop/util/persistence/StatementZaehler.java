@@ -0,0 +1,134 @@
+package de.shop.util.persistence;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Locale;
+
+import javax.enterprise.inject.spi.CDI;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.jboss.logging.Logger;
+
+/**
+ * Hibernate-Interceptor, der die vorbereiteten SQL-Anweisungen einer Session nach INSERT, UPDATE, DELETE
+ * und SELECT getrennt zaehlt und nach dem Ende der Transaktion an die {@link StatementStatistik} meldet.
+ * Beim JDBC-Batching wird eine Anweisung nur einmal je Batch vorbereitet, d.h. die Anzahl entspricht
+ * den Round-Trips zur DB und nicht der Anzahl der Datensaetze.
+ * <p>
+ * Der Interceptor wird in META-INF\persistence.xml mit "hibernate.ejb.interceptor.session_scoped"
+ * registriert, so dass Hibernate fuer jede Session ein eigenes Objekt erzeugt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public class StatementZaehler extends EmptyInterceptor {
+	private static final long serialVersionUID = 2518764023465918324L;
+	
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	// Der Interceptor wird von Hibernate und nicht durch CDI erzeugt
+	private static volatile StatementStatistik statistik;
+	
+	private int insert;
+	private int update;
+	private int delete;
+	private int select;
+	private int entities;
+	
+	@Override
+	public String onPrepareStatement(String sql) {
+		switch (getOperation(sql)) {
+			case "insert":
+				insert++;
+				break;
+			case "update":
+				update++;
+				break;
+			case "delete":
+				delete++;
+				break;
+			case "select":
+				select++;
+				break;
+			default:
+				break;
+		}
+		return sql;
+	}
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		entities++;
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+			                    String[] propertyNames, Type[] types) {
+		entities++;
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		entities++;
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		if (insert + update + delete + select > 0) {
+			try {
+				getStatistik().erfassen(insert, update, delete, select, entities);
+			}
+			catch (RuntimeException e) {
+				// Die Statistik darf den Abschluss der Transaktion nicht beeinflussen, z.B. beim Undeployment
+				LOGGER.tracef("Keine Statistik fuer die SQL-Anweisungen: %s", e.getMessage());
+			}
+		}
+		insert = 0;
+		update = 0;
+		delete = 0;
+		select = 0;
+		entities = 0;
+	}
+	
+	private static StatementStatistik getStatistik() {
+		StatementStatistik result = statistik;
+		if (result == null) {
+			result = CDI.current().select(StatementStatistik.class).get();
+			statistik = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Das erste Schluesselwort einer SQL-Anweisung in Kleinbuchstaben ermitteln. Ein vorangestellter
+	 * Kommentar, z.B. durch "hibernate.use_sql_comments", wird uebersprungen.
+	 */
+	private static String getOperation(String sql) {
+		final int laenge = sql.length();
+		int i = 0;
+		while (i < laenge) {
+			final char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			}
+			else if (c == '/' && sql.startsWith("/*", i)) {
+				final int ende = sql.indexOf("*/", i + 2);
+				if (ende < 0) {
+					return "";
+				}
+				i = ende + 2;
+			}
+			else {
+				break;
+			}
+		}
+		
+		int j = i;
+		while (j < laenge && Character.isLetter(sql.charAt(j))) {
+			j++;
+		}
+		return sql.substring(i, j).toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,44 @@
+package de.shop.util.persistence;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Hilfsklasse, um Aktionen erst nach dem erfolgreichen Commit der aktuellen JTA-Transaktion auszufuehren,
+ * z.B. um einen Cache im Hauptspeicher nur mit tatsaechlich abgespeicherten Daten zu aktualisieren.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class TransactionHelper {
+	@Resource
+	private TransactionSynchronizationRegistry tsr;
+
+	/**
+	 * Eine Aktion nach dem Commit der aktuellen Transaktion ausfuehren. Bei einem Rollback wird die Aktion
+	 * verworfen. Gibt es keine aktuelle Transaktion, wird die Aktion sofort ausgefuehrt.
+	 * @param aktion Die auszufuehrende Aktion
+	 */
+	public void afterCommit(final Runnable aktion) {
+		if (tsr.getTransactionKey() == null) {
+			aktion.run();
+			return;
+		}
+
+		tsr.registerInterposedSynchronization(new Synchronization() {
+			@Override
+			public void beforeCompletion() {
+				// nichts zu tun
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				if (status == Status.STATUS_COMMITTED) {
+					aktion.run();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,269 @@
+package de.shop.util.rest;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.jmx.JmxHelper;
+
+/**
+ * Access-Log mit einem Eintrag je Request als JSON-Zeile. Die Eintraege werden in einem Ringpuffer
+ * abgelegt und von einem Hintergrund-Thread in Batches in eine taeglich neue Datei im Log-Verzeichnis
+ * des Servers geschrieben, so dass der Request-Thread nicht auf die Datei warten muss. Ist der Puffer
+ * voll, werden Eintraege verworfen und gezaehlt.
+ * <p>
+ * Nur bei Requests, die laenger als der konfigurierte Schwellwert dauern, werden auch Details wie
+ * URI, Accept und Content-Type protokolliert.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class AccessLog implements AccessLogMXBean {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String JMX_TYPE = "AccessLog";
+	private static final String LOG_DIR_PROPERTY = "jboss.server.log.dir";
+	private static final String DATEINAME_PREFIX = "shop-access-";
+	private static final String DATEINAME_SUFFIX = ".log";
+	
+	private static final int PUFFER_GROESSE_DEFAULT = 8192;
+	private static final int LANGSAM_MILLIS_DEFAULT = 1000;
+	private static final int BATCH_GROESSE = 512;
+	private static final long INTERVALL_MILLIS = 200;
+	
+	// In src\main\webapp\WEB-INF\web.xml koennen die Werte gesetzt bzw. ueberschrieben werden
+	@Resource(name = "accessLogPuffer")
+	private Integer pufferGroesse;
+	
+	@Resource(name = "accessLogLangsamMillis")
+	private Integer langsamMillis;
+	
+	@Resource
+	private ManagedScheduledExecutorService executor;
+	
+	private BlockingQueue<AccessLogEintrag> puffer;
+	private long langsamNanos;
+	private ScheduledFuture<?> future;
+	
+	// Nur vom Hintergrund-Thread verwendet
+	private final List<AccessLogEintrag> batch = new ArrayList<>(BATCH_GROESSE);
+	private final SimpleDateFormat zeitFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+	private final SimpleDateFormat datumFormat = new SimpleDateFormat("yyyy-MM-dd");
+	private File verzeichnis;
+	private String datum;
+	private BufferedWriter writer;
+	
+	private final AtomicLong geschrieben = new AtomicLong();
+	private final AtomicLong verworfen = new AtomicLong();
+	private final AtomicLong langsam = new AtomicLong();
+	
+	@PostConstruct
+	private void postConstruct() {
+		if (pufferGroesse == null || pufferGroesse <= 0) {
+			pufferGroesse = PUFFER_GROESSE_DEFAULT;
+		}
+		if (langsamMillis == null || langsamMillis <= 0) {
+			langsamMillis = LANGSAM_MILLIS_DEFAULT;
+		}
+		langsamNanos = MILLISECONDS.toNanos(langsamMillis);
+		puffer = new ArrayBlockingQueue<>(pufferGroesse);
+		verzeichnis = new File(System.getProperty(LOG_DIR_PROPERTY, System.getProperty("java.io.tmpdir")));
+		
+		future = executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				schreiben();
+			}
+		}, INTERVALL_MILLIS, INTERVALL_MILLIS, MILLISECONDS);
+		
+		JmxHelper.register(JMX_TYPE, this);
+		LOGGER.infof("Access-Log im Verzeichnis %s mit einem Puffer fuer %d Eintraege", verzeichnis, pufferGroesse);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		future.cancel(false);
+		JmxHelper.unregister(JMX_TYPE);
+		synchronized (batch) {
+			schreiben();
+			schliessen();
+		}
+	}
+	
+	/**
+	 * @param dauerNanos Bisherige Dauer eines Requests
+	 * @return true, falls der Request langsam ist und mit Details protokolliert werden soll
+	 */
+	boolean isLangsam(long dauerNanos) {
+		return dauerNanos > langsamNanos;
+	}
+	
+	/**
+	 * Einen abgeschlossenen Request protokollieren, ohne zu blockieren.
+	 * @param eintrag Die Daten des Requests
+	 */
+	void add(AccessLogEintrag eintrag) {
+		if (!puffer.offer(eintrag)) {
+			verworfen.incrementAndGet();
+		}
+		if (eintrag.langsam) {
+			langsam.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Die Eintraege im Puffer in Batches in die Datei schreiben.
+	 */
+	private void schreiben() {
+		synchronized (batch) {
+			try {
+				while (puffer.drainTo(batch, BATCH_GROESSE) > 0) {
+					final BufferedWriter w = getWriter();
+					for (AccessLogEintrag eintrag : batch) {
+						w.write(toJson(eintrag));
+						w.newLine();
+					}
+					w.flush();
+					geschrieben.addAndGet(batch.size());
+					batch.clear();
+				}
+			}
+			catch (IOException e) {
+				verworfen.addAndGet(batch.size());
+				batch.clear();
+				schliessen();
+				LOGGER.warnf(e, "Das Access-Log konnte nicht geschrieben werden");
+			}
+		}
+	}
+	
+	/**
+	 * Writer fuer die Datei des aktuellen Tages, bei einem neuen Tag wird eine neue Datei begonnen.
+	 */
+	private BufferedWriter getWriter() throws IOException {
+		final String heute = datumFormat.format(new Date());
+		if (writer != null && heute.equals(datum)) {
+			return writer;
+		}
+		
+		schliessen();
+		final File datei = new File(verzeichnis, DATEINAME_PREFIX + heute + DATEINAME_SUFFIX);
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(datei, true),
+				                                           StandardCharsets.UTF_8));
+		datum = heute;
+		return writer;
+	}
+	
+	private void schliessen() {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.close();
+		}
+		catch (IOException e) {
+			LOGGER.warnf(e, "Das Access-Log konnte nicht geschlossen werden");
+		}
+		writer = null;
+	}
+	
+	private String toJson(AccessLogEintrag eintrag) {
+		final StringBuilder sb = new StringBuilder(256);
+		sb.append('{');
+		appendString(sb, "zeit", zeitFormat.format(new Date(eintrag.zeitpunkt)));
+		sb.append(',');
+		appendString(sb, "methode", eintrag.methode);
+		sb.append(',');
+		appendString(sb, "pfad", eintrag.pfad);
+		sb.append(",\"status\":").append(eintrag.status)
+		  .append(",\"bytes\":").append(eintrag.bytes)
+		  .append(",\"dauerMikros\":").append(eintrag.dauerMikros)
+		  .append(',');
+		appendString(sb, "principal", eintrag.principal);
+		if (eintrag.langsam) {
+			sb.append(',');
+			appendString(sb, "uri", toString(eintrag.uri));
+			sb.append(',');
+			appendString(sb, "accept", eintrag.accept);
+			sb.append(',');
+			appendString(sb, "contentType", eintrag.contentType);
+			sb.append(',');
+			appendString(sb, "sprachen", eintrag.sprachen);
+			sb.append(',');
+			appendString(sb, "location", toString(eintrag.location));
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+	
+	private static String toString(Object wert) {
+		return wert == null ? null : wert.toString();
+	}
+	
+	private static void appendString(StringBuilder sb, String name, String wert) {
+		sb.append('"').append(name).append("\":");
+		if (wert == null) {
+			sb.append("null");
+			return;
+		}
+		sb.append('"');
+		for (int i = 0; i < wert.length(); i++) {
+			final char c = wert.charAt(i);
+			switch (c) {
+				case '"':
+				case '\\':
+					sb.append('\\').append(c);
+					break;
+				default:
+					if (c < ' ') {
+						sb.append(String.format("\\u%04x", (int) c));
+					}
+					else {
+						sb.append(c);
+					}
+			}
+		}
+		sb.append('"');
+	}
+	
+	@Override
+	public long getGeschrieben() {
+		return geschrieben.get();
+	}
+	
+	@Override
+	public long getVerworfen() {
+		return verworfen.get();
+	}
+	
+	@Override
+	public long getLangsam() {
+		return langsam.get();
+	}
+	
+	@Override
+	public int getImPuffer() {
+		return puffer.size();
+	}
+}
@@ -0,0 +1,38 @@
+package de.shop.util.rest;
+
+import java.net.URI;
+
+/**
+ * Daten eines Requests fuer das Access-Log. Die Details werden im Response-Filter kopiert, aber nur bei
+ * langsamen Requests ausgegeben.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+final class AccessLogEintrag {
+	final long startNanos;
+	final String methode;
+	final String pfad;
+	final int status;
+	final String principal;
+	
+	long zeitpunkt;
+	long bytes;
+	long dauerMikros;
+	
+	boolean langsam;
+	
+	// Details fuer langsame Requests: Referenzen bzw. unveraenderte Header-Werte, d.h. ohne Kosten
+	// fuer Requests, die nicht langsam sind
+	URI uri;
+	String accept;
+	String contentType;
+	String sprachen;
+	URI location;
+	
+	AccessLogEintrag(long startNanos, String methode, String pfad, int status, String principal) {
+		this.startNanos = startNanos;
+		this.methode = methode;
+		this.pfad = pfad;
+		this.status = status;
+		this.principal = principal;
+	}
+}
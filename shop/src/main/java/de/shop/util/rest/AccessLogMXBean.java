@@ -0,0 +1,27 @@
+package de.shop.util.rest;
+
+/**
+ * Kennzahlen des Access-Logs, die per JMX unter de.shop:type=AccessLog abgefragt werden koennen.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public interface AccessLogMXBean {
+	/**
+	 * @return Anzahl der seit dem Start geschriebenen Eintraege
+	 */
+	long getGeschrieben();
+	
+	/**
+	 * @return Anzahl der seit dem Start verworfenen Eintraege, weil der Puffer voll war
+	 */
+	long getVerworfen();
+	
+	/**
+	 * @return Anzahl der seit dem Start protokollierten langsamen Requests mit Details
+	 */
+	long getLangsam();
+	
+	/**
+	 * @return Anzahl der Eintraege, die noch im Puffer sind
+	 */
+	int getImPuffer();
+}
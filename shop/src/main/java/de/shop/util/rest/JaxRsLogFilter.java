@@ -1,48 +1,146 @@
 package de.shop.util.rest;
 
 import java.io.IOException;
-import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
 import java.security.Principal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.inject.Inject;
+import javax.ws.rs.Path;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
 
-import org.jboss.logging.Logger;
+import com.google.common.io.CountingOutputStream;
 
 /**
+ * Ein Eintrag im Access-Log je Request mit Methode, Pfad-Template, Status, Bytes, Dauer und Principal.
+ * Bei einem Response mit Body wird der Eintrag erst nach dem Schreiben des Body erstellt, damit
+ * die Anzahl der Bytes und die gesamte Dauer bekannt sind.
  * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
  */
 @Provider
-public class JaxRsLogFilter implements ContainerRequestFilter, ContainerResponseFilter {
-	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+public class JaxRsLogFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+	private static final String PROPERTY_START = JaxRsLogFilter.class.getName() + ".start";
+	private static final String PROPERTY_EINTRAG = JaxRsLogFilter.class.getName() + ".eintrag";
+	private static final long NANOS_PRO_MIKRO = 1000;
+	
+	// Pfad-Template je Resource-Methode, z.B. /kunden/{kundeId:[1-9][0-9]*}
+	private static final ConcurrentMap<Method, String> PFADE = new ConcurrentHashMap<>();
+	
+	@Context
+	private ResourceInfo resourceInfo;
+	
+	@Inject
+	private AccessLog accessLog;
 	
 	@Override
 	public void filter(ContainerRequestContext requestCtx) throws IOException {
-		LOGGER.debugf("URI: %s", requestCtx.getUriInfo().getAbsolutePath());
-		LOGGER.debugf("Method: %s", requestCtx.getMethod());
-		LOGGER.debugf("Acceptable Media Types: %s", requestCtx.getAcceptableMediaTypes());
-		LOGGER.debugf("Content Type: %s", requestCtx.getHeaderString("content-type"));
-		final SecurityContext securityCtx = requestCtx.getSecurityContext();
-		if (securityCtx == null) {
-			LOGGER.debug("Security Context: null");
-		}
-		else {
-			LOGGER.debugf("Authentication Scheme: %s", securityCtx.getAuthenticationScheme());
-			final Principal principal = securityCtx.getUserPrincipal();
-			final String principalName = principal == null ? null : principal.getName();
-			LOGGER.debugf("Principal: %s", principalName);
-		}
-		LOGGER.debugf("Authorization: %s", requestCtx.getHeaderString("authorization"));
-		LOGGER.debugf("Acceptable Languages: %s", requestCtx.getAcceptableLanguages());
+		requestCtx.setProperty(PROPERTY_START, System.nanoTime());
 	}
 
 	@Override
 	public void filter(ContainerRequestContext requestCtx, ContainerResponseContext responseCtx) throws IOException {
-		LOGGER.debugf("Status Info: %d %s", responseCtx.getStatus(), responseCtx.getStatusInfo());
-		LOGGER.debugf("Location: %s", responseCtx.getLocation());		
+		final Long start = (Long) requestCtx.getProperty(PROPERTY_START);
+		final SecurityContext securityCtx = requestCtx.getSecurityContext();
+		final Principal principal = securityCtx == null ? null : securityCtx.getUserPrincipal();
+		final AccessLogEintrag eintrag = new AccessLogEintrag(start == null ? System.nanoTime() : start,
+				                                              requestCtx.getMethod(), getPfad(requestCtx),
+				                                              responseCtx.getStatus(),
+				                                              principal == null ? null : principal.getName());
+		
+		// Details fuer langsame Requests kopieren, weil der Eintrag evtl. erst in aroundWriteTo() abgeschlossen
+		// wird; der Authorization-Header wird nie protokolliert
+		eintrag.uri = requestCtx.getUriInfo().getRequestUri();
+		eintrag.accept = requestCtx.getHeaderString(HttpHeaders.ACCEPT);
+		eintrag.contentType = requestCtx.getHeaderString(HttpHeaders.CONTENT_TYPE);
+		eintrag.sprachen = requestCtx.getHeaderString(HttpHeaders.ACCEPT_LANGUAGE);
+		eintrag.location = responseCtx.getLocation();
+		
+		if (responseCtx.hasEntity()) {
+			// Abschluss in aroundWriteTo()
+			requestCtx.setProperty(PROPERTY_EINTRAG, eintrag);
+			return;
+		}
+		abschliessen(eintrag, 0);
+	}
+	
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext ctx) throws IOException {
+		final AccessLogEintrag eintrag = (AccessLogEintrag) ctx.getProperty(PROPERTY_EINTRAG);
+		if (eintrag == null) {
+			ctx.proceed();
+			return;
+		}
+		ctx.removeProperty(PROPERTY_EINTRAG);
+		
+		final CountingOutputStream out = new CountingOutputStream(ctx.getOutputStream());
+		ctx.setOutputStream(out);
+		try {
+			ctx.proceed();
+		}
+		finally {
+			abschliessen(eintrag, out.getCount());
+		}
+	}
+	
+	private void abschliessen(AccessLogEintrag eintrag, long bytes) {
+		final long dauerNanos = System.nanoTime() - eintrag.startNanos;
+		eintrag.zeitpunkt = System.currentTimeMillis();
+		eintrag.bytes = bytes;
+		eintrag.dauerMikros = dauerNanos / NANOS_PRO_MIKRO;
+		// Details nur bei langsamen Requests ausgeben
+		eintrag.langsam = accessLog.isLangsam(dauerNanos);
+		accessLog.add(eintrag);
+	}
+	
+	/**
+	 * Pfad-Template der aufgerufenen Resource-Methode oder der Pfad, falls keine Methode gefunden wurde.
+	 */
+	private String getPfad(ContainerRequestContext requestCtx) {
+		final Method method = resourceInfo == null ? null : resourceInfo.getResourceMethod();
+		if (method == null) {
+			return "/" + requestCtx.getUriInfo().getPath(true);
+		}
+		
+		String pfad = PFADE.get(method);
+		if (pfad == null) {
+			pfad = getPfadTemplate(resourceInfo.getResourceClass(), method);
+			PFADE.putIfAbsent(method, pfad);
+		}
+		return pfad;
+	}
+	
+	private static String getPfadTemplate(Class<?> clazz, Method method) {
+		// Bei einem Proxy ist die Annotation @Path an der Oberklasse
+		Class<?> c = clazz;
+		while (c != null && !c.isAnnotationPresent(Path.class)) {
+			c = c.getSuperclass();
+		}
+		final StringBuilder sb = new StringBuilder();
+		if (c != null) {
+			appendPfad(sb, c.getAnnotation(Path.class).value());
+		}
+		final Path methodPath = method.getAnnotation(Path.class);
+		if (methodPath != null) {
+			appendPfad(sb, methodPath.value());
+		}
+		return sb.length() == 0 ? "/" : sb.toString();
+	}
+	
+	private static void appendPfad(StringBuilder sb, String pfad) {
+		if (!pfad.startsWith("/")) {
+			sb.append('/');
+		}
+		sb.append(pfad.endsWith("/") ? pfad.substring(0, pfad.length() - 1) : pfad);
 	}
 }
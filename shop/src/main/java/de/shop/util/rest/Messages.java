@@ -12,6 +12,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -29,7 +31,7 @@ import com.google.common.base.Splitter;
 public class Messages {
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
-	private static final String APPLICATION_MESSAGES = "/ApplicationMessages";
+	private static final String APPLICATION_MESSAGES = "ApplicationMessages";
 	private static final List<Locale> LOCALES_DEFAULT = Arrays.asList(Locale.ENGLISH);
 	
 	@Resource(name = "locales")
@@ -40,6 +42,11 @@ public class Messages {
 	private transient Map<Locale, ResourceBundle> bundles;
 	private transient Map<String, ResourceBundle> bundlesLanguageStr;	 // z.B. "en" als Schluessel auch fuer en_US
 	
+	// Bereits uebersetzte MessageFormat-Objekte je ResourceBundle und Schluessel. Es gibt nur wenige
+	// Bundles, d.h. auch viele verschiedene Werte im Header Accept-Language, z.B. bei Crawlern,
+	// fuehren nicht zu weiteren Eintraegen.
+	private transient Map<ResourceBundle, ConcurrentMap<String, MessageFormat>> messageFormats;
+	
 	@PostConstruct
 	private void postConstruct() {
 		List<Locale> localesList;
@@ -85,18 +92,29 @@ public class Messages {
 		}
 		
 		defaultBundle = bundles.get(localesList.get(0));
+		
+		messageFormats = new HashMap<>();
+		for (ResourceBundle bundle : bundles.values()) {
+			messageFormats.put(bundle, new ConcurrentHashMap<String, MessageFormat>());
+		}
 	}
 	
 	public String getMessage(HttpHeaders headers, String key, Object... args) {
-		final List<Locale> acceptableLocales = headers.getAcceptableLanguages();
-		final ResourceBundle bundle = getBundle(acceptableLocales);
-		
-		final String pattern = bundle.getString(key);
-		final Locale locale = acceptableLocales == null || acceptableLocales.isEmpty()
-				              ? Locale.getDefault()
-				              : acceptableLocales.get(0);
-		final MessageFormat messageFormat = new MessageFormat(pattern, locale);
-		return messageFormat.format(args);
+		final MessageFormat messageFormat = getMessageFormat(getBundle(headers.getAcceptableLanguages()), key);
+		// MessageFormat ist nicht thread-safe: jeder Aufruf formatiert mit einer eigenen Kopie, statt die
+		// Formatierung aller Requests mit demselben Schluessel zu serialisieren
+		return ((MessageFormat) messageFormat.clone()).format(args);
+	}
+	
+	private MessageFormat getMessageFormat(ResourceBundle bundle, String key) {
+		final ConcurrentMap<String, MessageFormat> formats = messageFormats.get(bundle);
+		final MessageFormat messageFormat = formats.get(key);
+		if (messageFormat != null) {
+			return messageFormat;
+		}
+		final MessageFormat neu = new MessageFormat(bundle.getString(key), bundle.getLocale());
+		final MessageFormat vorhanden = formats.putIfAbsent(key, neu);
+		return vorhanden == null ? neu : vorhanden;
 	}
 	
 	private ResourceBundle getBundle(List<Locale> locales) {
@@ -0,0 +1,26 @@
+package de.shop.util.rest;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import de.shop.util.metrics.MetricsRegistry;
+
+/**
+ * Ausgabe der Kennzahlen im Textformat von Prometheus, z.B. fuer das Scraping durch einen Prometheus-Server.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Path("/metrics")
+public class MetricsResource {
+	private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4";
+	
+	@Inject
+	private MetricsRegistry registry;
+	
+	@GET
+	@Produces(PROMETHEUS_TEXT)
+	public String getMetrics() {
+		return registry.toPrometheus();
+	}
+}
@@ -10,7 +10,8 @@ public class NotFoundException extends RuntimeException {
 	private final Object[] args;
 
 	public NotFoundException(String msg, Object... args) {
-		super(msg);
+		// Ohne Stacktrace, da "nicht gefunden" ein erwartetes Ergebnis ist, z.B. bei Crawlern
+		super(msg, null, false, false);
 		this.args = args;
 	}
 
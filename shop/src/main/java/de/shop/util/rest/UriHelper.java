@@ -1,25 +1,145 @@
 package de.shop.util.rest;
 
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 /**
+ * URIs fuer Links zu Resource-Klassen und -Methoden. Die Pfad-Templates einer Resource-Klasse werden
+ * beim ersten Aufruf einmalig aus den Annotationen &#064;Path ermittelt. Danach wird eine URI durch
+ * Verketten der Basis-URI mit dem Template und der ID gebildet, ohne einen UriBuilder zu erzeugen.
  * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
  */
 @ApplicationScoped
 public class UriHelper {
+	// Pfad-Templates je Resource-Klasse
+	private static final ClassValue<Pfade> PFADE = new ClassValue<Pfade>() {
+		@Override
+		protected Pfade computeValue(Class<?> clazz) {
+			return new Pfade(clazz);
+		}
+	};
+	
+	/**
+	 * Pfad zur Resource-Klasse und Pfade zu den Methoden mit &#064;Path; Schluessel ist der Methodenname.
+	 * Mehrdeutige Methodennamen werden nicht aufgenommen, damit der UriBuilder wie bisher den Fehler meldet.
+	 */
+	private static final class Pfade {
+		private final Pfad klasse;
+		private final Map<String, Pfad> methoden = new HashMap<>();
+		
+		private Pfade(Class<?> clazz) {
+			klasse = new Pfad(UriBuilder.fromPath("").path(clazz).toTemplate());
+			
+			final Set<String> mehrdeutig = new HashSet<>();
+			for (Method method : clazz.getMethods()) {
+				if (!method.isAnnotationPresent(Path.class)) {
+					continue;
+				}
+				final String name = method.getName();
+				if (mehrdeutig.contains(name)) {
+					continue;
+				}
+				if (methoden.containsKey(name)) {
+					methoden.remove(name);
+					mehrdeutig.add(name);
+					continue;
+				}
+				methoden.put(name, new Pfad(UriBuilder.fromPath("").path(clazz).path(method).toTemplate()));
+			}
+		}
+	}
+	
+	/**
+	 * Pfad relativ zur Basis-URI, aufgeteilt an der Stelle des Template-Parameters, z.B. "/kunden/" und
+	 * "/bestellungen" bei /kunden/{id:[1-9][0-9]*}/bestellungen. Ein Pfad mit mehreren Parametern wird
+	 * weiterhin mit einem UriBuilder aufgebaut.
+	 */
+	private static final class Pfad {
+		private final String template;
+		private final String vorId;
+		private final String nachId;
+		private final boolean mehrereParameter;
+		
+		private Pfad(String template) {
+			this.template = template.startsWith("/") ? template : "/" + template;
+			
+			final int beginn = this.template.indexOf('{');
+			if (beginn < 0) {
+				vorId = this.template;
+				nachId = null;
+				mehrereParameter = false;
+				return;
+			}
+			final int ende = getEndeParameter(this.template, beginn);
+			vorId = this.template.substring(0, beginn);
+			nachId = this.template.substring(ende + 1);
+			mehrereParameter = nachId.indexOf('{') >= 0;
+		}
+		
+		/**
+		 * Position der schliessenden Klammer eines Parameters, auch bei Klammern im regulaeren Ausdruck
+		 * wie z.B. {plz:[0-9]{5}}
+		 */
+		private static int getEndeParameter(String template, int beginn) {
+			int tiefe = 0;
+			for (int i = beginn; i < template.length(); i++) {
+				final char c = template.charAt(i);
+				if (c == '{') {
+					tiefe++;
+				}
+				else if (c == '}') {
+					tiefe--;
+					if (tiefe == 0) {
+						return i;
+					}
+				}
+			}
+			throw new IllegalArgumentException("Ungueltiges Pfad-Template: " + template);
+		}
+		
+		private URI getUri(UriInfo uriInfo, Long id) {
+			if (mehrereParameter) {
+				return uriInfo.getBaseUriBuilder()
+				              .path(template)
+				              .build(id);
+			}
+			
+			String basis = uriInfo.getBaseUri().toString();
+			if (basis.endsWith("/")) {
+				basis = basis.substring(0, basis.length() - 1);
+			}
+			if (nachId == null) {
+				return URI.create(basis + vorId);
+			}
+			if (id == null) {
+				throw new IllegalArgumentException("Keine ID fuer das Pfad-Template " + template);
+			}
+			return URI.create(basis + vorId + id + nachId);
+		}
+	}
+	
 	public URI getUri(Class<?> clazz, UriInfo uriInfo) {
-		return uriInfo.getBaseUriBuilder()
-		              .path(clazz)
-		              .build();
+		return PFADE.get(clazz).klasse.getUri(uriInfo, null);
 	}
 
 	public URI getUri(Class<?> clazz, String methodName, Long id, UriInfo uriInfo) {
-		return uriInfo.getBaseUriBuilder()
-		              .path(clazz)
-		              .path(clazz, methodName)
-		              .build(id);
+		final Pfad pfad = PFADE.get(clazz).methoden.get(methodName);
+		if (pfad == null) {
+			// Methode ohne @Path oder mehrdeutig: wie bisher, d.h. mit IllegalArgumentException des UriBuilder
+			return uriInfo.getBaseUriBuilder()
+			              .path(clazz)
+			              .path(clazz, methodName)
+			              .build(id);
+		}
+		return pfad.getUri(uriInfo, id);
 	}
 }
@@ -0,0 +1,101 @@
+package de.shop.util.rest;
+
+import static javax.ws.rs.core.HttpHeaders.ACCEPT;
+import static javax.ws.rs.core.HttpHeaders.IF_MODIFIED_SINCE;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
+import static javax.ws.rs.core.HttpHeaders.VARY;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+import static javax.ws.rs.core.MediaType.TEXT_XML_TYPE;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Variant;
+
+/**
+ * Hilfsmethoden fuer bedingte GET-Requests mit If-None-Match bzw. If-Modified-Since. Das ETag wird aus
+ * der ID, dem Zeitstempel "aktualisiert", der bei jeder Aenderung durch &#064;PreUpdate neu gesetzt wird,
+ * und dem ausgehandelten Medientyp gebildet. Dadurch ist es ein starkes ETag fuer genau eine Darstellung
+ * (JSON oder XML); der Response legt deshalb den Medientyp fest und enthaelt "Vary: Accept".
+ * Last-Modified wird auf Sekunden abgerundet, weil HTTP-Datumsangaben keine Millisekunden enthalten.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+public final class Vorbedingungen {
+	private static final long MILLIS_PRO_SEKUNDE = TimeUnit.SECONDS.toMillis(1);
+	
+	// In derselben Reihenfolge wie bei @Produces der Resource-Klassen, d.h. JSON wird bevorzugt
+	private static final List<Variant> VARIANTEN = Variant.mediaTypes(APPLICATION_JSON_TYPE, APPLICATION_XML_TYPE,
+			                                                          TEXT_XML_TYPE)
+			                                              .build();
+	
+	private Vorbedingungen() {
+	}
+	
+	/**
+	 * Enthaelt der Request eine Bedingung, so dass sich ein vorheriges Ermitteln des Zeitstempels lohnt?
+	 */
+	public static boolean isBedingt(HttpHeaders headers) {
+		return headers.getHeaderString(IF_NONE_MATCH) != null || headers.getHeaderString(IF_MODIFIED_SINCE) != null;
+	}
+	
+	/**
+	 * Den Medientyp des Response-Body gemaess Accept-Header aushandeln.
+	 * @param request Der aktuelle Request
+	 * @return JSON, XML oder text/xml; JSON, falls keine der Varianten akzeptiert wird
+	 */
+	public static MediaType getMediaType(Request request) {
+		final Variant variante = request.selectVariant(VARIANTEN);
+		return variante == null ? APPLICATION_JSON_TYPE : variante.getMediaType();
+	}
+	
+	public static EntityTag getEtag(Long id, Date aktualisiert, MediaType mediaType) {
+		return new EntityTag(id + "-" + aktualisiert.getTime() + "-" + mediaType.getType() + "/"
+				             + mediaType.getSubtype());
+	}
+	
+	public static Date getLastModified(Date aktualisiert) {
+		final long millis = aktualisiert.getTime();
+		return new Date(millis - millis % MILLIS_PRO_SEKUNDE);
+	}
+	
+	/**
+	 * If-None-Match und If-Modified-Since auswerten.
+	 * @param request Der aktuelle Request
+	 * @param id ID des angeforderten Objekts
+	 * @param aktualisiert Zeitstempel der letzten Aenderung; null, falls unbekannt
+	 * @return ResponseBuilder fuer "304 Not Modified" mit ETag und Last-Modified oder null,
+	 *         falls der Response einen Body haben muss
+	 */
+	public static ResponseBuilder pruefen(Request request, Long id, Date aktualisiert) {
+		if (aktualisiert == null) {
+			return null;
+		}
+		final EntityTag etag = getEtag(id, aktualisiert, getMediaType(request));
+		final Date lastModified = getLastModified(aktualisiert);
+		final ResponseBuilder builder = request.evaluatePreconditions(lastModified, etag);
+		return builder == null ? null : builder.tag(etag)
+		                                       .lastModified(lastModified)
+		                                       .header(VARY, ACCEPT);
+	}
+	
+	/**
+	 * Medientyp, ETag, Last-Modified und "Vary: Accept" fuer einen Response mit Body setzen.
+	 */
+	public static ResponseBuilder setzen(ResponseBuilder builder, Request request, Long id, Date aktualisiert) {
+		if (aktualisiert == null) {
+			return builder;
+		}
+		final MediaType mediaType = getMediaType(request);
+		return builder.type(mediaType)
+		              .tag(getEtag(id, aktualisiert, mediaType))
+		              .lastModified(getLastModified(aktualisiert))
+		              .header(VARY, ACCEPT);
+	}
+}
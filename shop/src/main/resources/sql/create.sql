@@ -4,8 +4,53 @@
 -- ===============================================================================
 
 
+-- Sequenzen je Entity: INCREMENT BY muss mit allocation-size in META-INF/orm.xml uebereinstimmen
+
+--
+-- kunde_seq
+--
+DROP SEQUENCE kunde_seq;
+CREATE SEQUENCE kunde_seq START WITH 5000 INCREMENT BY 50;
+
+--
+-- adresse_seq
+--
+DROP SEQUENCE adresse_seq;
+CREATE SEQUENCE adresse_seq START WITH 5000 INCREMENT BY 50;
+
+--
+-- artikel_seq
+--
+DROP SEQUENCE artikel_seq;
+CREATE SEQUENCE artikel_seq START WITH 5000 INCREMENT BY 50;
+
+--
+-- bestellung_seq
+--
+DROP SEQUENCE bestellung_seq;
+CREATE SEQUENCE bestellung_seq START WITH 5000 INCREMENT BY 50;
+
+--
+-- bestellposition_seq
+--
+DROP SEQUENCE bestellposition_seq;
+CREATE SEQUENCE bestellposition_seq START WITH 5000 INCREMENT BY 50;
+
+--
+-- lieferung_seq
+--
+DROP SEQUENCE lieferung_seq;
+CREATE SEQUENCE lieferung_seq START WITH 5000 INCREMENT BY 50;
+
+--
+-- mail_auftrag_seq
+--
+DROP SEQUENCE mail_auftrag_seq;
+CREATE SEQUENCE mail_auftrag_seq START WITH 5000 INCREMENT BY 50;
+
+-- Zeitstempel der primaeren DB, um die Verzoegerung der Replika zu messen
+
 --
--- hibernate_sequence
+-- replika_heartbeat
 --
-DROP SEQUENCE hibernate_sequence;
-CREATE SEQUENCE hibernate_sequence START WITH 5000;
\ No newline at end of file
+CREATE TABLE replika_heartbeat (id NUMBER(1) PRIMARY KEY, zeitpunkt NUMBER(19) NOT NULL);
\ No newline at end of file
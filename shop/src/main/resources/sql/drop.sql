@@ -2,3 +2,8 @@
 -- Jede SQL-Anweisung muss in genau 1 Zeile
 -- Kommentare durch -- am Zeilenanfang
 -- ===============================================================================
+
+--
+-- replika_heartbeat: nicht in create.sql, weil dort jeder Fehler die Generierung abbricht
+--
+DROP TABLE replika_heartbeat;
\ No newline at end of file
@@ -90,3 +90,8 @@ INSERT INTO bestellung_lieferung (bestellung_fk, lieferung_fk) VALUES (402,601);
 INSERT INTO bestellung_lieferung (bestellung_fk, lieferung_fk) VALUES (402,602);
 INSERT INTO bestellung_lieferung (bestellung_fk, lieferung_fk) VALUES (403,602);
 INSERT INTO bestellung_lieferung (bestellung_fk, lieferung_fk) VALUES (404,603);
+
+--
+-- replika_heartbeat
+--
+INSERT INTO replika_heartbeat (id, zeitpunkt) VALUES (1,0);
@@ -0,0 +1,127 @@
+package de.shop.perf;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.service.ArtikelService;
+import de.shop.bestellverwaltung.service.BestellungService;
+
+/**
+ * Latenz von BestellungService.createBestellung abhaengig von der Anzahl der bisherigen Bestellungen des
+ * Kunden. Fuer jede Anzahl wird ein neuer Kunde mit entsprechend vielen Bestellungen erzeugt. Anschliessend
+ * werden fuer die Kunden abwechselnd neue Bestellungen angelegt und mit einem Flush in die DB geschrieben.
+ * Die Transaktionen werden zurueckgesetzt, damit die Anzahl der Bestellungen waehrend der Messung gleich
+ * bleibt.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class Bestellhistorie {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final double NANOS_PRO_MILLI = 1e6;
+	private static final int AUFWAERMEN = 20;
+	
+	@Inject
+	private Testdaten testdaten;
+	
+	@Inject
+	private ArtikelService as;
+	
+	@Inject
+	private BestellungService bs;
+	
+	@Inject
+	private EntityManager em;
+	
+	@Resource
+	private UserTransaction trans;
+	
+	/**
+	 * Die Messung ausfuehren.
+	 * @param anzahlBestellungen Anzahl der bisherigen Bestellungen je Kunde, z.B. 10, 1000 und 10000
+	 * @param wiederholungen Anzahl der gemessenen Aufrufe je Kunde
+	 * @param seed Startwert fuer die Zufallsgeneratoren
+	 * @return Bericht mit Mittelwert, p50 und p99 je Anzahl der bisherigen Bestellungen
+	 */
+	public String messen(int[] anzahlBestellungen, int wiederholungen, long seed) {
+		final List<Artikel> artikel = as.findVerfuegbareArtikel();
+		if (artikel.isEmpty()) {
+			return "Keine Artikel vorhanden: zuerst POST /perf/daten aufrufen\n";
+		}
+		
+		final Long[] kundeIds = new Long[anzahlBestellungen.length];
+		for (int i = 0; i < anzahlBestellungen.length; i++) {
+			kundeIds[i] = testdaten.erzeugenKundeMitBestellungen(anzahlBestellungen[i], artikel, i, seed);
+		}
+		
+		// Abwechselnd je Kunde, damit z.B. JIT und Caches alle Kunden gleich beeinflussen
+		final Random random = new Random(seed);
+		final long[][] dauer = new long[anzahlBestellungen.length][wiederholungen];
+		for (int n = -AUFWAERMEN; n < wiederholungen; n++) {
+			for (int i = 0; i < kundeIds.length; i++) {
+				final long nanos = bestellen(kundeIds[i], artikel, random);
+				if (n >= 0) {
+					dauer[i][n] = nanos;
+				}
+			}
+		}
+		
+		final StringBuilder sb = new StringBuilder(512);
+		sb.append(String.format(Locale.ROOT, "createBestellung mit %d Aufrufen je Kunde%n", wiederholungen))
+		  .append(String.format(Locale.ROOT, "%12s %10s %10s %10s%n", "Bestellungen", "Mittel ms", "p50 ms",
+		                        "p99 ms"));
+		for (int i = 0; i < anzahlBestellungen.length; i++) {
+			final long[] d = dauer[i];
+			Arrays.sort(d);
+			long summe = 0;
+			for (long nanos : d) {
+				summe += nanos;
+			}
+			sb.append(String.format(Locale.ROOT, "%12d %10.3f %10.3f %10.3f%n", anzahlBestellungen[i],
+			                        summe / NANOS_PRO_MILLI / d.length, perzentil(d, 0.5) / NANOS_PRO_MILLI,
+			                        perzentil(d, 0.99) / NANOS_PRO_MILLI));
+		}
+		
+		final String bericht = sb.toString();
+		LOGGER.info(bericht);
+		return bericht;
+	}
+	
+	/**
+	 * Eine neue Bestellung anlegen, in die DB schreiben und die Transaktion zuruecksetzen.
+	 * @return Dauer in Nanosekunden
+	 */
+	private long bestellen(final Long kundeId, final List<Artikel> artikel, final Random random) {
+		final long start = System.nanoTime();
+		Transaktion.ausfuehrenOhneCommit(trans, new Runnable() {
+			@Override
+			public void run() {
+				bs.createBestellung(Testdaten.neueBestellung(artikel, random), kundeId);
+				em.flush();
+			}
+		});
+		return System.nanoTime() - start;
+	}
+	
+	/**
+	 * @param sortiert Sortierte Messwerte
+	 * @param p Perzentil zwischen 0 und 1
+	 * @return Der kleinste Messwert, der mindestens den Anteil p der Messwerte abdeckt
+	 */
+	private static long perzentil(long[] sortiert, double p) {
+		final int index = (int) Math.ceil(p * sortiert.length) - 1;
+		return sortiert[Math.max(0, Math.min(index, sortiert.length - 1))];
+	}
+}
@@ -0,0 +1,300 @@
+package de.shop.perf;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status.Family;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.service.ArtikelService;
+import de.shop.bestellverwaltung.service.BestellungService;
+import de.shop.util.metrics.Latenzhistogramm;
+import de.shop.util.metrics.MetricsRegistry;
+import de.shop.util.persistence.Replika;
+
+/**
+ * Lasttest: mehrere Threads fuehren fuer eine vorgegebene Dauer eine gewichtete Mischung aus lesenden und
+ * schreibenden Operationen aus. Die lesenden Operationen sind HTTP-Aufrufe der REST-Methoden mit @ReadOnly,
+ * d.h. sie verwenden die Replika, solange sie verwendbar ist. Neue Bestellungen werden ueber
+ * BestellungService in einer eigenen Transaktion wie bei einem REST-Aufruf angelegt. Durchsatz und Perzentile
+ * der REST- und Service-Methoden werden aus den Histogrammen des MetricsInterceptor fuer die Dauer des
+ * Lasttests berechnet.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class Lasttest {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final String SERVICE_PACKAGE = ".service";
+	private static final String REST_PACKAGE = ".rest";
+	private static final double NANOS_PRO_MILLI = 1e6;
+	private static final double NANOS_PRO_SEKUNDE = 1e9;
+	private static final int ANZAHL_ARTIKEL = 10;
+	private static final int PREISSPANNE_CENT = 2000;
+	
+	@Inject
+	private ArtikelService as;
+	
+	@Inject
+	private BestellungService bs;
+	
+	@Inject
+	private MetricsRegistry registry;
+	
+	@Inject
+	private Replika replika;
+	
+	@Inject
+	private EntityManager em;
+	
+	@Resource
+	private ManagedExecutorService executor;
+	
+	@Resource
+	private UserTransaction trans;
+	
+	/**
+	 * Den Lasttest ausfuehren und auf das Ende warten.
+	 * @param basisUri Basis-URI der REST-Schnittstelle, z.B. http://localhost:8080/shop/rest
+	 * @param anzahlThreads Anzahl der parallelen Threads
+	 * @param sekunden Dauer des Lasttests
+	 * @param seed Startwert fuer die Zufallsgeneratoren der Threads
+	 * @return Bericht mit Aufrufen, Durchsatz, Mittelwert, p50, p99 und Fehlern je REST- und Service-Methode
+	 */
+	public String ausfuehren(final URI basisUri, int anzahlThreads, int sekunden, long seed)
+			throws InterruptedException {
+		final List<Long> kundeIds = em.createQuery("SELECT k.id FROM AbstractKunde k", Long.class)
+				                      .getResultList();
+		final List<Long> bestellungIds = em.createQuery("SELECT b.id FROM Bestellung b", Long.class)
+				                           .getResultList();
+		final List<Artikel> artikel = as.findVerfuegbareArtikel();
+		if (kundeIds.isEmpty() || bestellungIds.isEmpty() || artikel.isEmpty()) {
+			return "Keine Testdaten vorhanden: zuerst POST /perf/daten aufrufen\n";
+		}
+		
+		final Map<Method, Snapshot> vorher = snapshot();
+		final long replikaVorher = replika.getAufrufeReplika();
+		final long primaerVorher = replika.getAufrufePrimaer();
+		final long start = System.nanoTime();
+		final long ende = start + SECONDS.toNanos(sekunden);
+		final AtomicLong fehler = new AtomicLong();
+		
+		final List<Future<?>> futures = new ArrayList<>(anzahlThreads);
+		for (int i = 0; i < anzahlThreads; i++) {
+			final Random random = new Random(seed + i);
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					// Je Thread ein eigener Client, weil dessen Verbindung nicht parallel verwendet werden darf
+					final Client client = ClientBuilder.newClient();
+					try {
+						final WebTarget basis = client.target(basisUri);
+						while (System.nanoTime() < ende) {
+							try {
+								aufrufen(random, basis, kundeIds, bestellungIds, artikel);
+							}
+							catch (RuntimeException e) {
+								fehler.incrementAndGet();
+								LOGGER.tracef("Fehler beim Lasttest: %s", e.getMessage());
+							}
+						}
+					}
+					finally {
+						client.close();
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (ExecutionException e) {
+				LOGGER.warnf(e, "Ein Thread des Lasttests wurde abgebrochen");
+			}
+		}
+		final long dauerNanos = System.nanoTime() - start;
+		
+		final String bericht = bericht(vorher, snapshot(), dauerNanos, anzahlThreads, fehler.get())
+		                       + String.format(Locale.ROOT, "Aufrufe mit @ReadOnly: %d Replika, %d primaere DB%n",
+		                                       replika.getAufrufeReplika() - replikaVorher,
+		                                       replika.getAufrufePrimaer() - primaerVorher);
+		LOGGER.info(bericht);
+		return bericht;
+	}
+	
+	/**
+	 * Eine zufaellige Operation ausfuehren: 80% lesend, 10% Kunde mit Bestellungen, 10% neue Bestellung.
+	 */
+	private void aufrufen(final Random random, WebTarget basis, final List<Long> kundeIds,
+			              List<Long> bestellungIds, final List<Artikel> artikel) {
+		final int operation = random.nextInt(100);
+		if (operation < 20) {
+			lesen(basis.path("artikel").path(String.valueOf(Testdaten.auswaehlen(artikel, random).getId())));
+		}
+		else if (operation < 35) {
+			lesen(basis.path("artikel").queryParam("bezeichnung", Testdaten.auswaehlen(Testdaten.NOMEN, random)));
+		}
+		else if (operation < 45) {
+			final BigDecimal min = BigDecimal.valueOf(random.nextInt(PREISSPANNE_CENT * 20), 2);
+			final BigDecimal max = min.add(BigDecimal.valueOf(PREISSPANNE_CENT, 2));
+			lesen(basis.path("artikel")
+			           .queryParam("minPreis", min)
+			           .queryParam("maxPreis", max)
+			           .queryParam("limit", ANZAHL_ARTIKEL));
+		}
+		else if (operation < 60) {
+			lesen(basis.path("kunden").path(String.valueOf(Testdaten.auswaehlen(kundeIds, random))));
+		}
+		else if (operation < 70) {
+			lesen(basis.path("kunden").queryParam("nachname", Testdaten.auswaehlen(Testdaten.NACHNAMEN, random)));
+		}
+		else if (operation < 80) {
+			lesen(basis.path("bestellungen").path(String.valueOf(Testdaten.auswaehlen(bestellungIds, random))));
+		}
+		else if (operation < 90) {
+			lesen(basis.path("kunden").path(String.valueOf(Testdaten.auswaehlen(kundeIds, random)))
+			           .path("bestellungen"));
+		}
+		else {
+			Transaktion.ausfuehren(trans, new Runnable() {
+				@Override
+				public void run() {
+					bs.createBestellung(Testdaten.neueBestellung(artikel, random),
+							            Testdaten.auswaehlen(kundeIds, random));
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Ein GET-Request; 404 ist z.B. bei einem leeren Preisbereich kein Fehler.
+	 */
+	private static void lesen(WebTarget target) {
+		final Response response = target.request(APPLICATION_JSON).get();
+		try {
+			if (response.getStatusInfo().getFamily() == Family.SERVER_ERROR) {
+				throw new IllegalStateException(target.getUri() + ": " + response.getStatus());
+			}
+			// Den Body vollstaendig lesen wie ein echter Client
+			response.readEntity(String.class);
+		}
+		finally {
+			response.close();
+		}
+	}
+	
+	private Map<Method, Snapshot> snapshot() {
+		final Map<Method, Snapshot> result = new HashMap<>();
+		for (Entry<Method, Latenzhistogramm> entry : registry.getHistogramme().entrySet()) {
+			final Method method = entry.getKey();
+			final String packageName = method.getDeclaringClass().getPackage().getName();
+			if (packageName.endsWith(SERVICE_PACKAGE) || packageName.endsWith(REST_PACKAGE)) {
+				result.put(method, new Snapshot(entry.getValue()));
+			}
+		}
+		return result;
+	}
+	
+	private static String bericht(Map<Method, Snapshot> vorher, Map<Method, Snapshot> nachher, long dauerNanos,
+			                      int anzahlThreads, long fehlerGesamt) {
+		final double sekunden = dauerNanos / NANOS_PRO_SEKUNDE;
+		final StringBuilder sb = new StringBuilder(2048);
+		sb.append(String.format(Locale.ROOT, "Lasttest mit %d Threads ueber %.1f s, %d fehlgeschlagene Operationen%n",
+				                anzahlThreads, sekunden, fehlerGesamt))
+		  .append(String.format(Locale.ROOT, "%-50s %9s %11s %10s %10s %10s %7s%n", "Methode", "Aufrufe",
+				                "Aufrufe/s", "Mittel ms", "p50 ms", "p99 ms", "Fehler"));
+		
+		// Sortiert nach Bean und Methode; ueberladene Methoden werden zusammengefasst
+		final Map<String, Snapshot> differenzen = new TreeMap<>();
+		for (Entry<Method, Snapshot> entry : nachher.entrySet()) {
+			final Method method = entry.getKey();
+			final String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+			final Snapshot differenz = entry.getValue().minus(vorher.get(method));
+			final Snapshot vorhanden = differenzen.get(name);
+			differenzen.put(name, vorhanden == null ? differenz : vorhanden.plus(differenz));
+		}
+		
+		for (Entry<String, Snapshot> entry : differenzen.entrySet()) {
+			final Snapshot s = entry.getValue();
+			if (s.anzahl == 0) {
+				continue;
+			}
+			sb.append(String.format(Locale.ROOT, "%-50s %9d %11.1f %10.3f %10.3f %10.3f %7d%n", entry.getKey(),
+					                s.anzahl, s.anzahl / sekunden, s.summeNanos / NANOS_PRO_MILLI / s.anzahl,
+					                Latenzhistogramm.getPerzentil(s.intervalle, 0.5) / NANOS_PRO_MILLI,
+					                Latenzhistogramm.getPerzentil(s.intervalle, 0.99) / NANOS_PRO_MILLI,
+					                s.fehler));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Zaehlerstaende eines Histogramms zu einem Zeitpunkt.
+	 */
+	private static final class Snapshot {
+		private final long[] intervalle;
+		private final long anzahl;
+		private final long fehler;
+		private final long summeNanos;
+		
+		Snapshot(Latenzhistogramm histogramm) {
+			this(histogramm.getIntervalle(), histogramm.getAnzahl(), histogramm.getFehler(),
+			     histogramm.getSummeNanos());
+		}
+		
+		private Snapshot(long[] intervalle, long anzahl, long fehler, long summeNanos) {
+			this.intervalle = intervalle;
+			this.anzahl = anzahl;
+			this.fehler = fehler;
+			this.summeNanos = summeNanos;
+		}
+		
+		Snapshot minus(Snapshot s) {
+			if (s == null) {
+				return this;
+			}
+			final long[] differenz = new long[intervalle.length];
+			for (int i = 0; i < intervalle.length; i++) {
+				differenz[i] = intervalle[i] - s.intervalle[i];
+			}
+			return new Snapshot(differenz, anzahl - s.anzahl, fehler - s.fehler, summeNanos - s.summeNanos);
+		}
+		
+		Snapshot plus(Snapshot s) {
+			final long[] summe = new long[intervalle.length];
+			for (int i = 0; i < intervalle.length; i++) {
+				summe[i] = intervalle[i] + s.intervalle[i];
+			}
+			return new Snapshot(summe, anzahl + s.anzahl, fehler + s.fehler, summeNanos + s.summeNanos);
+		}
+	}
+}
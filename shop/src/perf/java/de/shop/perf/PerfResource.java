@@ -0,0 +1,135 @@
+package de.shop.perf;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Aufruf des Testdaten-Generators, des Lasttests und der Pruefung der Replika. Die Klasse ist nur im
+ * Maven-Profil "perf" Bestandteil der WAR-Datei. Ohne @Transactional, weil Generator und Lasttest eigene
+ * Transaktionen verwenden.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@Path("/perf")
+@Produces(TEXT_PLAIN)
+public class PerfResource {
+	private static final int[] BESTELLUNGEN_DEFAULT = { 10, 1000, 10000 };
+	
+	@Inject
+	private Testdaten testdaten;
+	
+	@Inject
+	private Lasttest lasttest;
+	
+	@Inject
+	private Bestellhistorie bestellhistorie;
+	
+	@Inject
+	private Replikation replikation;
+	
+	@Inject
+	private Replikationstest replikationstest;
+	
+	@Context
+	private UriInfo uriInfo;
+	
+	/**
+	 * Mit der URL /perf/daten werden synthetische Testdaten erzeugt.
+	 * @param kunden Anzahl der Kunden
+	 * @param artikel Anzahl der Artikel
+	 * @param bestellungen Anzahl der Bestellungen
+	 * @param seed Startwert fuer den Zufallsgenerator
+	 * @return Zusammenfassung der erzeugten Daten
+	 */
+	@POST
+	@Path("daten")
+	public String erzeugen(@QueryParam("kunden") @DefaultValue("1000") int kunden,
+	                       @QueryParam("artikel") @DefaultValue("200") int artikel,
+	                       @QueryParam("bestellungen") @DefaultValue("5000") int bestellungen,
+	                       @QueryParam("seed") @DefaultValue("1") long seed) {
+		return testdaten.erzeugen(kunden, artikel, bestellungen, seed) + "\n";
+	}
+	
+	/**
+	 * Mit der URL /perf/last wird ein Lasttest ausgefuehrt.
+	 * @param threads Anzahl der parallelen Threads
+	 * @param sekunden Dauer in Sekunden
+	 * @param seed Startwert fuer die Zufallsgeneratoren
+	 * @return Bericht mit Durchsatz und Perzentilen je Service-Methode
+	 */
+	@POST
+	@Path("last")
+	public String lasttest(@QueryParam("threads") @DefaultValue("8") int threads,
+	                       @QueryParam("sekunden") @DefaultValue("60") int sekunden,
+	                       @QueryParam("seed") @DefaultValue("1") long seed) throws InterruptedException {
+		return lasttest.ausfuehren(uriInfo.getBaseUri(), threads, sekunden, seed);
+	}
+	
+	/**
+	 * Mit der URL /perf/historie wird die Latenz von createBestellung abhaengig von der Anzahl der
+	 * bisherigen Bestellungen eines Kunden gemessen.
+	 * @param bestellungen Anzahl der bisherigen Bestellungen je Kunde, mehrfach angebbar; Default: 10, 1000, 10000
+	 * @param wiederholungen Anzahl der gemessenen Aufrufe je Kunde
+	 * @param seed Startwert fuer die Zufallsgeneratoren
+	 * @return Bericht mit Mittelwert, p50 und p99 je Anzahl der bisherigen Bestellungen
+	 */
+	@POST
+	@Path("historie")
+	public String bestellhistorie(@QueryParam("bestellungen") List<Integer> bestellungen,
+	                              @QueryParam("wiederholungen") @DefaultValue("200") int wiederholungen,
+	                              @QueryParam("seed") @DefaultValue("1") long seed) {
+		final int[] anzahl;
+		if (bestellungen.isEmpty()) {
+			anzahl = BESTELLUNGEN_DEFAULT.clone();
+		}
+		else {
+			anzahl = new int[bestellungen.size()];
+			for (int i = 0; i < anzahl.length; i++) {
+				anzahl[i] = Math.max(bestellungen.get(i), 0);
+			}
+		}
+		return bestellhistorie.messen(anzahl, Math.max(wiederholungen, 1), seed);
+	}
+	
+	/**
+	 * Mit der URL /perf/replikation wird die simulierte Replikation in die 2. H2-DB gesteuert.
+	 * @param intervall Abstand zwischen zwei Kopien in Millisekunden, d.h. die maximale Verzoegerung
+	 * @param angehalten true, um eine ausgefallene Replikation zu simulieren
+	 * @return Der neue Zustand der Replikation
+	 */
+	@PUT
+	@Path("replikation")
+	public String replikation(@QueryParam("intervall") @DefaultValue("1000") long intervall,
+	                          @QueryParam("angehalten") @DefaultValue("false") boolean angehalten) {
+		replikation.setIntervallMillis(intervall);
+		replikation.setAngehalten(angehalten);
+		return String.format("Replikation alle %d ms%s, bisher %d Kopien, letzte Kopie %d ms%n", intervall,
+		                     angehalten ? " (angehalten)" : "", replikation.getAnzahlKopien(),
+		                     replikation.getLetzteKopieMillis());
+	}
+	
+	/**
+	 * Mit der URL /perf/replika wird geprueft, ob die REST-Methoden mit @ReadOnly je nach Zustand der
+	 * Replikation die Replika oder die primaere DB verwenden.
+	 * @return Bericht je Phase mit Status 200 bzw. 500, falls eine Phase fehlgeschlagen ist
+	 */
+	@POST
+	@Path("replika")
+	public Response replikationstest() throws InterruptedException {
+		final StringBuilder bericht = new StringBuilder();
+		final boolean ok = replikationstest.pruefen(uriInfo.getBaseUri(), bericht);
+		return (ok ? Response.ok() : Response.serverError()).entity(bericht.toString())
+		                                                    .build();
+	}
+}
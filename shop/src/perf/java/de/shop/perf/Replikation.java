@@ -0,0 +1,241 @@
+package de.shop.perf;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.sql.DataSource;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Simulierte asynchrone Replikation fuer das Maven-Profil "perf": die primaere H2-DB shopDS wird in
+ * regelmaessigen Abstaenden vollstaendig in die zweite H2-DB shopReplicaDS kopiert. Die Replika liegt
+ * dadurch bis zu einem Intervall zurueck, was de.shop.util.persistence.Replika ueber die kopierte
+ * Tabelle replika_heartbeat misst. Ist die Replikation angehalten oder das Intervall groesser als die
+ * maximale Verzoegerung, verwenden die Methoden mit @ReadOnly die primaere DB.
+ * <p>
+ * Das Schema der Replika wird beim Start aus der primaeren DB mit SCRIPT NODATA erzeugt. Jede Kopie
+ * erfolgt in einer Transaktion der Replika, die mit MVCC=TRUE betrieben wird, d.h. lesende Zugriffe
+ * sehen bis zum Commit den vorherigen Stand.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class Replikation {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final long INTERVALL_MILLIS_DEFAULT = 1000;
+	private static final int BATCH_GROESSE = 500;
+	private static final String HEARTBEAT_TABELLE = "REPLIKA_HEARTBEAT";
+	
+	private static final String TABELLEN = "SELECT table_name FROM information_schema.tables"
+	                                       + " WHERE table_schema = 'PUBLIC' AND table_type = 'TABLE'"
+	                                       + " ORDER BY table_name";
+	
+	@Resource(lookup = "java:jboss/datasources/shopDS")
+	private DataSource primaerDataSource;
+	
+	@Resource(lookup = "java:jboss/datasources/shopReplicaDS")
+	private DataSource replikaDataSource;
+	
+	@Resource
+	private ManagedScheduledExecutorService executor;
+	
+	private volatile long intervallMillis = INTERVALL_MILLIS_DEFAULT;
+	private volatile boolean angehalten;
+	private volatile ScheduledFuture<?> future;
+	
+	// Nur vom Hintergrund-Thread verwendet: null, solange das Schema der Replika nicht erzeugt ist
+	private List<String> tabellen;
+	
+	private final AtomicLong anzahlKopien = new AtomicLong();
+	private volatile long letzteKopieMillis;
+	
+	/**
+	 * Die Replikation beim Start der Anwendung beginnen, d.h. nach dem Erzeugen des Schemas der primaeren DB.
+	 */
+	private void onStartup(@Observes @Initialized(ApplicationScoped.class) Object init) {
+		planen(0);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		final ScheduledFuture<?> aktuell = future;
+		if (aktuell != null) {
+			aktuell.cancel(false);
+		}
+	}
+	
+	/**
+	 * @param intervallMillis Abstand zwischen zwei Kopien und damit die maximale simulierte Verzoegerung
+	 */
+	public void setIntervallMillis(long intervallMillis) {
+		this.intervallMillis = intervallMillis;
+	}
+	
+	public long getIntervallMillis() {
+		return intervallMillis;
+	}
+	
+	/**
+	 * @param angehalten true, um eine ausgefallene Replikation zu simulieren
+	 */
+	public void setAngehalten(boolean angehalten) {
+		this.angehalten = angehalten;
+		LOGGER.infof("Replikation %s", angehalten ? "angehalten" : "fortgesetzt");
+	}
+	
+	public boolean isAngehalten() {
+		return angehalten;
+	}
+	
+	public long getAnzahlKopien() {
+		return anzahlKopien.get();
+	}
+	
+	public long getLetzteKopieMillis() {
+		return letzteKopieMillis;
+	}
+	
+	// Mit festem Abstand nach dem Ende einer Kopie, damit ein geaendertes Intervall sofort gilt
+	private void planen(long verzoegerungMillis) {
+		future = executor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (!angehalten) {
+						kopieren();
+					}
+				}
+				catch (SQLException | RuntimeException e) {
+					LOGGER.warnf("Die Replikation ist fehlgeschlagen: %s", e.getMessage());
+				}
+				finally {
+					planen(intervallMillis);
+				}
+			}
+		}, verzoegerungMillis, MILLISECONDS);
+	}
+	
+	private void kopieren() throws SQLException {
+		final long start = System.currentTimeMillis();
+		try (final Connection primaer = primaerDataSource.getConnection();
+		     final Connection replika = replikaDataSource.getConnection()) {
+			if (tabellen == null) {
+				tabellen = schemaErzeugen(primaer, replika);
+			}
+			
+			replika.setAutoCommit(false);
+			try {
+				for (String tabelle : tabellen) {
+					kopieren(tabelle, primaer, replika);
+				}
+				replika.commit();
+			}
+			catch (SQLException | RuntimeException e) {
+				replika.rollback();
+				throw e;
+			}
+			finally {
+				replika.setAutoCommit(true);
+			}
+		}
+		
+		letzteKopieMillis = System.currentTimeMillis() - start;
+		anzahlKopien.incrementAndGet();
+		LOGGER.tracef("Replikation in %d ms", letzteKopieMillis);
+	}
+	
+	/**
+	 * Das Schema der primaeren DB ohne Daten in der Replika erzeugen.
+	 * @return Die zu kopierenden Tabellen, replika_heartbeat zuerst
+	 */
+	private static List<String> schemaErzeugen(Connection primaer, Connection replika) throws SQLException {
+		final List<String> ddl = new ArrayList<>();
+		try (final Statement stmt = primaer.createStatement();
+		     final ResultSet rs = stmt.executeQuery("SCRIPT NODATA NOPASSWORDS")) {
+			while (rs.next()) {
+				final String sql = rs.getString(1);
+				// Benutzer und Einstellungen gehoeren zur jeweiligen DB
+				if (!sql.startsWith("CREATE USER") && !sql.startsWith("ALTER USER") && !sql.startsWith("SET ")
+				    && !sql.startsWith("--")) {
+					ddl.add(sql);
+				}
+			}
+		}
+		
+		// Der Heartbeat wird vor den Daten kopiert, damit die gemessene Verzoegerung nie zu klein ist
+		final List<String> result = new ArrayList<>();
+		try (final Statement stmt = primaer.createStatement();
+		     final ResultSet rs = stmt.executeQuery(TABELLEN)) {
+			while (rs.next()) {
+				final String tabelle = rs.getString(1);
+				if (HEARTBEAT_TABELLE.equals(tabelle)) {
+					result.add(0, tabelle);
+				}
+				else {
+					result.add(tabelle);
+				}
+			}
+		}
+		
+		try (final Statement stmt = replika.createStatement()) {
+			stmt.execute("DROP ALL OBJECTS");
+			for (String sql : ddl) {
+				stmt.execute(sql);
+			}
+			// Die Tabellen werden einzeln und ohne Reihenfolge bzgl. der Fremdschluessel kopiert
+			stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+		}
+		
+		LOGGER.infof("Schema der Replika mit %d Tabellen erzeugt", result.size());
+		return result;
+	}
+	
+	private static void kopieren(String tabelle, Connection primaer, Connection replika) throws SQLException {
+		try (final Statement loeschen = replika.createStatement()) {
+			loeschen.executeUpdate("DELETE FROM " + tabelle);
+		}
+		
+		try (final Statement lesen = primaer.createStatement();
+		     final ResultSet rs = lesen.executeQuery("SELECT * FROM " + tabelle)) {
+			final int anzahlSpalten = rs.getMetaData().getColumnCount();
+			final StringBuilder sb = new StringBuilder("INSERT INTO ").append(tabelle).append(" VALUES (?");
+			for (int i = 1; i < anzahlSpalten; i++) {
+				sb.append(", ?");
+			}
+			sb.append(')');
+			
+			try (final PreparedStatement einfuegen = replika.prepareStatement(sb.toString())) {
+				int anzahl = 0;
+				while (rs.next()) {
+					for (int i = 1; i <= anzahlSpalten; i++) {
+						einfuegen.setObject(i, rs.getObject(i));
+					}
+					einfuegen.addBatch();
+					if (++anzahl % BATCH_GROESSE == 0) {
+						einfuegen.executeBatch();
+					}
+				}
+				if (anzahl % BATCH_GROESSE != 0) {
+					einfuegen.executeBatch();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package de.shop.perf;
+
+import static de.shop.util.persistence.QueryHelper.getErstesElement;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.Locale;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status.Family;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.persistence.Replika;
+
+/**
+ * Prueft ueber HTTP, dass die REST-Methoden mit @ReadOnly bei laufender Replikation die Replika und bei
+ * angehaltener Replikation die primaere DB verwenden. Waehrend der Pruefung sollte kein Lasttest laufen,
+ * weil die Aufrufe anhand der Zaehler von {@link Replika} zugeordnet werden.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class Replikationstest {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final int ANZAHL_AUFRUFE = 20;
+	private static final long WARTEN_MAX_MILLIS = 30000;
+	private static final long WARTEN_INTERVALL_MILLIS = 200;
+	private static final Long KUNDE_ID_DEFAULT = Long.valueOf(1);
+	
+	@Inject
+	private Replika replika;
+	
+	@Inject
+	private Replikation replikation;
+	
+	@Inject
+	private EntityManager em;
+	
+	/**
+	 * Die Pruefung in 3 Phasen ausfuehren: Replikation laeuft, ist angehalten und wird fortgesetzt.
+	 * @param basisUri Basis-URI der REST-Schnittstelle, z.B. http://localhost:8080/shop/rest
+	 * @param bericht Ausgabe des Ergebnisses je Phase
+	 * @return true, falls die Aufrufe in allen Phasen richtig zugeordnet wurden
+	 */
+	public boolean pruefen(URI basisUri, StringBuilder bericht) throws InterruptedException {
+		// Die Kunden-ID wird aus der primaeren DB gelesen; ohne Testdaten liefern die Aufrufe 404
+		final Long gefunden = getErstesElement(em.createQuery("SELECT k.id FROM AbstractKunde k ORDER BY k.id",
+		                                                      Long.class)
+		                                         .setMaxResults(1)
+		                                         .getResultList());
+		final Long kundeId = gefunden == null ? KUNDE_ID_DEFAULT : gefunden;
+		
+		bericht.append(String.format(Locale.ROOT, "%-25s %8s %12s %14s %s%n", "Phase", "Replika", "primaere DB",
+		                             "Verzoegerung", "Ergebnis"));
+		final Client client = ClientBuilder.newClient();
+		try {
+			final WebTarget kunde = client.target(basisUri).path("kunden").path(String.valueOf(kundeId));
+			boolean ok = phase("Replikation laeuft", false, kunde, bericht);
+			ok = phase("Replikation angehalten", true, kunde, bericht) && ok;
+			ok = phase("Replikation fortgesetzt", false, kunde, bericht) && ok;
+			return ok;
+		}
+		finally {
+			replikation.setAngehalten(false);
+			client.close();
+		}
+	}
+	
+	private boolean phase(String name, boolean angehalten, WebTarget kunde, StringBuilder bericht)
+			throws InterruptedException {
+		replikation.setAngehalten(angehalten);
+		final boolean replikaErwartet = !angehalten;
+		if (!warten(replikaErwartet)) {
+			bericht.append(String.format(Locale.ROOT, "%-25s Replika nach %d ms nicht %s: FEHLER%n", name,
+			                             WARTEN_MAX_MILLIS, replikaErwartet ? "verwendbar" : "zu langsam"));
+			return false;
+		}
+		
+		final long replikaVorher = replika.getAufrufeReplika();
+		final long primaerVorher = replika.getAufrufePrimaer();
+		int serverfehler = 0;
+		for (int i = 0; i < ANZAHL_AUFRUFE; i++) {
+			final Response response = kunde.request(APPLICATION_JSON).get();
+			if (response.getStatusInfo().getFamily() == Family.SERVER_ERROR) {
+				serverfehler++;
+			}
+			response.close();
+		}
+		final long aufrufeReplika = replika.getAufrufeReplika() - replikaVorher;
+		final long aufrufePrimaer = replika.getAufrufePrimaer() - primaerVorher;
+		
+		final boolean ok = serverfehler == 0 && (replikaErwartet
+		                                         ? aufrufeReplika >= ANZAHL_AUFRUFE
+		                                         : aufrufeReplika == 0 && aufrufePrimaer >= ANZAHL_AUFRUFE);
+		bericht.append(String.format(Locale.ROOT, "%-25s %8d %12d %11d ms %s%n", name, aufrufeReplika,
+		                             aufrufePrimaer, replika.getVerzoegerungMillis(),
+		                             ok ? "OK" : "FEHLER (" + serverfehler + " Serverfehler)"));
+		LOGGER.debugf("%s: Replika %d, primaere DB %d", name, aufrufeReplika, aufrufePrimaer);
+		return ok;
+	}
+	
+	private boolean warten(boolean verwendbar) throws InterruptedException {
+		final long ende = System.currentTimeMillis() + WARTEN_MAX_MILLIS;
+		while (replika.isVerwendbar() != verwendbar) {
+			if (System.currentTimeMillis() > ende) {
+				return false;
+			}
+			Thread.sleep(WARTEN_INTERVALL_MILLIS);
+		}
+		return true;
+	}
+}
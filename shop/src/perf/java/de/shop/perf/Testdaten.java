@@ -0,0 +1,280 @@
+package de.shop.perf;
+
+import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.service.ArtikelService;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.domain.Lieferung;
+import de.shop.bestellverwaltung.domain.TransportType;
+import de.shop.bestellverwaltung.service.BestellungService;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.domain.Adresse;
+import de.shop.kundenverwaltung.domain.FamilienstandType;
+import de.shop.kundenverwaltung.domain.Firmenkunde;
+import de.shop.kundenverwaltung.domain.GeschlechtType;
+import de.shop.kundenverwaltung.domain.HobbyType;
+import de.shop.kundenverwaltung.domain.Privatkunde;
+import de.shop.kundenverwaltung.service.KundeService;
+
+/**
+ * Generator fuer synthetische Testdaten: Kunden mit Adresse und ggf. Hobbies, Artikel sowie Bestellungen
+ * mit Positionen und Lieferungen. Bei gleichem Startwert werden dieselben Daten erzeugt. Die Daten werden
+ * ueber die Services abgespeichert, damit auch die Indexe im Hauptspeicher aktualisiert werden.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+@ApplicationScoped
+public class Testdaten {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	static final String[] NACHNAMEN = { "Mueller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer", "Wagner",
+		                                "Becker", "Schulz", "Hoffmann", "Koch", "Richter", "Klein", "Wolf",
+		                                "Neumann", "Schwarz", "Zimmermann", "Braun", "Hartmann", "Lange",
+		                                "Schmitt", "Werner", "Krause", "Lehmann", "Maier", "Koehler" };
+	static final String[] NOMEN = { "Stuhl", "Tisch", "Schrank", "Regal", "Sessel", "Hocker", "Lampe",
+		                            "Kommode", "Bett", "Sofa", "Teppich", "Spiegel" };
+	
+	private static final String[] VORNAMEN = { "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta", "Hans",
+		                                       "Ida", "Jonas", "Karla", "Lukas", "Mia", "Noah", "Olga", "Paul" };
+	private static final String[] ORTE = { "Karlsruhe", "Stuttgart", "Mannheim", "Heidelberg", "Freiburg",
+		                                   "Pforzheim", "Ulm", "Heilbronn" };
+	private static final String[] STRASSEN = { "Hauptstrasse", "Bahnhofstrasse", "Gartenweg", "Schulstrasse",
+		                                       "Kirchweg", "Moltkestrasse", "Lindenallee" };
+	private static final String[] ADJEKTIVE = { "Blauer", "Roter", "Gruener", "Grosser", "Kleiner", "Runder",
+		                                        "Eckiger", "Leichter" };
+	
+	// Anzahl der Objekte, die jeweils in einer Transaktion abgespeichert werden
+	private static final int TRANSAKTION_GROESSE = 100;
+	private static final int ANTEIL_PRIVATKUNDEN_PROZENT = 70;
+	private static final int POSITIONEN_MAX = 5;
+	private static final int ANZAHL_MAX = 3;
+	private static final int BESTELLUNGEN_PRO_LIEFERUNG = 3;
+	private static final int TAGE_SEIT_MAX = 3650;
+	private static final int PREIS_CENT_MAX = 50000;
+	
+	@Inject
+	private KundeService ks;
+	
+	@Inject
+	private ArtikelService as;
+	
+	@Inject
+	private BestellungService bs;
+	
+	@Resource
+	private UserTransaction trans;
+	
+	/**
+	 * Kunden, Artikel sowie Bestellungen mit Lieferungen erzeugen und abspeichern. Email-Adressen,
+	 * Artikelbezeichnungen und Liefernummern enthalten den Startwert, damit sie eindeutig bleiben,
+	 * wenn der Generator mit verschiedenen Startwerten aufgerufen wird.
+	 * @param anzahlKunden Anzahl der neuen Kunden
+	 * @param anzahlArtikel Anzahl der neuen Artikel
+	 * @param anzahlBestellungen Anzahl der neuen Bestellungen
+	 * @param seed Startwert fuer den Zufallsgenerator
+	 * @return Zusammenfassung der erzeugten Daten
+	 */
+	public String erzeugen(int anzahlKunden, int anzahlArtikel, int anzahlBestellungen, long seed) {
+		final long start = System.currentTimeMillis();
+		final Random random = new Random(seed);
+		
+		final List<Long> kundeIds = erzeugenKunden(anzahlKunden, random, seed);
+		final List<Artikel> artikel = erzeugenArtikel(anzahlArtikel, random, seed);
+		final int anzahlLieferungen = erzeugenBestellungen(anzahlBestellungen, kundeIds, artikel, random, seed);
+		
+		final String result = String.format("%d Kunden, %d Artikel, %d Bestellungen und %d Lieferungen "
+				                             + "in %d ms erzeugt", kundeIds.size(), artikel.size(),
+				                             anzahlBestellungen, anzahlLieferungen,
+				                             System.currentTimeMillis() - start);
+		LOGGER.info(result);
+		return result;
+	}
+	
+	private List<Long> erzeugenKunden(final int anzahl, final Random random, final long seed) {
+		final List<Long> ids = new ArrayList<>(anzahl);
+		for (int i = 0; i < anzahl; i += TRANSAKTION_GROESSE) {
+			final int von = i;
+			final int bis = Math.min(i + TRANSAKTION_GROESSE, anzahl);
+			Transaktion.ausfuehren(trans, new Runnable() {
+				@Override
+				public void run() {
+					for (int nr = von; nr < bis; nr++) {
+						ids.add(ks.createKunde(neuerKunde("perf", nr, random, seed)).getId());
+					}
+				}
+			});
+		}
+		return ids;
+	}
+	
+	private static AbstractKunde neuerKunde(String emailPrefix, int nr, Random random, long seed) {
+		final AbstractKunde kunde;
+		if (random.nextInt(100) < ANTEIL_PRIVATKUNDEN_PROZENT) {
+			final Privatkunde privatkunde = new Privatkunde();
+			privatkunde.setFamilienstand(auswaehlen(FamilienstandType.values(), random));
+			privatkunde.setGeschlecht(auswaehlen(GeschlechtType.values(), random));
+			final Set<HobbyType> hobbies = EnumSet.noneOf(HobbyType.class);
+			for (HobbyType hobby : HobbyType.values()) {
+				if (random.nextBoolean()) {
+					hobbies.add(hobby);
+				}
+			}
+			privatkunde.setHobbies(hobbies);
+			kunde = privatkunde;
+		}
+		else {
+			kunde = new Firmenkunde();
+		}
+		
+		// Jeder zehnte Nachname als Doppelname
+		String nachname = auswaehlen(NACHNAMEN, random);
+		if (random.nextInt(10) == 0) {
+			nachname += "-" + auswaehlen(NACHNAMEN, random);
+		}
+		kunde.setNachname(nachname);
+		kunde.setVorname(auswaehlen(VORNAMEN, random));
+		kunde.setEmail(emailPrefix + seed + "." + nr + "@hs-karlsruhe.de");
+		kunde.setPassword(String.valueOf(nr));
+		kunde.setPasswordWdh(String.valueOf(nr));
+		kunde.setNewsletter(random.nextBoolean());
+		
+		final Calendar seit = Calendar.getInstance();
+		seit.add(Calendar.DAY_OF_YEAR, -1 - random.nextInt(TAGE_SEIT_MAX));
+		kunde.setSeit(seit.getTime());
+		
+		final String plz = String.format("%05d", 10000 + random.nextInt(90000));
+		final String hausnr = String.valueOf(1 + random.nextInt(200));
+		kunde.setAdresse(new Adresse(plz, auswaehlen(ORTE, random), auswaehlen(STRASSEN, random), hausnr, kunde));
+		return kunde;
+	}
+	
+	private List<Artikel> erzeugenArtikel(final int anzahl, final Random random, final long seed) {
+		final List<Artikel> artikel = new ArrayList<>(anzahl);
+		for (int i = 0; i < anzahl; i += TRANSAKTION_GROESSE) {
+			final int von = i;
+			final int bis = Math.min(i + TRANSAKTION_GROESSE, anzahl);
+			Transaktion.ausfuehren(trans, new Runnable() {
+				@Override
+				public void run() {
+					for (int nr = von; nr < bis; nr++) {
+						final String bezeichnung = auswaehlen(ADJEKTIVE, random) + " " + auswaehlen(NOMEN, random)
+						                           + " " + seed + "-" + nr;
+						final BigDecimal preis = BigDecimal.valueOf(1 + random.nextInt(PREIS_CENT_MAX), 2);
+						artikel.add(as.createArtikel(new Artikel(bezeichnung, preis)));
+					}
+				}
+			});
+		}
+		return artikel;
+	}
+	
+	/**
+	 * Bestellungen mit 1 bis 5 Positionen erzeugen und jeweils 3 aufeinanderfolgende Bestellungen
+	 * gemeinsam ausliefern.
+	 * @return Anzahl der Lieferungen
+	 */
+	private int erzeugenBestellungen(final int anzahl, final List<Long> kundeIds, final List<Artikel> artikel,
+			                         final Random random, final long seed) {
+		if (anzahl <= 0 || kundeIds.isEmpty() || artikel.isEmpty()) {
+			return 0;
+		}
+		
+		final int[] anzahlLieferungen = { 0 };
+		for (int i = 0; i < anzahl; i += TRANSAKTION_GROESSE) {
+			final int von = i;
+			final int bis = Math.min(i + TRANSAKTION_GROESSE, anzahl);
+			Transaktion.ausfuehren(trans, new Runnable() {
+				@Override
+				public void run() {
+					List<Bestellung> lieferbar = new ArrayList<>(BESTELLUNGEN_PRO_LIEFERUNG);
+					for (int nr = von; nr < bis; nr++) {
+						final Bestellung bestellung = neueBestellung(artikel, random);
+						lieferbar.add(bs.createBestellung(bestellung, auswaehlen(kundeIds, random)));
+						
+						if (lieferbar.size() == BESTELLUNGEN_PRO_LIEFERUNG || nr == bis - 1) {
+							final String lieferNr = String.format("L%03d%08d", seed % 1000, anzahlLieferungen[0]);
+							final Lieferung lieferung = new Lieferung(lieferNr,
+									                                  auswaehlen(TransportType.values(), random));
+							bs.createLieferung(lieferung, lieferbar);
+							anzahlLieferungen[0]++;
+							lieferbar = new ArrayList<>(BESTELLUNGEN_PRO_LIEFERUNG);
+						}
+					}
+				}
+			});
+		}
+		return anzahlLieferungen[0];
+	}
+	
+	/**
+	 * Einen neuen Kunden mit einer vorgegebenen Anzahl an Bestellungen erzeugen, z.B. um die Latenz von
+	 * createBestellung abhaengig von der Anzahl der bisherigen Bestellungen zu messen.
+	 * @param anzahlBestellungen Anzahl der Bestellungen des neuen Kunden
+	 * @param artikel Die bestellbaren Artikel
+	 * @param nr Laufende Nummer fuer eine eindeutige Email-Adresse
+	 * @param seed Startwert fuer den Zufallsgenerator
+	 * @return ID des neuen Kunden
+	 */
+	Long erzeugenKundeMitBestellungen(final int anzahlBestellungen, final List<Artikel> artikel, final int nr,
+			                          final long seed) {
+		final Random random = new Random(seed + nr);
+		final Long[] kundeId = { null };
+		Transaktion.ausfuehren(trans, new Runnable() {
+			@Override
+			public void run() {
+				kundeId[0] = ks.createKunde(neuerKunde("historie" + System.currentTimeMillis() + ".", nr,
+				                                       random, seed))
+				               .getId();
+			}
+		});
+		
+		for (int i = 0; i < anzahlBestellungen; i += TRANSAKTION_GROESSE) {
+			final int bis = Math.min(i + TRANSAKTION_GROESSE, anzahlBestellungen);
+			final int von = i;
+			Transaktion.ausfuehren(trans, new Runnable() {
+				@Override
+				public void run() {
+					for (int j = von; j < bis; j++) {
+						bs.createBestellung(neueBestellung(artikel, random), kundeId[0]);
+					}
+				}
+			});
+		}
+		LOGGER.debugf("Kunde %d mit %d Bestellungen erzeugt", kundeId[0], anzahlBestellungen);
+		return kundeId[0];
+	}
+	
+	static Bestellung neueBestellung(List<Artikel> artikel, Random random) {
+		final int anzahlPositionen = 1 + random.nextInt(POSITIONEN_MAX);
+		final List<Bestellposition> positionen = new ArrayList<>(anzahlPositionen);
+		for (int i = 0; i < anzahlPositionen; i++) {
+			final short anzahl = (short) (1 + random.nextInt(ANZAHL_MAX));
+			positionen.add(new Bestellposition(auswaehlen(artikel, random), anzahl));
+		}
+		return new Bestellung(positionen);
+	}
+	
+	static <T> T auswaehlen(T[] werte, Random random) {
+		return werte[random.nextInt(werte.length)];
+	}
+	
+	static <T> T auswaehlen(List<T> werte, Random random) {
+		return werte.get(random.nextInt(werte.size()));
+	}
+}
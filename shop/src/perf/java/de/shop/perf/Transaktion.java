@@ -0,0 +1,84 @@
+package de.shop.perf;
+
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+/**
+ * Eine Aktion in einer eigenen JTA-Transaktion ausfuehren, so wie bei einem Aufruf ueber REST.
+ * @author <a href="mailto:Juergen.Zimmermann@HS-Karlsruhe.de">J&uuml;rgen Zimmermann</a>
+ */
+final class Transaktion {
+	private Transaktion() {
+	}
+	
+	/**
+	 * @param trans Die UserTransaction des Servers
+	 * @param aktion Die auszufuehrende Aktion
+	 */
+	static void ausfuehren(UserTransaction trans, Runnable aktion) {
+		try {
+			trans.begin();
+		}
+		catch (NotSupportedException | SystemException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		boolean erfolgreich = false;
+		try {
+			aktion.run();
+			erfolgreich = true;
+		}
+		finally {
+			try {
+				if (erfolgreich) {
+					trans.commit();
+				}
+				else {
+					trans.rollback();
+				}
+			}
+			catch (RollbackException | HeuristicMixedException | HeuristicRollbackException | SystemException e) {
+				// Bei einem Fehler der Aktion wird deren Exception weitergereicht
+				if (erfolgreich) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Eine Aktion in einer eigenen JTA-Transaktion ausfuehren und die Transaktion anschliessend immer
+	 * zuruecksetzen, z.B. fuer wiederholte Messungen mit unveraenderten Daten.
+	 * @param trans Die UserTransaction des Servers
+	 * @param aktion Die auszufuehrende Aktion
+	 */
+	static void ausfuehrenOhneCommit(UserTransaction trans, Runnable aktion) {
+		try {
+			trans.begin();
+		}
+		catch (NotSupportedException | SystemException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		boolean erfolgreich = false;
+		try {
+			aktion.run();
+			erfolgreich = true;
+		}
+		finally {
+			try {
+				trans.rollback();
+			}
+			catch (SystemException e) {
+				// Bei einem Fehler der Aktion wird deren Exception weitergereicht
+				if (erfolgreich) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,11 @@
+-- ===============================================================================
+-- Jede SQL-Anweisung muss in genau 1 Zeile
+-- Kommentare durch -- am Zeilenanfang
+-- ===============================================================================
+
+-- Maven-Profil "perf": die Testdaten werden mit POST /rest/perf/daten erzeugt
+
+--
+-- replika_heartbeat
+--
+INSERT INTO replika_heartbeat (id, zeitpunkt) VALUES (1,0);